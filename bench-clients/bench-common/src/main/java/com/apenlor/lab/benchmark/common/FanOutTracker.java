@@ -0,0 +1,151 @@
+package com.apenlor.lab.benchmark.common;
+
+import org.HdrHistogram.Recorder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Correlates every chat ping with its deliveries, to measure the broadcast delay of each message.
+ * <p>
+ * A ping carries its message id and send time in its text, followed by filler content of the configured payload
+ * size. Whichever client receives it records the delay from that send time, which is the latency the recipient
+ * actually sees. The tracker also counts the deliveries of every id. Once the last expected recipient has received
+ * a message, the delay since its send time is recorded as its fan-out completion time. All clients run in the same
+ * JVM, so ids and {@link System#nanoTime()} values are shared.
+ * </p>
+ * <p>
+ * A message that some recipient never receives, for example because the server dropped it for a slow gRPC stream or
+ * WebSocket session, is counted as incomplete once it is older than the timeout.
+ * </p>
+ */
+public class FanOutTracker {
+    private static final String PING_PREFIX = "ping:";
+    private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final int recipients;
+    private final String filler;
+    private final Recorder deliveryRecorder;
+    private final Recorder fanOutRecorder;
+    private final AtomicLong nextId = new AtomicLong();
+    private final AtomicLong incompleteCounter = new AtomicLong();
+    private final AtomicLong nextExpiryNanos = new AtomicLong(System.nanoTime() + TIMEOUT_NANOS);
+    private final Map<Long, FanOut> pending = new ConcurrentHashMap<>();
+
+    /**
+     * @param recipients       The number of clients that receive each message, every client but its sender.
+     * @param payloadSize      The number of bytes of filler content sent after the id and send time, if any.
+     * @param deliveryRecorder Records the delay of every delivery to every recipient.
+     * @param fanOutRecorder   Records the delay until the last recipient received a message.
+     */
+    public FanOutTracker(int recipients, int payloadSize, Recorder deliveryRecorder, Recorder fanOutRecorder) {
+        this.recipients = recipients;
+        this.filler = payloadSize > 0 ? ":" + "x".repeat(payloadSize - 1) : "";
+        this.deliveryRecorder = deliveryRecorder;
+        this.fanOutRecorder = fanOutRecorder;
+    }
+
+    /**
+     * Registers a message about to be sent.
+     *
+     * @param sentNanos The send time to measure from: the actual one in closed loop, the intended one in open loop.
+     * @param copies    The number of messages sent together under this id, more than one for a batch.
+     * @return The fan-out of the message, whose {@link FanOut#payload()} is the text to send.
+     */
+    public FanOut register(long sentNanos, int copies) {
+        expireIfDue(sentNanos);
+        FanOut fanOut = new FanOut(nextId.getAndIncrement(), sentNanos, recipients * copies, filler);
+        if (fanOut.remaining.get() > 0) {
+            pending.put(fanOut.id, fanOut);
+        } else {
+            fanOut.done.countDown();
+        }
+        return fanOut;
+    }
+
+    /**
+     * Records the delivery of a ping to one recipient.
+     *
+     * @param payload The text of the received message. Anything that is not a ping is ignored.
+     */
+    public void delivered(String payload) {
+        long receivedNanos = System.nanoTime();
+        if (!payload.startsWith(PING_PREFIX)) {
+            return;
+        }
+        int separator = payload.indexOf(':', PING_PREFIX.length());
+        int end = payload.indexOf(':', separator + 1);
+        long id = Long.parseLong(payload, PING_PREFIX.length(), separator, 10);
+        long sentNanos = Long.parseLong(payload, separator + 1, end < 0 ? payload.length() : end, 10);
+        deliveryRecorder.recordValue(Math.max(0, receivedNanos - sentNanos));
+
+        FanOut fanOut = pending.get(id);
+        if (fanOut != null && fanOut.remaining.decrementAndGet() == 0 && pending.remove(id) != null) {
+            fanOutRecorder.recordValue(Math.max(0, receivedNanos - sentNanos));
+            fanOut.done.countDown();
+        }
+    }
+
+    /**
+     * @return The number of messages that had not reached every recipient within the timeout.
+     */
+    public long incomplete() {
+        return incompleteCounter.get();
+    }
+
+    /**
+     * Drops the messages older than the timeout, at most once per timeout period, so that lost deliveries do not
+     * accumulate.
+     */
+    private void expireIfDue(long nowNanos) {
+        long due = nextExpiryNanos.get();
+        if (nowNanos - due < 0 || !nextExpiryNanos.compareAndSet(due, nowNanos + TIMEOUT_NANOS)) {
+            return;
+        }
+        pending.values().removeIf(fanOut -> {
+            if (nowNanos - fanOut.sentNanos > TIMEOUT_NANOS) {
+                incompleteCounter.incrementAndGet();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * One registered message and the deliveries it is still waiting for.
+     */
+    public static final class FanOut {
+        private final long id;
+        private final long sentNanos;
+        private final AtomicInteger remaining;
+        private final String filler;
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        private FanOut(long id, long sentNanos, int expectedDeliveries, String filler) {
+            this.id = id;
+            this.sentNanos = sentNanos;
+            this.remaining = new AtomicInteger(expectedDeliveries);
+            this.filler = filler;
+        }
+
+        /**
+         * @return The message text, carrying the message id, send time and payload.
+         */
+        public String payload() {
+            return PING_PREFIX + id + ':' + sentNanos + filler;
+        }
+
+        /**
+         * Waits until every recipient has received the message.
+         *
+         * @return False if the timeout elapsed first.
+         */
+        public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+            return done.await(timeout, unit);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.apenlor.lab.benchmark.common;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the latencies recorded by every client task, interval by interval.
+ * <p>
+ * The tasks record into a single HdrHistogram {@link Recorder}, whose writers are wait-free and never contend on a
+ * lock. On a fixed period the recorder hands over the histogram of the interval that just ended. Each interval is
+ * added to the histogram of the whole run, reported to the log unless in quiet mode, and optionally appended to an
+ * HdrHistogram interval log ({@code .hlog}), so that warm-up, GC pauses and server stalls can be plotted over time.
+ * </p>
+ * <p>
+ * Chat workloads also record the fan-out completion time of each message into a second recorder. Its intervals
+ * are written to the same log under the {@code fanout} tag. Benchmarks that need more from each interval override
+ * {@link #intervalEnded(Histogram)} and {@link #logInterval(Histogram)}.
+ * </p>
+ */
+public class LatencyLog {
+    private static final Logger logger = LoggerFactory.getLogger(LatencyLog.class);
+    // Latencies are recorded in nanoseconds; interval logs conventionally show the maximum in milliseconds.
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final String FAN_OUT_TAG = "fanout";
+
+    private final Recorder recorder = new Recorder(3);
+    private final Histogram total = new Histogram(3);
+    private final Recorder fanOutRecorder = new Recorder(3);
+    private final Histogram fanOutTotal = new Histogram(3);
+    private final String title;
+    private final String hlogPath;
+    private final int intervalSeconds;
+    private final boolean quietMode;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    // Guarded by this. The interval histogram is recycled by the recorder on every snapshot.
+    private Histogram interval;
+    private Histogram fanOutInterval;
+    private PrintStream hlog;
+    private HistogramLogWriter hlogWriter;
+
+    /**
+     * @param title           What is measured, such as {@code gRPC benchmark latencies}, for the interval log header.
+     * @param hlogPath        The interval log to write, or null for none.
+     * @param intervalSeconds The length of each interval.
+     * @param quietMode       If true, the intervals are not logged.
+     */
+    public LatencyLog(String title, String hlogPath, int intervalSeconds, boolean quietMode) {
+        this.title = title;
+        this.hlogPath = hlogPath;
+        this.intervalSeconds = intervalSeconds;
+        this.quietMode = quietMode;
+    }
+
+    /**
+     * @return The recorder shared by all client tasks, taking latencies in nanoseconds.
+     */
+    public Recorder recorder() {
+        return recorder;
+    }
+
+    /**
+     * @return The recorder of fan-out completion times, in nanoseconds.
+     */
+    public Recorder fanOutRecorder() {
+        return fanOutRecorder;
+    }
+
+    /**
+     * Discards anything recorded so far and starts the first interval. Called when the benchmark starts.
+     *
+     * @throws FileNotFoundException If the interval log cannot be created.
+     */
+    public synchronized void start() throws FileNotFoundException {
+        long startMillis = System.currentTimeMillis();
+        recorder.reset();
+        fanOutRecorder.reset();
+        if (hlogPath != null) {
+            hlog = new PrintStream(hlogPath);
+            hlogWriter = new HistogramLogWriter(hlog);
+            hlogWriter.outputComment(title + " in nanoseconds, one histogram every " + intervalSeconds + "s");
+            hlogWriter.outputLogFormatVersion();
+            hlogWriter.outputStartTime(startMillis);
+            hlogWriter.setBaseTime(startMillis);
+            hlogWriter.outputLegend();
+        }
+        scheduler.scheduleAtFixedRate(this::snapshot, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Closes the last interval and the interval log. Called once every client task has finished.
+     */
+    public synchronized void stop() {
+        scheduler.shutdownNow();
+        snapshot();
+        if (hlog != null) {
+            hlog.close();
+        }
+    }
+
+    /**
+     * @return The latencies of the whole run, once stopped.
+     */
+    public Histogram total() {
+        return total;
+    }
+
+    /**
+     * @return The fan-out completion times of the whole run, once stopped.
+     */
+    public Histogram fanOutTotal() {
+        return fanOutTotal;
+    }
+
+    /**
+     * Called with every interval that just ended, under the log's lock, before it is written and logged.
+     *
+     * @param interval The latencies of the interval.
+     * @return A comment to write to the interval log ahead of the interval, or null for none.
+     */
+    protected String intervalEnded(Histogram interval) {
+        return null;
+    }
+
+    /**
+     * Reports an interval that just ended, unless in quiet mode.
+     *
+     * @param interval The latencies of the interval.
+     */
+    protected void logInterval(Histogram interval) {
+        logger.info("Interval: {} msgs, p50 {} us, p99 {} us, max {} us", interval.getTotalCount(),
+                TimeUnit.NANOSECONDS.toMicros(interval.getValueAtPercentile(50)),
+                TimeUnit.NANOSECONDS.toMicros(interval.getValueAtPercentile(99)),
+                TimeUnit.NANOSECONDS.toMicros(interval.getMaxValue()));
+    }
+
+    private synchronized void snapshot() {
+        interval = recorder.getIntervalHistogram(interval);
+        total.add(interval);
+        fanOutInterval = fanOutRecorder.getIntervalHistogram(fanOutInterval);
+        fanOutTotal.add(fanOutInterval);
+        String comment = intervalEnded(interval);
+        if (hlogWriter != null) {
+            if (comment != null) {
+                hlogWriter.outputComment(comment);
+            }
+            write(interval);
+            if (fanOutTotal.getTotalCount() > 0) {
+                fanOutInterval.setTag(FAN_OUT_TAG);
+                write(fanOutInterval);
+            }
+        }
+        if (!quietMode) {
+            logInterval(interval);
+            if (fanOutInterval.getTotalCount() > 0) {
+                logger.info("Fan-out:  {} msgs, p50 {} us, p99 {} us, max {} us", fanOutInterval.getTotalCount(),
+                        TimeUnit.NANOSECONDS.toMicros(fanOutInterval.getValueAtPercentile(50)),
+                        TimeUnit.NANOSECONDS.toMicros(fanOutInterval.getValueAtPercentile(99)),
+                        TimeUnit.NANOSECONDS.toMicros(fanOutInterval.getMaxValue()));
+            }
+        }
+    }
+
+    private void write(Histogram histogram) {
+        hlogWriter.outputIntervalHistogram(histogram.getStartTimeStamp() / 1000.0, histogram.getEndTimeStamp() / 1000.0,
+                histogram, NANOS_PER_MILLI);
+    }
+}
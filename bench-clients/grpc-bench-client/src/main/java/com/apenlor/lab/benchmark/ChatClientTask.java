@@ -1,89 +1,98 @@
 package com.apenlor.lab.benchmark;
 
+import com.apenlor.lab.benchmark.common.FanOutTracker;
+import com.apenlor.lab.grpc.ChatBatch;
 import com.apenlor.lab.grpc.ChatMessage;
+import com.apenlor.lab.grpc.ChatMessageV2;
 import com.apenlor.lab.grpc.ChatServiceGrpc;
+import io.grpc.Context;
 import io.grpc.ManagedChannel;
-import io.grpc.ManagedChannelBuilder;
 import io.grpc.stub.StreamObserver;
-import org.HdrHistogram.Histogram;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
 
 /**
  * Represents a single virtual user in the benchmark.
- * Each instance of this task runs on its own thread, managing one gRPC connection.
+ * Each instance of this task runs on its own thread, holding one bidirectional stream on a channel that it may
+ * share with other tasks.
+ * In coalesced mode it uses the BidiChatCoalesced RPC and unpacks every received batch into individual messages.
+ * With protocol version 2 it uses the BidiChatV2 RPC and its compact ChatMessageV2 schema.
+ * With a batch size it uses the BidiChatBatch RPC, sending that many messages per frame.
+ * <p>
+ * Every ping carries a message id and its send time, and every client receiving it records its delivery latency
+ * through the shared {@link FanOutTracker}. In the default closed loop, the task waits until all the other clients
+ * have received its ping before sending the next one.
+ * </p>
+ * <p>
+ * With a target rate the task runs open loop: it sends on a fixed schedule, whether or not anything came back, and
+ * stamps each ping with the time it was due to be sent. Latency is then measured from that intended send time, so a
+ * server stall that delays the sender as well shows up in full, instead of being hidden by a client that stopped
+ * sending (coordinated omission).
+ * </p>
  */
 public class ChatClientTask implements Runnable {
     private static final Logger logger = LoggerFactory.getLogger(ChatClientTask.class);
 
     private final int clientId;
-    private final ManagedChannel channel;
     private final ChatServiceGrpc.ChatServiceStub asyncStub;
-    private final Histogram histogram;
+    private final FanOutTracker tracker;
     private final CountDownLatch startLatch;
     private final CountDownLatch finishLatch;
     private final AtomicLong timeoutCounter;
+    private final AtomicLong deliveredCounter;
+    private final boolean coalesced;
+    private final int protoVersion;
+    private final int batchSize;
+    private final double ratePerSecond;
+    private final AtomicLong sentCounter;
 
-    public ChatClientTask(int clientId, String host, int port, Histogram histogram, CountDownLatch startLatch, CountDownLatch finishLatch, AtomicLong timeoutCounter) {
+    public ChatClientTask(int clientId, ManagedChannel channel, FanOutTracker tracker, CountDownLatch startLatch, CountDownLatch finishLatch,
+                          AtomicLong timeoutCounter, AtomicLong deliveredCounter, boolean coalesced, int protoVersion, int batchSize,
+                          double ratePerSecond, AtomicLong sentCounter) {
         this.clientId = clientId;
-        String target = "dns:///" + host + ":" + port;
-        this.channel = ManagedChannelBuilder.forTarget(target).usePlaintext().build();
-        this.asyncStub = ChatServiceGrpc.newStub(this.channel);
-        this.histogram = histogram;
+        this.asyncStub = ChatServiceGrpc.newStub(channel);
+        this.tracker = tracker;
         this.startLatch = startLatch;
         this.finishLatch = finishLatch;
         this.timeoutCounter = timeoutCounter;
+        this.deliveredCounter = deliveredCounter;
+        this.coalesced = coalesced;
+        this.protoVersion = protoVersion;
+        this.batchSize = batchSize;
+        this.ratePerSecond = ratePerSecond;
+        this.sentCounter = sentCounter;
     }
 
     @Override
     public void run() {
+        Context.CancellableContext callContext = Context.current().withCancellation();
         try {
-            // A thread-safe queue to receive messages from the server.
-            BlockingQueue<ChatMessage> incomingMessages = new LinkedBlockingQueue<>();
-            StreamObserver<ChatMessage> responseObserver = new StreamObserver<>() {
-                @Override
-                public void onNext(ChatMessage value) {
-                    incomingMessages.add(value);
-                }
-
-                @Override
-                public void onError(Throwable t) {
-                    // Errors are expected during forceful shutdown
-                }
-
-                @Override
-                public void onCompleted() {
-                    // Do nothing
-                }
-            };
-
-            StreamObserver<ChatMessage> requestObserver = asyncStub.bidiChat(responseObserver);
+            // The stream is bound to this context, so cancelling it closes the stream but not the shared channel.
+            Consumer<String> sendPing = callContext.call(this::openStream);
 
             // Wait for the main thread to give the "start" signal.
             startLatch.await();
 
+            if (ratePerSecond > 0) {
+                runOpenLoop(sendPing);
+                return;
+            }
+
             // Main benchmark loop. It will run until the main thread interrupts it.
             while (!Thread.currentThread().isInterrupted()) {
-                long sentTimeNanos = System.nanoTime();
-                requestObserver.onNext(ChatMessage.newBuilder()
-                        .setSender("client-" + clientId)
-                        .setMessage("ping")
-                        .build());
-
-                // Block and wait for a message to arrive from the server (broadcast from another client).
-                ChatMessage receivedMessage = incomingMessages.poll(10, TimeUnit.SECONDS);
-
-                if (receivedMessage != null) {
-                    long latencyNanos = System.nanoTime() - sentTimeNanos;
-                    // Record the measurement in our shared, thread-safe histogram.
-                    histogram.recordValue(latencyNanos);
-                } else {
+                FanOutTracker.FanOut ping = tracker.register(System.nanoTime(), Math.max(1, batchSize));
+                sendPing.accept(ping.payload());
+                sentCounter.incrementAndGet();
+
+                // Block until every other client has received the ping; the receivers record the latencies.
+                if (!ping.await(10, TimeUnit.SECONDS)) {
                     timeoutCounter.incrementAndGet();
                 }
                 TimeUnit.MILLISECONDS.sleep(10);
@@ -95,8 +104,93 @@ public class ChatClientTask implements Runnable {
         } catch (Exception e) {
             logger.error("Client {} failed with an unexpected error", clientId, e);
         } finally {
-            channel.shutdownNow(); // Forcefully close the connection.
+            callContext.cancel(null); // Close the stream; the channel is closed by the main thread.
             finishLatch.countDown(); // Signal to the main thread that this task is finished.
         }
     }
+
+    /**
+     * Sends pings at the target rate until the main thread interrupts this task. A ping that is due while the
+     * previous one is still being sent goes out immediately afterwards, keeping its original intended send time.
+     *
+     * @param sendPing The action sending one ping, or one batch of pings, with the given text.
+     */
+    private void runOpenLoop(Consumer<String> sendPing) {
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        // Spread the clients over the first interval so that they do not all send at the same instant.
+        long intendedNanos = System.nanoTime() + ThreadLocalRandom.current().nextLong(intervalNanos);
+        while (!Thread.currentThread().isInterrupted()) {
+            long waitNanos = intendedNanos - System.nanoTime();
+            if (waitNanos > 0) {
+                LockSupport.parkNanos(waitNanos);
+                continue;
+            }
+            sendPing.accept(tracker.register(intendedNanos, Math.max(1, batchSize)).payload());
+            sentCounter.incrementAndGet();
+            intendedNanos += intervalNanos;
+        }
+    }
+
+    /**
+     * Opens the bidirectional stream selected by the configuration. Every message received on it is reported to
+     * the tracker.
+     *
+     * @return An action that sends one ping, or one batch of pings, with the given text on the stream.
+     */
+    private Consumer<String> openStream() {
+        String sender = "client-" + clientId;
+        if (batchSize > 0) {
+            StreamObserver<ChatBatch> requestObserver = asyncStub.bidiChatBatch(new ResponseObserver<ChatBatch>(
+                    batch -> batch.getMessagesList().forEach(message -> receive(message.getMessage()))));
+            return text -> {
+                ChatBatch.Builder pings = ChatBatch.newBuilder();
+                for (int i = 0; i < batchSize; i++) {
+                    pings.addMessages(ChatMessage.newBuilder().setSender(sender).setMessage(text));
+                }
+                requestObserver.onNext(pings.build());
+            };
+        }
+        if (protoVersion == 2) {
+            StreamObserver<ChatMessageV2> requestObserver = asyncStub.bidiChatV2(
+                    new ResponseObserver<ChatMessageV2>(message -> receive(message.getMessage())));
+            return text -> requestObserver.onNext(ChatMessageV2.newBuilder().setSender(sender).setMessage(text).build());
+        }
+        StreamObserver<ChatMessage> requestObserver = coalesced
+                ? asyncStub.bidiChatCoalesced(new ResponseObserver<ChatBatch>(batch -> batch.getMessagesList().forEach(message -> receive(message.getMessage()))))
+                : asyncStub.bidiChat(new ResponseObserver<ChatMessage>(message -> receive(message.getMessage())));
+        return text -> requestObserver.onNext(ChatMessage.newBuilder().setSender(sender).setMessage(text).build());
+    }
+
+    private void receive(String text) {
+        deliveredCounter.incrementAndGet();
+        tracker.delivered(text);
+    }
+
+    /**
+     * Hands every value received from the server to a handler.
+     *
+     * @param <T> The type of the streamed responses.
+     */
+    private static final class ResponseObserver<T> implements StreamObserver<T> {
+        private final Consumer<T> handler;
+
+        ResponseObserver(Consumer<T> handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void onNext(T value) {
+            handler.accept(value);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            // Errors are expected during forceful shutdown
+        }
+
+        @Override
+        public void onCompleted() {
+            // Do nothing
+        }
+    }
 }
\ No newline at end of file
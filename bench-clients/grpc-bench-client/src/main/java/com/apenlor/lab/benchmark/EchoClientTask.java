@@ -0,0 +1,105 @@
+package com.apenlor.lab.benchmark;
+
+import com.apenlor.lab.grpc.EchoRequest;
+import com.apenlor.lab.grpc.LabServiceGrpc;
+import io.grpc.ManagedChannel;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Represents a single virtual user of the unary Echo benchmark, the gRPC counterpart of the k6 REST /echo test.
+ * Each instance of this task runs on its own thread, sending one request at a time (closed loop)
+ * over a channel that it may share with other tasks.
+ * <p>
+ * With a target rate, requests are due on a fixed schedule instead (open loop), and the latency of each one is
+ * measured from the time it was due rather than the time it was sent. When a slow response delays the next request,
+ * the wait counts against the server, so the recorded latencies are free of coordinated omission.
+ * </p>
+ */
+public class EchoClientTask implements Runnable {
+    private static final Logger logger = LoggerFactory.getLogger(EchoClientTask.class);
+
+    private final int clientId;
+    private final LabServiceGrpc.LabServiceBlockingStub blockingStub;
+    private final Recorder recorder;
+    private final CountDownLatch startLatch;
+    private final CountDownLatch finishLatch;
+    private final AtomicLong timeoutCounter;
+    private final AtomicLong deliveredCounter;
+    private final double ratePerSecond;
+    private final AtomicLong sentCounter;
+
+    public EchoClientTask(int clientId, ManagedChannel channel, Recorder recorder, CountDownLatch startLatch, CountDownLatch finishLatch,
+                          AtomicLong timeoutCounter, AtomicLong deliveredCounter, double ratePerSecond, AtomicLong sentCounter) {
+        this.clientId = clientId;
+        this.blockingStub = LabServiceGrpc.newBlockingStub(channel);
+        this.recorder = recorder;
+        this.startLatch = startLatch;
+        this.finishLatch = finishLatch;
+        this.timeoutCounter = timeoutCounter;
+        this.deliveredCounter = deliveredCounter;
+        this.ratePerSecond = ratePerSecond;
+        this.sentCounter = sentCounter;
+    }
+
+    @Override
+    public void run() {
+        try {
+            EchoRequest request = EchoRequest.newBuilder().setMessage("ping from client-" + clientId).build();
+
+            // Wait for the main thread to give the "start" signal.
+            startLatch.await();
+
+            long intervalNanos = ratePerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond) : 0;
+            // Spread the clients over the first interval so that they do not all send at the same instant.
+            long intendedNanos = System.nanoTime() + (intervalNanos > 0 ? ThreadLocalRandom.current().nextLong(intervalNanos) : 0);
+
+            // Main benchmark loop. It will run until the main thread interrupts it.
+            while (!Thread.currentThread().isInterrupted()) {
+                long sentTimeNanos = System.nanoTime();
+                if (intervalNanos > 0) {
+                    if (intendedNanos > sentTimeNanos) {
+                        LockSupport.parkNanos(intendedNanos - sentTimeNanos);
+                        continue;
+                    }
+                    // Open loop: a request that is late because of the previous response is timed from when it was due.
+                    sentTimeNanos = intendedNanos;
+                    intendedNanos += intervalNanos;
+                }
+                sentCounter.incrementAndGet();
+                try {
+                    blockingStub.withDeadlineAfter(10, TimeUnit.SECONDS).echo(request);
+                    recorder.recordValue(System.nanoTime() - sentTimeNanos);
+                    deliveredCounter.incrementAndGet();
+                } catch (StatusRuntimeException e) {
+                    if (e.getStatus().getCode() != Status.Code.DEADLINE_EXCEEDED) {
+                        throw e;
+                    }
+                    timeoutCounter.incrementAndGet();
+                }
+            }
+
+        } catch (InterruptedException e) {
+            // This is the expected way to exit the loop when the main thread stops us.
+            Thread.currentThread().interrupt();
+        } catch (StatusRuntimeException e) {
+            // A CANCELLED status is expected when the main thread interrupts a call in flight.
+            if (e.getStatus().getCode() != Status.Code.CANCELLED) {
+                logger.error("Client {} failed with an unexpected error", clientId, e);
+            }
+        } catch (Exception e) {
+            logger.error("Client {} failed with an unexpected error", clientId, e);
+        } finally {
+            finishLatch.countDown(); // Signal to the main thread that this task is finished.
+        }
+    }
+}
@@ -1,28 +1,68 @@
 package com.apenlor.lab.benchmark;
 
+import com.apenlor.lab.benchmark.common.FanOutTracker;
+import com.apenlor.lab.benchmark.common.LatencyLog;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
 import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.FileNotFoundException;
 import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 /**
  * The main entry point for the custom gRPC benchmark client.
  * <p>
  * This application simulates a configurable number of concurrent clients to
  * load test the gRPC BidiChat service and measure end-to-end broadcast latency.
+ * Every chat message carries an id and its send time, so each recipient records the
+ * real delivery latency of each message, and the time until the last recipient received
+ * it is reported as the fan-out completion time.
+ * With the '--coalesced' flag it targets BidiChatCoalesced instead, so the
+ * latency cost and delivery throughput gain of server-side batching can be compared.
+ * With '--proto-version=2' it targets BidiChatV2 and its compact ChatMessageV2 schema.
+ * With '--batch-size=N' it targets BidiChatBatch, sending N messages per frame, so the
+ * delivery throughput can be compared across batch sizes.
+ * <p>
+ * '--mode=echo' and '--mode=ticker' load test the unary Echo and server-streaming Ticker RPCs
+ * instead, the gRPC counterparts of the REST /echo and SSE /stream/ticker endpoints. In ticker
+ * mode the latency is the delay between an update's server timestamp and its arrival.
+ * <p>
+ * By default every client is closed loop: it waits for a reply before sending again, so a stalled
+ * server also slows the load down. '--rate=N' switches the chat and echo workloads to open loop,
+ * where each client sends N messages per second on a fixed schedule and latency is measured from
+ * the intended send time, correcting for coordinated omission. The report then compares the target
+ * rate with the rate actually achieved.
+ * <p>
+ * Each virtual user gets its own platform thread and its own channel by default. '--virtual-threads'
+ * runs them on virtual threads instead, and '--channels=N' makes them share a pool of N channels,
+ * each one HTTP/2 connection multiplexing many streams, so that tens of thousands of streams can be
+ * opened from a single load generator.
+ * <p>
+ * '--sweep' runs the chat benchmark once per combination of payload size, client count and send
+ * rate, each for the given duration, and prints a table with one row per combination, to show
+ * where the cost of fan-out stops growing linearly.
+ * <p>
+ * Latencies are collected per interval by a {@link LatencyLog}. '--hlog=FILE' writes every interval
+ * histogram to an HdrHistogram interval log, and '--log-interval=N' sets the interval length in seconds.
  * It follows a robust multithreaded benchmark pattern using CountDownLatches
  * for synchronization and HdrHistogram for accurate, low-overhead measurement.
  */
 public class Main {
     private static final Logger logger = LoggerFactory.getLogger(Main.class);
 
-    public static void main(String[] args) throws InterruptedException {
+    public static void main(String[] args) throws InterruptedException, FileNotFoundException {
         // Use a dedicated method to parse arguments for better structure and readability
         final BenchmarkConfig config = parseArgs(args);
         // If parsing fails, parseArgs will print the usage info and return null.
@@ -37,21 +77,75 @@ public class Main {
             logger.info("Target: {}:{}", config.host, config.port);
             logger.info("Concurrency (Virtual Users): {}", config.concurrency);
             logger.info("Duration: {} seconds", config.durationSeconds);
+            logger.info("Mode: {}", config.mode);
+            logger.info("RPC: {}", config.rpcName());
+            if (config.batchSize > 0) {
+                logger.info("Batch size: {} messages per frame", config.batchSize);
+            }
+            if (config.ratePerSecond > 0) {
+                logger.info("Open loop: {} msg/sec per client", config.ratePerSecond);
+            }
+            logger.info("Threads: {}", config.virtualThreads ? "virtual" : "platform");
+            logger.info("Channels: {}", config.channelCount());
+            if (config.payloadSize > 0) {
+                logger.info("Payload: {} bytes per message", config.payloadSize);
+            }
+            if (config.hlogPath != null) {
+                logger.info("Interval log: {} (every {} seconds)", config.hlogPath, config.logIntervalSeconds);
+            }
             logger.info("--------------------------------------------------");
         }
 
-        try (ExecutorService executor = Executors.newFixedThreadPool(config.concurrency)) {
-            final Histogram histogram = new Histogram(TimeUnit.SECONDS.toNanos(10), 3);
+        if (config.sweep) {
+            runSweep(config);
+        } else {
+            printResults(run(config), config);
+        }
+    }
+
+    /**
+     * Runs one benchmark with the given configuration.
+     *
+     * @param config The benchmark configuration.
+     * @return The measurements of the run.
+     */
+    private static BenchmarkRun run(BenchmarkConfig config) throws InterruptedException, FileNotFoundException {
+        final List<ManagedChannel> channels = new ArrayList<>(config.channelCount());
+        for (int i = 0; i < config.channelCount(); i++) {
+            channels.add(ManagedChannelBuilder.forTarget("dns:///" + config.host + ":" + config.port).usePlaintext().build());
+        }
+
+        try (ExecutorService executor = config.virtualThreads
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(config.concurrency)) {
+            // Recorded from every client thread and gRPC callback, without locking, and merged per interval.
+            final LatencyLog latencyLog = new LatencyLog("gRPC benchmark latencies", config.hlogPath,
+                    config.logIntervalSeconds, config.quietMode);
+            final Recorder recorder = latencyLog.recorder();
+            final FanOutTracker tracker = new FanOutTracker(config.concurrency - 1, config.payloadSize, recorder,
+                    latencyLog.fanOutRecorder());
             final AtomicLong timeoutCounter = new AtomicLong(0);
+            final AtomicLong deliveredCounter = new AtomicLong(0);
+            final AtomicLong sentCounter = new AtomicLong(0);
 
             final CountDownLatch startLatch = new CountDownLatch(1);
             final CountDownLatch finishLatch = new CountDownLatch(config.concurrency);
 
             // Create and submit a task for each virtual user.
             for (int i = 0; i < config.concurrency; i++) {
+                // Clients are spread over the channels round-robin.
+                ManagedChannel channel = channels.get(i % channels.size());
                 // Pass the full config, though the task only needs a subset
                 // In a larger application, a dedicated task-specific config might be passed
-                Runnable task = new ChatClientTask(i, config.host, config.port, histogram, startLatch, finishLatch, timeoutCounter);
+                Runnable task = switch (config.mode) {
+                    case "echo" -> new EchoClientTask(i, channel, recorder, startLatch, finishLatch,
+                            timeoutCounter, deliveredCounter, config.ratePerSecond, sentCounter);
+                    case "ticker" -> new TickerClientTask(i, channel, recorder, startLatch, finishLatch,
+                            deliveredCounter);
+                    default -> new ChatClientTask(i, channel, tracker, startLatch, finishLatch,
+                            timeoutCounter, deliveredCounter, config.coalesced, config.protoVersion, config.batchSize,
+                            config.ratePerSecond, sentCounter);
+                };
                 executor.submit(task);
             }
 
@@ -63,6 +157,7 @@ public class Main {
             if (!config.quietMode) {
                 logger.info("GO!");
             }
+            latencyLog.start();
             startLatch.countDown(); // This releases all waiting client threads simultaneously.
 
             Thread.sleep(TimeUnit.SECONDS.toMillis(config.durationSeconds));
@@ -83,14 +178,62 @@ public class Main {
                 }
             }
 
-            printResults(histogram, timeoutCounter, config.durationSeconds, config.quietMode);
+            channels.forEach(ManagedChannel::shutdownNow); // Forcefully close the connections.
+            latencyLog.stop();
+            return new BenchmarkRun(latencyLog, tracker, timeoutCounter.get(), deliveredCounter.get(), sentCounter.get());
+        }
+    }
+
+    /**
+     * Runs the chat benchmark once for every combination of the swept payload sizes, client counts and send
+     * rates, and prints one row of results per combination. Rows are printed as the sweep progresses, so that a
+     * long sweep can be watched and an interrupted one still yields its completed cells.
+     *
+     * @param config The benchmark configuration, holding the values to sweep.
+     */
+    private static void runSweep(BenchmarkConfig config) throws InterruptedException, FileNotFoundException {
+        PrintStream out = config.quietMode ? System.out : null;
+        int cells = config.payloadSizes.size() * config.clientCounts.size() * config.rates.size();
+        logOrPrint(out, "-------------------- Sweep Results --------------------");
+        logOrPrint(out, "{}", String.format("%8s %8s %10s %12s %14s %10s %10s %10s %14s %9s %11s",
+                "payload", "clients", "rate", "sent/s", "delivered/s", "p50_us", "p99_us", "p99.9_us",
+                "fanout_p99_us", "timeouts", "incomplete"));
+        int cell = 0;
+        for (int payloadSize : config.payloadSizes) {
+            for (int clients : config.clientCounts) {
+                for (double rate : config.rates) {
+                    cell++;
+                    if (!config.quietMode) {
+                        logger.info("Sweep cell {}/{}: {} bytes, {} clients, rate {}", cell, cells, payloadSize, clients,
+                                rate > 0 ? rate + " msg/sec" : "closed loop");
+                    }
+                    BenchmarkRun result = run(config.cell(payloadSize, clients, rate));
+                    Histogram histogram = result.latencyLog.total();
+                    logOrPrint(out, "{}", String.format("%8d %8d %10s %12.2f %14.2f %10d %10d %10d %14d %9d %11d",
+                            payloadSize, clients, rate > 0 ? String.format("%.2f", rate) : "closed",
+                            result.sent / (double) config.durationSeconds,
+                            result.delivered / (double) config.durationSeconds,
+                            TimeUnit.NANOSECONDS.toMicros(histogram.getValueAtPercentile(50)),
+                            TimeUnit.NANOSECONDS.toMicros(histogram.getValueAtPercentile(99)),
+                            TimeUnit.NANOSECONDS.toMicros(histogram.getValueAtPercentile(99.9)),
+                            TimeUnit.NANOSECONDS.toMicros(result.latencyLog.fanOutTotal().getValueAtPercentile(99)),
+                            result.timeouts, result.tracker.incomplete()));
+                }
+            }
         }
+        logOrPrint(out, "---------------------------------------------------------");
     }
 
     /**
      * Parses command-line arguments into a structured config object.
      * This approach is more robust and extensible than simple array index access.
-     * It supports a '--quiet' flag for suppressing verbose output.
+     * It supports a '--quiet' flag for suppressing verbose output and a '--coalesced'
+     * flag for targeting the BidiChatCoalesced RPC. '--proto-version=1|2' selects the message schema, and
+     * '--batch-size=N' targets the BidiChatBatch RPC. '--mode=chat|echo|ticker' selects the workload, and
+     * '--rate=N' runs it open loop at N messages per second per client. '--hlog=FILE' and '--log-interval=N'
+     * write an interval log of the latencies. '--virtual-threads' and '--channels=N' select the threading
+     * and connection model. '--payload-size=N' appends N bytes to every chat message, and '--sweep' runs the
+     * chat benchmark over the lists given by '--payload-sizes', '--clients' and '--rates'.
      *
      * @param args The command-line arguments provided at runtime.
      * @return A populated BenchmarkConfig object, or null if essential arguments are missing.
@@ -104,6 +247,34 @@ public class Main {
             if ("--quiet".equals(arg)) {
                 // If it's the quiet flag, set the boolean.
                 config.quietMode = true;
+            } else if ("--coalesced".equals(arg)) {
+                config.coalesced = true;
+            } else if (arg.startsWith("--proto-version=")) {
+                config.protoVersion = Integer.parseInt(arg.substring("--proto-version=".length()));
+            } else if (arg.startsWith("--mode=")) {
+                config.mode = arg.substring("--mode=".length());
+            } else if (arg.startsWith("--batch-size=")) {
+                config.batchSize = Integer.parseInt(arg.substring("--batch-size=".length()));
+            } else if (arg.startsWith("--rate=")) {
+                config.ratePerSecond = Double.parseDouble(arg.substring("--rate=".length()));
+            } else if ("--virtual-threads".equals(arg)) {
+                config.virtualThreads = true;
+            } else if (arg.startsWith("--channels=")) {
+                config.channels = Integer.parseInt(arg.substring("--channels=".length()));
+            } else if (arg.startsWith("--payload-size=")) {
+                config.payloadSize = Integer.parseInt(arg.substring("--payload-size=".length()));
+            } else if ("--sweep".equals(arg)) {
+                config.sweep = true;
+            } else if (arg.startsWith("--payload-sizes=")) {
+                config.payloadSizes = parseList(arg.substring("--payload-sizes=".length()), Integer::valueOf);
+            } else if (arg.startsWith("--clients=")) {
+                config.clientCounts = parseList(arg.substring("--clients=".length()), Integer::valueOf);
+            } else if (arg.startsWith("--rates=")) {
+                config.rates = parseList(arg.substring("--rates=".length()), Double::valueOf);
+            } else if (arg.startsWith("--hlog=")) {
+                config.hlogPath = arg.substring("--hlog=".length());
+            } else if (arg.startsWith("--log-interval=")) {
+                config.logIntervalSeconds = Integer.parseInt(arg.substring("--log-interval=".length()));
             } else if (!arg.startsWith("--")) {
                 // If it's a positional argument, assign it based on its order.
                 switch (positionalArgIndex) {
@@ -126,25 +297,34 @@ public class Main {
             }
         }
 
-        if (positionalArgIndex < 4) {
+        if (positionalArgIndex < 4 || config.protoVersion < 1 || config.protoVersion > 2 || !config.hasSingleRpc()
+                || !List.of("chat", "echo", "ticker").contains(config.mode)
+                || config.ratePerSecond < 0 || (config.ratePerSecond > 0 && "ticker".equals(config.mode))
+                || config.logIntervalSeconds < 1 || config.channels < 0 || config.payloadSize < 0
+                || (config.payloadSize > 0 && !"chat".equals(config.mode)) || !config.completeSweep()) {
             // Print usage directly to System.out to ensure it's visible regardless of logger configuration.
-            System.out.println("Usage: java -jar <jar_file> [--quiet] <host> <port> <concurrency> <duration_seconds>");
+            System.out.println("Usage: java -jar <jar_file> [--quiet] [--mode=chat|echo|ticker] [--coalesced] [--proto-version=1|2 | --batch-size=N] [--rate=N] [--virtual-threads] [--channels=N] [--payload-size=N] [--hlog=FILE] [--log-interval=N] [--sweep [--payload-sizes=N,...] [--clients=N,...] [--rates=N,...]] <host> <port> <concurrency> <duration_seconds>");
             return null;
         }
         return config;
     }
 
+    private static <T> List<T> parseList(String values, Function<String, T> parser) {
+        return Arrays.stream(values.split(",")).map(String::trim).map(parser).toList();
+    }
+
     /**
      * Prints a formatted summary of the benchmark results.
      * Now supports a quiet mode to print directly to System.out, ensuring the
      * final report is captured by automation scripts without logger noise.
      *
-     * @param histogram      The histogram containing all collected latency measurements.
-     * @param timeoutCounter The counter for back-pressure events.
-     * @param duration       The total duration of the test in seconds.
-     * @param quietMode      If true, prints to System.out; otherwise, uses the SLF4J logger.
+     * @param run    The measurements of the run.
+     * @param config The benchmark configuration, for the duration, target rate and quiet mode.
      */
-    private static void printResults(Histogram histogram, AtomicLong timeoutCounter, int duration, boolean quietMode) {
+    private static void printResults(BenchmarkRun run, BenchmarkConfig config) {
+        Histogram histogram = run.latencyLog.total();
+        int duration = config.durationSeconds;
+        boolean quietMode = config.quietMode;
         // Determine the output stream. In quiet mode, we bypass the logger to guarantee the report is the ONLY
         // thing printed to standard output.
         PrintStream out = quietMode ? System.out : null;
@@ -159,11 +339,23 @@ public class Main {
 
         double messagesPerSecond = (histogram.getTotalCount() / (double) duration);
         String formattedThroughput = String.format("%.2f", messagesPerSecond);
+        String formattedDeliveryThroughput = String.format("%.2f", run.delivered / (double) duration);
 
         logOrPrint(out, "-------------------- Benchmark Results --------------------");
         logOrPrint(out, "Total Messages Measured: {}", histogram.getTotalCount());
-        logOrPrint(out, "Total Timeouts: {} (indicates back-pressure)", timeoutCounter.get());
+        logOrPrint(out, "Total Timeouts: {} (indicates back-pressure)", run.timeouts);
         logOrPrint(out, "Throughput: {} msg/sec", formattedThroughput);
+        logOrPrint(out, "Total Messages Delivered: {}", run.delivered);
+        logOrPrint(out, "Delivery Throughput: {} msg/sec", formattedDeliveryThroughput);
+        if (config.ratePerSecond > 0) {
+            // Falling short of the target means the clients could not keep the schedule; the latencies still
+            // include the lateness, but the server was offered less load than intended.
+            logOrPrint(out, "Load Model: open loop (latency from intended send time)");
+            logOrPrint(out, "Target Send Rate: {} msg/sec", String.format("%.2f", config.ratePerSecond * config.concurrency));
+            logOrPrint(out, "Achieved Send Rate: {} msg/sec", String.format("%.2f", run.sent / (double) duration));
+        } else {
+            logOrPrint(out, "Load Model: closed loop");
+        }
         logOrPrint(out, "---------------------------------------------------------");
         logOrPrint(out, "Latency (microseconds):");
         logOrPrint(out, "  min:      {}", TimeUnit.NANOSECONDS.toMicros(histogram.getMinValue()));
@@ -174,6 +366,17 @@ public class Main {
         logOrPrint(out, "  p99.9:    {}", TimeUnit.NANOSECONDS.toMicros(histogram.getValueAtPercentile(99.9)));
         logOrPrint(out, "  max:      {}", TimeUnit.NANOSECONDS.toMicros(histogram.getMaxValue()));
         logOrPrint(out, "---------------------------------------------------------");
+        Histogram fanOut = run.latencyLog.fanOutTotal();
+        if (fanOut.getTotalCount() > 0 || run.tracker.incomplete() > 0) {
+            // One line, so that scripts parsing the per-recipient percentiles above are not confused.
+            logOrPrint(out, "Fan-out Completion (microseconds): p50={} p99={} p99.9={} max={}",
+                    TimeUnit.NANOSECONDS.toMicros(fanOut.getValueAtPercentile(50)),
+                    TimeUnit.NANOSECONDS.toMicros(fanOut.getValueAtPercentile(99)),
+                    TimeUnit.NANOSECONDS.toMicros(fanOut.getValueAtPercentile(99.9)),
+                    TimeUnit.NANOSECONDS.toMicros(fanOut.getMaxValue()));
+            logOrPrint(out, "Incomplete Fan-outs: {} (not received by every client within 10 seconds)", run.tracker.incomplete());
+            logOrPrint(out, "---------------------------------------------------------");
+        }
     }
 
     /**
@@ -204,5 +407,114 @@ public class Main {
         int concurrency;
         int durationSeconds;
         boolean quietMode = false; // Defaults to verbose logging
+        String mode = "chat"; // Defaults to the BidiChat broadcast workload
+        boolean coalesced = false; // Defaults to the per-message BidiChat RPC
+        int protoVersion = 1; // Defaults to the original ChatMessage schema; coalescing is only available in v1
+        int batchSize = 0; // Zero sends one message per frame; batching is only available in v1
+        double ratePerSecond = 0; // Zero runs closed loop; otherwise the messages per second sent by each client
+        String hlogPath = null; // No interval log unless requested
+        int logIntervalSeconds = 1; // The length of each latency interval
+        boolean virtualThreads = false; // Defaults to one platform thread per virtual user
+        int channels = 0; // Zero gives every virtual user its own channel
+        int payloadSize = 0; // Bytes appended to every chat message after its id and send time
+        boolean sweep = false; // Runs once per combination of the lists below instead of once
+        List<Integer> payloadSizes; // Swept payload sizes, defaulting to 16 B to 64 KB
+        List<Integer> clientCounts; // Swept concurrencies, defaulting to the positional concurrency
+        List<Double> rates; // Swept per-client rates, defaulting to the '--rate' value
+
+        /**
+         * Fills in the default sweep lists and checks them.
+         *
+         * @return False if the sweep options are inconsistent.
+         */
+        boolean completeSweep() {
+            if (!sweep) {
+                return payloadSizes == null && clientCounts == null && rates == null;
+            }
+            if (payloadSizes == null) {
+                payloadSizes = List.of(16, 256, 4096, 65536);
+            }
+            if (clientCounts == null) {
+                clientCounts = List.of(concurrency);
+            }
+            if (rates == null) {
+                rates = List.of(ratePerSecond);
+            }
+            // Sweeps measure chat fan-out, and one interval log per cell is left to single runs.
+            return "chat".equals(mode) && hlogPath == null
+                    && payloadSizes.stream().allMatch(size -> size >= 0)
+                    && clientCounts.stream().allMatch(clients -> clients > 0)
+                    && rates.stream().allMatch(rate -> rate >= 0);
+        }
+
+        /**
+         * @return A copy of this configuration for a single run of a sweep, which does not log its own progress.
+         */
+        BenchmarkConfig cell(int cellPayloadSize, int cellConcurrency, double cellRate) {
+            BenchmarkConfig cell = new BenchmarkConfig();
+            cell.host = host;
+            cell.port = port;
+            cell.concurrency = cellConcurrency;
+            cell.durationSeconds = durationSeconds;
+            cell.quietMode = true;
+            cell.mode = mode;
+            cell.coalesced = coalesced;
+            cell.protoVersion = protoVersion;
+            cell.batchSize = batchSize;
+            cell.ratePerSecond = cellRate;
+            cell.logIntervalSeconds = logIntervalSeconds;
+            cell.virtualThreads = virtualThreads;
+            cell.channels = channels;
+            cell.payloadSize = cellPayloadSize;
+            return cell;
+        }
+
+        boolean hasSingleRpc() {
+            if (!"chat".equals(mode)) {
+                // The chat variants do not apply to the echo and ticker workloads.
+                return !coalesced && protoVersion == 1 && batchSize == 0;
+            }
+            int selected = (coalesced ? 1 : 0) + (protoVersion == 2 ? 1 : 0) + (batchSize > 0 ? 1 : 0);
+            return selected <= 1 && batchSize >= 0;
+        }
+
+        int channelCount() {
+            return channels > 0 ? Math.min(channels, concurrency) : concurrency;
+        }
+
+        String rpcName() {
+            if ("echo".equals(mode)) {
+                return "Echo";
+            }
+            if ("ticker".equals(mode)) {
+                return "Ticker";
+            }
+            if (batchSize > 0) {
+                return "BidiChatBatch";
+            }
+            if (protoVersion == 2) {
+                return "BidiChatV2";
+            }
+            return coalesced ? "BidiChatCoalesced" : "BidiChat";
+        }
+    }
+
+    /**
+     * The measurements of one benchmark run.
+     */
+    private static class BenchmarkRun {
+        final LatencyLog latencyLog;
+        final FanOutTracker tracker;
+        final long timeouts;
+        final long delivered;
+        final long sent;
+
+        BenchmarkRun(LatencyLog latencyLog, FanOutTracker tracker, long timeouts, long delivered, long sent) {
+            this.latencyLog = latencyLog;
+            this.tracker = tracker;
+            this.timeouts = timeouts;
+            this.delivered = delivered;
+            this.sent = sent;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,90 @@
+package com.apenlor.lab.benchmark;
+
+import com.apenlor.lab.grpc.LabServiceGrpc;
+import com.apenlor.lab.grpc.TickerRequest;
+import com.apenlor.lab.grpc.TickerUpdate;
+import io.grpc.Context;
+import io.grpc.ManagedChannel;
+import io.grpc.stub.StreamObserver;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Represents a single virtual user of the server-streaming Ticker benchmark, the gRPC counterpart of the k6 SSE test.
+ * Each instance of this task holds one Ticker stream open for the whole run and records the delay between the
+ * server-side timestamp of each update and its arrival. Client and server must share a clock, which holds when both
+ * run on the same host.
+ */
+public class TickerClientTask implements Runnable {
+    private static final Logger logger = LoggerFactory.getLogger(TickerClientTask.class);
+
+    private final int clientId;
+    private final LabServiceGrpc.LabServiceStub asyncStub;
+    private final Recorder recorder;
+    private final CountDownLatch startLatch;
+    private final CountDownLatch finishLatch;
+    private final AtomicLong deliveredCounter;
+
+    public TickerClientTask(int clientId, ManagedChannel channel, Recorder recorder, CountDownLatch startLatch, CountDownLatch finishLatch,
+                            AtomicLong deliveredCounter) {
+        this.clientId = clientId;
+        this.asyncStub = LabServiceGrpc.newStub(channel);
+        this.recorder = recorder;
+        this.startLatch = startLatch;
+        this.finishLatch = finishLatch;
+        this.deliveredCounter = deliveredCounter;
+    }
+
+    @Override
+    public void run() {
+        Context.CancellableContext callContext = Context.current().withCancellation();
+        try {
+            // Wait for the main thread to give the "start" signal.
+            startLatch.await();
+
+            // The stream is bound to this context, so cancelling it closes the stream but not the shared channel.
+            callContext.run(() -> asyncStub.ticker(TickerRequest.getDefaultInstance(), new StreamObserver<>() {
+                @Override
+                public void onNext(TickerUpdate update) {
+                    deliveredCounter.incrementAndGet();
+                    try {
+                        long lagNanos = Duration.between(Instant.parse(update.getTimestamp()), Instant.now()).toNanos();
+                        // Clock adjustments can make the lag negative; those samples are clamped to zero.
+                        recorder.recordValue(Math.max(0, lagNanos));
+                    } catch (DateTimeParseException e) {
+                        logger.warn("Client {} received an update with an invalid timestamp: {}", clientId, update.getTimestamp());
+                    }
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    // Errors are expected during forceful shutdown
+                }
+
+                @Override
+                public void onCompleted() {
+                    // Do nothing
+                }
+            }));
+
+            // Hold the stream open until the main thread interrupts us.
+            new CountDownLatch(1).await();
+
+        } catch (InterruptedException e) {
+            // This is the expected way to exit when the main thread stops us.
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("Client {} failed with an unexpected error", clientId, e);
+        } finally {
+            callContext.cancel(null); // Close the stream; the channel is closed by the main thread.
+            finishLatch.countDown(); // Signal to the main thread that this task is finished.
+        }
+    }
+}
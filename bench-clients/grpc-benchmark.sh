@@ -6,12 +6,26 @@
 # This script builds and runs our custom, multi-threaded Java gRPC benchmark
 # client. It is designed to produce a high-fidelity load against the
 # stateful BidiChat service and measure end-to-end broadcast latency.
+# GRPC_MODE selects the unary Echo or server-streaming Ticker workload
+# instead, for comparison with the REST and SSE benchmarks.
 #
 # Usage:
 #   ./bench-clients/grpc-benchmark.sh <service_name>
 #
 # Parameters:
 #   service_name: The target service container [server-jvm, server-native].
+#
+# Environment overrides:
+#   GRPC_MODE  Workload to run: chat, echo or ticker (default: chat).
+#   GRPC_RATE  Messages per second sent by each client in open-loop mode, with
+#              latency measured from the intended send time. Zero keeps the
+#              closed loop (default: 0). Not available in ticker mode.
+#   GRPC_VIRTUAL_THREADS  Run the virtual users on virtual threads: true or
+#              false (default: false).
+#   GRPC_CHANNELS  Number of channels (HTTP/2 connections) shared by all the
+#              streams. Zero opens one channel per virtual user (default: 0).
+#   GRPC_HLOG  File receiving an HdrHistogram interval log of the latencies,
+#              one histogram per second (default: none).
 # ==============================================================================
 
 # --- Strict mode ---
@@ -40,6 +54,11 @@ TARGET_SERVICE=$1
 # --- Configuration ---
 : "${CONCURRENCY:=50}"
 : "${DURATION_SECONDS:=30}"
+: "${GRPC_MODE:=chat}"
+: "${GRPC_RATE:=0}"
+: "${GRPC_VIRTUAL_THREADS:=false}"
+: "${GRPC_CHANNELS:=0}"
+: "${GRPC_HLOG:=}"
 
 BENCHMARK_PROJECT_DIR="$( cd -- "$( dirname -- "${BASH_SOURCE[0]}" )" &> /dev/null && pwd )/grpc-bench-client"
 JAR_NAME_PATTERN="grpc-bench-client-*.jar"
@@ -66,14 +85,19 @@ TARGET_SERVICE_UPPER=$(echo "$TARGET_SERVICE" | tr '[:lower:]' '[:upper:]')
 
 echo "============================================================"
 echo " Preparing Custom gRPC Benchmark for: ${TARGET_SERVICE_UPPER}"
+echo " Mode:           $GRPC_MODE"
+echo " Rate:           $GRPC_RATE msg/sec per client (0 = closed loop)"
 echo " Concurrency:    $CONCURRENCY"
+echo " Channels:       $GRPC_CHANNELS (0 = one per virtual user)"
+echo " Virtual thr.:   $GRPC_VIRTUAL_THREADS"
 echo " Duration:       $DURATION_SECONDS seconds"
 echo "============================================================"
 echo
 
 # --- Build ---
 echo "Building benchmark client JAR..."
-(cd "$BENCHMARK_PROJECT_DIR" && ./mvnw clean package -q -DskipTests)
+# The client bundles the shared bench-common module, which has to be installed first.
+(cd "$BENCHMARK_PROJECT_DIR" && ./mvnw install -q -DskipTests -f ../bench-common/pom.xml && ./mvnw clean package -q -DskipTests)
 echo "Build complete."
 echo
 
@@ -101,8 +125,16 @@ if [ -t 1 ]; then
     trap 'kill $SPINNER_PID 2>/dev/null; echo -en "\r\033[K" > /dev/tty' EXIT
 fi
 
+EXTRA_ARGS=()
+if [ -n "$GRPC_HLOG" ]; then
+    EXTRA_ARGS+=(--hlog="$GRPC_HLOG")
+fi
+if [ "$GRPC_VIRTUAL_THREADS" = "true" ]; then
+    EXTRA_ARGS+=(--virtual-threads)
+fi
+
 # The Java application's output (the clean summary) goes to standard output.
-java -jar "$JAR_PATH" --quiet "$TARGET_HOST" "$TARGET_PORT" "$CONCURRENCY" "$DURATION_SECONDS"
+java -jar "$JAR_PATH" --quiet --mode="$GRPC_MODE" --rate="$GRPC_RATE" --channels="$GRPC_CHANNELS" "${EXTRA_ARGS[@]}" "$TARGET_HOST" "$TARGET_PORT" "$CONCURRENCY" "$DURATION_SECONDS"
 
 # Cleanly stop the spinner if it was started.
 if [ -n "${SPINNER_PID:-}" ]; then
@@ -0,0 +1,77 @@
+#!/bin/bash
+
+# ==============================================================================
+# gRPC Chat Fan-out Sweep
+#
+# Runs the custom gRPC benchmark client in sweep mode against BidiChat: one
+# run per combination of payload size, number of clients and per-client send
+# rate. Every run reports its send and delivery rates, per-recipient latency
+# percentiles, fan-out completion p99, timeouts and incomplete fan-outs, as one
+# row of a results table. Reading down the table shows where the cost of
+# fanning out grows faster than the number of recipients.
+#
+# Usage:
+#   ./bench-clients/grpc-sweep-benchmark.sh <service_name>
+#
+# Parameters:
+#   service_name: The target service container [server-jvm, server-native].
+#
+# Environment overrides:
+#   SWEEP_PAYLOAD_SIZES  Comma-separated payload sizes in bytes
+#                        (default: 16,256,4096,65536).
+#   SWEEP_CLIENTS        Comma-separated numbers of clients (default: 10,50,100,200).
+#   SWEEP_RATES          Comma-separated messages per second per client; 0 runs
+#                        closed loop (default: 0,10).
+#   DURATION_SECONDS     Duration of each run (default: 15).
+# ==============================================================================
+
+set -euo pipefail
+
+if [ -z "${1:-}" ]; then
+    echo "Error: No target service name provided." >&2
+    echo "Usage: ./bench-clients/grpc-sweep-benchmark.sh <server-jvm|server-native>" >&2
+    exit 1
+fi
+TARGET_SERVICE=$1
+
+: "${SWEEP_PAYLOAD_SIZES:=16,256,4096,65536}"
+: "${SWEEP_CLIENTS:=10,50,100,200}"
+: "${SWEEP_RATES:=0,10}"
+: "${DURATION_SECONDS:=15}"
+
+case "$TARGET_SERVICE" in
+  server-jvm)
+    TARGET_PORT="9001"
+    ;;
+  server-native)
+    TARGET_PORT="9002"
+    ;;
+  *)
+    echo "Error: Invalid service specified. Please use 'server-jvm' or 'server-native'." >&2
+    exit 1
+    ;;
+esac
+
+BENCHMARK_PROJECT_DIR="$( cd -- "$( dirname -- "${BASH_SOURCE[0]}" )" &> /dev/null && pwd )/grpc-bench-client"
+
+echo "============================================================"
+echo " gRPC chat fan-out sweep: ${TARGET_SERVICE}"
+echo " Payload sizes:  ${SWEEP_PAYLOAD_SIZES} bytes"
+echo " Clients:        ${SWEEP_CLIENTS}"
+echo " Rates:          ${SWEEP_RATES} msg/sec per client (0 = closed loop)"
+echo " Duration:       ${DURATION_SECONDS}s per run"
+echo "============================================================"
+
+echo "Building benchmark client JAR..."
+# The client bundles the shared bench-common module, which has to be installed first.
+(cd "$BENCHMARK_PROJECT_DIR" && ./mvnw install -q -DskipTests -f ../bench-common/pom.xml && ./mvnw clean package -q -DskipTests)
+
+JAR_PATH=$(find "${BENCHMARK_PROJECT_DIR}/target" -name "grpc-bench-client-*.jar" -not -name "original-*.jar")
+if [ ! -f "$JAR_PATH" ]; then
+    echo "Error: Benchmark JAR not found in ${BENCHMARK_PROJECT_DIR}/target after build." >&2
+    exit 1
+fi
+
+# The concurrency argument is required but superseded by the swept client counts.
+java -jar "$JAR_PATH" --quiet --sweep --payload-sizes="$SWEEP_PAYLOAD_SIZES" --clients="$SWEEP_CLIENTS" \
+    --rates="$SWEEP_RATES" localhost "$TARGET_PORT" 1 "$DURATION_SECONDS"
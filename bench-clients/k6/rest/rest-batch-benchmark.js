@@ -0,0 +1,106 @@
+/*global __ENV */
+// Informs the linter that `__ENV` is a global variable provided by the k6 runtime.
+
+import { check } from 'k6';
+import http from 'k6/http';
+import { Counter, Trend } from 'k6/metrics';
+
+// --- Custom k6 Metrics ---
+const failedRequests = new Counter('failed_requests');
+
+// --- Test Configuration ---
+// Read the target URL from an environment variable passed by the runner script.
+const targetUrl = __ENV.TARGET_URL;
+// Number of messages sent per request by the batch and stream modes.
+const batchSize = parseInt(__ENV.BATCH_SIZE || '100', 10);
+const vus = parseInt(__ENV.VUS || '50', 10);
+// rest-batch-benchmark.sh divides each mode's message count by this duration; keep them in sync.
+const scenarioSeconds = parseInt(__ENV.SCENARIO_SECONDS || '30', 10);
+const pauseSeconds = 5;
+
+// The matrix: one message per request, a JSON array per request, and NDJSON lines per request.
+const modes = {
+    'single': { path: '', contentType: 'application/json' },
+    'batch': { path: '/batch', contentType: 'application/json' },
+    'stream': { path: '/stream', contentType: 'application/x-ndjson' },
+};
+
+// Per-mode metrics, named explicitly so that each mode appears on its own line in the summary.
+const modeLatency = {};
+const modeMessages = {};
+for (const mode of Object.keys(modes)) {
+    modeLatency[mode] = new Trend(`echo_latency_${mode}`, true);
+    modeMessages[mode] = new Counter(`echo_messages_${mode}`);
+}
+
+const scenarios = {};
+Object.keys(modes).forEach((mode, index) => {
+    scenarios[mode] = {
+        executor: 'constant-vus',
+        vus: vus,
+        duration: `${scenarioSeconds}s`,
+        startTime: `${index * (scenarioSeconds + pauseSeconds)}s`,
+        tags: { mode: mode },
+        env: { MODE: mode },
+    };
+});
+
+export const options = {
+    scenarios: scenarios,
+    thresholds: {
+        // The test fails if more than 0.1% of requests fail.
+        'http_req_failed': ['rate<0.001'],
+    },
+};
+
+// Request bodies are built once per VU; the server does the same work regardless.
+const messages = Array.from({ length: batchSize }, (_, i) => ({ message: `Hello from k6 #${i}!` }));
+const bodies = {
+    'single': JSON.stringify(messages[0]),
+    'batch': JSON.stringify(messages),
+    'stream': messages.map((m) => JSON.stringify(m)).join('\n') + '\n',
+};
+
+// Counts the messages echoed back in a response body.
+function countEchoed(mode, res) {
+    if (mode === 'single') {
+        return res.json('message') === messages[0].message ? 1 : 0;
+    }
+    if (mode === 'batch') {
+        return res.json().length;
+    }
+    return res.body.split('\n').filter((line) => line.length > 0).length;
+}
+
+// --- Main k6 Virtual User Function ---
+export default function () {
+    if (!targetUrl) {
+        failedRequests.add(1);
+        console.error("FATAL: TARGET_URL environment variable was not provided to the k6 script.");
+        return;
+    }
+
+    const mode = __ENV.MODE;
+    const res = http.post(`${targetUrl}${modes[mode].path}`, bodies[mode], {
+        headers: { 'Content-Type': modes[mode].contentType },
+    });
+    modeLatency[mode].add(res.timings.duration);
+
+    let echoed = 0;
+    try {
+        echoed = res.status === 200 ? countEchoed(mode, res) : 0;
+    } catch (e) {
+        echoed = 0; // json() will throw an error if the body is not valid JSON
+    }
+    modeMessages[mode].add(echoed);
+
+    const expected = mode === 'single' ? 1 : batchSize;
+    const success = check(res, {
+        'status is 200': (r) => r.status === 200,
+        'every message is echoed': () => echoed === expected,
+    });
+
+    if (!success) {
+        failedRequests.add(1);
+    }
+}
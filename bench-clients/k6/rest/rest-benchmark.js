@@ -3,7 +3,7 @@
 
 import { check } from 'k6';
 import http from 'k6/http';
-import { Counter } from 'k6/metrics';
+import { Counter, Trend } from 'k6/metrics';
 
 // --- Custom k6 Metrics ---
 const failedRequests = new Counter('failed_requests');
@@ -11,12 +11,74 @@ const failedRequests = new Counter('failed_requests');
 // --- Test Configuration ---
 // Read the target URL from an environment variable passed by the runner script.
 const targetUrl = __ENV.TARGET_URL;
+// The execution-model variants live next to /echo, under a path prefix per model.
+const baseUrl = targetUrl ? targetUrl.replace(/\/echo$/, '') : '';
+
+// Every model and format runs the same load profile, one after the other, so they never compete for the server.
+// collect-results.sh divides each scenario's request count by this duration; keep them in sync.
+const stages = [
+    { duration: '20s', target: 100 }, // 1. Ramp up to 100 concurrent VUs over 20 seconds.
+    { duration: '40s', target: 100 }, // 2. Hold the load for 40 seconds.
+    { duration: '10s', target: 0 },   // 3. Ramp down.
+];
+const scenarioSeconds = 70;
+const pauseSeconds = 5;
+
+// The matrix: 'default' is the original /echo endpoint, where Quarkus picks the execution model.
+const models = {
+    'default': '/echo',
+    'event-loop': '/event-loop/echo',
+    'worker': '/worker/echo',
+    'virtual-thread': '/virtual-thread/echo',
+};
+
+// The same message encoded in every binary format /echo negotiates, so only serialization differs from 'default'.
+// The encoders only cover what this payload needs: one short ASCII string field.
+const message = 'Hello from k6!';
+const ascii = (text) => Array.from(text, (c) => c.charCodeAt(0));
+const formats = {
+    // EchoMessage in echo.proto: field 1 (message), wire type 2, followed by its length.
+    'protobuf': { contentType: 'application/x-protobuf', body: [0x0a, message.length, ...ascii(message)] },
+    // A one-entry map whose key and value are short text strings (major type 3).
+    'cbor': {
+        contentType: 'application/cbor',
+        body: [0xa1, 0x60 + 'message'.length, ...ascii('message'), 0x60 + message.length, ...ascii(message)],
+    },
+    // The ':)\n' header with shared names enabled, then an object with a short ASCII key and value.
+    'smile': {
+        contentType: 'application/x-jackson-smile',
+        body: [0x3a, 0x29, 0x0a, 0x01, 0xfa, 0x80 + 'message'.length - 1, ...ascii('message'),
+            0x40 + message.length - 1, ...ascii(message), 0xfb],
+    },
+};
+
+// Per-scenario metrics. k6 reports submetrics inconsistently across versions, so each model and format gets its
+// own metric names, which always appear as separate lines in the end-of-test summary.
+const metricName = (name) => name.replace(/-/g, '_');
+const scenarioNames = [...Object.keys(models), ...Object.keys(formats)];
+const scenarioLatency = {};
+const scenarioRequests = {};
+for (const name of scenarioNames) {
+    scenarioLatency[name] = new Trend(`rest_latency_${metricName(name)}`, true);
+    scenarioRequests[name] = new Counter(`rest_requests_${metricName(name)}`);
+}
+
+const scenarios = {};
+scenarioNames.forEach((name, index) => {
+    const isFormat = name in formats;
+    scenarios[metricName(name)] = {
+        executor: 'ramping-vus',
+        startVUs: 0,
+        stages: stages,
+        gracefulRampDown: '5s',
+        startTime: `${index * (scenarioSeconds + pauseSeconds)}s`,
+        tags: isFormat ? { format: name } : { model: name },
+        env: isFormat ? { FORMAT: name } : { MODEL: name },
+    };
+});
+
 export const options = {
-    stages: [
-        { duration: '20s', target: 100 }, // 1. Ramp up to 100 concurrent VUs over 20 seconds.
-        { duration: '40s', target: 100 }, // 2. Hold the load for 40 seconds.
-        { duration: '10s', target: 0 },   // 3. Ramp down.
-    ],
+    scenarios: scenarios,
     thresholds: {
         // The test fails if more than 0.1% of requests fail.
         'http_req_failed': ['rate<0.001'],
@@ -33,9 +95,18 @@ export default function () {
         return;
     }
 
+    if (__ENV.FORMAT) {
+        echoBinary(__ENV.FORMAT);
+    } else {
+        echoJson(__ENV.MODEL);
+    }
+}
+
+// Posts the JSON payload to the endpoint of an execution model.
+function echoJson(model) {
     const payload = JSON.stringify({
         // The server DTO "EchoMessage.java" expects the key "message".
-        message: 'Hello from k6!',
+        message: message,
     });
 
     const params = {
@@ -44,14 +115,16 @@ export default function () {
         },
     };
 
-    const res = http.post(targetUrl, payload, params);
+    const res = http.post(`${baseUrl}${models[model]}`, payload, params);
+    scenarioLatency[model].add(res.timings.duration);
+    scenarioRequests[model].add(1);
 
     const success = check(res, {
         'status is 200': (r) => r.status === 200,
         'response body contains echoed message': (r) => {
             try {
                 // Ensure the echoed message in the JSON response matches what was sent.
-                return r.json('message') === 'Hello from k6!';
+                return r.json('message') === message;
             } catch (e) {
                 return false; // json() will throw an error if the body is not valid JSON
             }
@@ -61,4 +134,31 @@ export default function () {
     if (!success) {
         failedRequests.add(1);
     }
-}
\ No newline at end of file
+}
+
+// Posts the pre-encoded payload of a binary format to /echo and asks for the same format back.
+function echoBinary(format) {
+    const { contentType, body } = formats[format];
+    const params = {
+        headers: {
+            'Content-Type': contentType,
+            'Accept': contentType,
+        },
+        responseType: 'binary',
+    };
+
+    const res = http.post(`${baseUrl}/echo`, new Uint8Array(body).buffer, params);
+    scenarioLatency[format].add(res.timings.duration);
+    scenarioRequests[format].add(1);
+
+    const success = check(res, {
+        'status is 200': (r) => r.status === 200,
+        'response is in the requested format': (r) => (r.headers['Content-Type'] || '').startsWith(contentType),
+        // The echo carries the message and a timestamp, so it is always longer than the request.
+        'response body contains the echo': (r) => r.body !== null && r.body.byteLength > body.length,
+    });
+
+    if (!success) {
+        failedRequests.add(1);
+    }
+}
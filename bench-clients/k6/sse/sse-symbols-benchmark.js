@@ -0,0 +1,101 @@
+/*global __ENV */
+// Directive for static analysis tools like Codacy/ESLint.
+// Informs the linter that `__ENV` is an expected global variable provided by the k6 runtime.
+
+import { check } from 'k6';
+import { Trend, Counter } from 'k6/metrics';
+import sse from 'k6/x/sse';
+
+// --- Custom k6 Metrics ---
+const failedConnections = new Counter('failed_connections');
+const symbolEventsReceived = new Counter('symbol_events_received');
+// Time between the server stamping an update and this client receiving it.
+const symbolEventLag = new Trend('symbol_event_lag', true);
+
+// --- Test Configuration ---
+// Read the target URL and the scenario shape from the environment passed by the runner script.
+const targetUrl = __ENV.TARGET_URL;
+const clients = parseInt(__ENV.CLIENTS || '100', 10);
+// Size of the symbol universe the clients pick from, starting at SYM0000.
+const symbolCount = parseInt(__ENV.SYMBOLS || '100', 10);
+// Number of distinct symbols each client subscribes to.
+const subscriptionsPerClient = Math.min(parseInt(__ENV.SUBSCRIPTIONS || '10', 10), symbolCount);
+const holdSeconds = parseInt(__ENV.HOLD_SECONDS || '30', 10);
+
+export const options = {
+    scenarios: {
+        symbols: {
+            executor: 'per-vu-iterations',
+            vus: clients,
+            iterations: 1,
+            maxDuration: `${holdSeconds + 30}s`,
+        },
+    },
+    thresholds: {
+        'failed_connections': ['count==0'], // The test fails if even one connection error occurs.
+    },
+};
+
+const symbolName = (index) => `SYM${String(index).padStart(4, '0')}`;
+
+// Picks `count` distinct random symbols out of the universe.
+function pickSymbols(count) {
+    const picked = new Set();
+    while (picked.size < count) {
+        picked.add(symbolName(Math.floor(Math.random() * symbolCount)));
+    }
+    return Array.from(picked);
+}
+
+// Main function that each VU will execute
+export default async function () {
+    if (!targetUrl) {
+        failedConnections.add(1);
+        console.error("FATAL: TARGET_URL environment variable was not provided to the k6 script.");
+        return;
+    }
+
+    const url = `${targetUrl}?symbols=${pickSymbols(subscriptionsPerClient).join(',')}`;
+
+    await new Promise((resolve) => {
+        let client;
+        try {
+            const response = sse.open(url, {}, function (c) {
+                client = c;
+
+                client.on('event', function (event) {
+                    symbolEventsReceived.add(1);
+                    try {
+                        symbolEventLag.add(Date.now() - Date.parse(JSON.parse(event.data).timestamp));
+                    } catch (e) {
+                        // Not a ticker update; only counted.
+                    }
+                });
+
+                client.on('error', function () {
+                    failedConnections.add(1);
+                });
+            });
+
+            if (!check(response, { 'handshake_status_is_200': (r) => r && r.status === 200 })) {
+                failedConnections.add(1);
+                return resolve();
+            }
+
+            setTimeout(() => {
+                if (client) {
+                    client.close();
+                }
+                resolve();
+            }, holdSeconds * 1000);
+
+        } catch (e) {
+            console.error(`An unexpected error occurred during setup: ${e}`);
+            failedConnections.add(1);
+            if (client) {
+                client.close();
+            }
+            resolve(); // Always resolve the promise to prevent a hanging iteration.
+        }
+    });
+}
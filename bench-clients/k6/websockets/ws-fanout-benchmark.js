@@ -0,0 +1,95 @@
+/*global __ENV, __VU */
+// Directive for static analysis tools like Codacy/ESLint.
+// Informs the linter that `__ENV` and `__VU` are expected globals provided by the k6 runtime.
+
+import { Counter, Trend } from 'k6/metrics';
+import ws from 'k6/ws';
+
+// --- Custom k6 Metrics ---
+// Counter for every broadcast message delivered to a listening session. This is the denominator
+// used by the runner script to compute the server CPU time spent per delivered message.
+const messagesDelivered = new Counter('fanout_messages_delivered');
+// Counter for the WebSocket frames received. With server-side coalescing enabled, one frame
+// carries several newline-separated messages.
+const framesDelivered = new Counter('fanout_frames_delivered');
+// Trend for the time between publishing a message and a listener receiving it.
+const deliveryLatency = new Trend('fanout_delivery_latency', true);
+// Counter for the messages published by the sender VUs.
+const messagesPublished = new Counter('fanout_messages_published');
+// Counter for any connections that fail to establish.
+const failedConnections = new Counter('failed_connections');
+
+// --- Test Configuration ---
+// All parameters are read from environment variables passed by the runner script.
+const targetUrl = __ENV.TARGET_URL;
+const sessions = parseInt(__ENV.SESSIONS || '10', 10);
+const senders = parseInt(__ENV.SENDERS || '1', 10);
+const sendIntervalMs = parseInt(__ENV.SEND_INTERVAL_MS || '100', 10);
+const warmupSeconds = parseInt(__ENV.WARMUP_SECONDS || '5', 10);
+const holdSeconds = parseInt(__ENV.HOLD_SECONDS || '30', 10);
+
+export const options = {
+    scenarios: {
+        fanout: {
+            // Every VU holds exactly one session for the whole run, so the room size is fixed at SESSIONS.
+            executor: 'per-vu-iterations',
+            vus: sessions,
+            iterations: 1,
+            maxDuration: `${warmupSeconds + holdSeconds + 30}s`,
+        },
+    },
+    thresholds: {
+        'failed_connections': ['count==0'],
+    },
+};
+
+// --- Main k6 Virtual User Function ---
+export default function () {
+    if (!targetUrl) {
+        failedConnections.add(1);
+        console.error("FATAL: TARGET_URL environment variable was not provided to the k6 script.");
+        return;
+    }
+
+    const isSender = __VU <= senders;
+
+    const res = ws.connect(targetUrl, {}, function (socket) {
+        socket.on('open', () => {
+            if (isSender) {
+                // Give every listener time to join before publishing, so each message fans out to the full room.
+                socket.setTimeout(() => {
+                    socket.setInterval(() => {
+                        socket.send(`fanout ${new Date().getTime()}`);
+                        messagesPublished.add(1);
+                    }, sendIntervalMs);
+                }, warmupSeconds * 1000);
+            }
+        });
+
+        socket.on('message', (data) => {
+            framesDelivered.add(1);
+            const receivedAt = new Date().getTime();
+            // A coalesced frame carries one message per line, each with its publish time.
+            for (const message of data.split('\n')) {
+                messagesDelivered.add(1);
+                const sentAt = parseInt(message.substring(message.indexOf(' ') + 1), 10);
+                if (!isNaN(sentAt)) {
+                    deliveryLatency.add(receivedAt - sentAt);
+                }
+            }
+        });
+
+        socket.on('error', (e) => {
+            failedConnections.add(1);
+            console.error(`An unexpected WebSocket error occurred: ${e.error()}`);
+        });
+
+        socket.setTimeout(() => {
+            socket.close();
+        }, (warmupSeconds + holdSeconds) * 1000);
+    });
+
+    if (!res || res.status !== 101) {
+        failedConnections.add(1);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,92 @@
+#!/bin/bash
+
+# ==============================================================================
+# REST Batch Echo Benchmark
+#
+# This script compares the message throughput of the three echo endpoints:
+# one message per request (POST /echo), a JSON array per request
+# (POST /echo/batch) and newline-delimited JSON per request (POST /echo/stream).
+#
+# The modes run one after the other with the same number of VUs. For each mode
+# the number of echoed messages is divided by the scenario duration, together
+# with the p95 latency of a single request.
+#
+# Usage:
+#   ./bench-clients/rest-batch-benchmark.sh <service_name>
+#
+# Parameters:
+#   service_name: The target service container [server-jvm, server-native].
+#
+# Environment overrides:
+#   BATCH_SIZE        Messages per batch or stream request (default: 100).
+#   VUS               Concurrent virtual users per mode (default: 50).
+#   SCENARIO_SECONDS  Duration of each mode (default: 30).
+# ==============================================================================
+
+# --- Strict mode ---
+set -euo pipefail
+
+# --- Argument validation ---
+if [ -z "${1:-}" ]; then
+    echo "Error: No target service name provided." >&2
+    echo "Usage: ./bench-clients/rest-batch-benchmark.sh <server-jvm|server-native>" >&2
+    exit 1
+fi
+TARGET_SERVICE=$1
+
+case "$TARGET_SERVICE" in
+  server-jvm|server-native) ;;
+  *)
+    echo "Error: Invalid service specified. Please use 'server-jvm' or 'server-native'." >&2
+    exit 1
+    ;;
+esac
+
+# --- Configuration ---
+: "${BATCH_SIZE:=100}"
+: "${VUS:=50}"
+: "${SCENARIO_SECONDS:=30}"
+K6_IMAGE="grafana/k6:latest"
+TARGET_URL="http://${TARGET_SERVICE}:8080/echo"
+
+SCRIPT_DIR=$( cd -- "$( dirname -- "${BASH_SOURCE[0]}" )" &> /dev/null && pwd )
+MOUNT_DIR="${SCRIPT_DIR}/k6/rest"
+SCRIPT_NAME="rest-batch-benchmark.js"
+
+NETWORK_NAME=$(docker inspect --format '{{range $k, $v := .NetworkSettings.Networks}}{{$k}}{{end}}' "${TARGET_SERVICE}" 2>/dev/null || true)
+if [ -z "$NETWORK_NAME" ]; then
+    echo "Error: Could not find a network for container '${TARGET_SERVICE}'." >&2
+    echo "Is the service running?" >&2
+    exit 1
+fi
+
+TARGET_SERVICE_UPPER=$(echo "$TARGET_SERVICE" | tr '[:lower:]' '[:upper:]')
+
+echo "============================================================"
+echo " REST Batch Echo Benchmark for: ${TARGET_SERVICE_UPPER}"
+echo " Batch size:     ${BATCH_SIZE} messages"
+echo " Load:           ${VUS} VUs for ${SCENARIO_SECONDS} seconds per mode"
+echo "============================================================"
+echo
+
+k6_output=$(docker run --rm -i \
+  --network="${NETWORK_NAME}" \
+  -v "${MOUNT_DIR}:/scripts" \
+  -e TARGET_URL="${TARGET_URL}" \
+  -e BATCH_SIZE="${BATCH_SIZE}" \
+  -e VUS="${VUS}" \
+  -e SCENARIO_SECONDS="${SCENARIO_SECONDS}" \
+  "${K6_IMAGE}" \
+  run --quiet "/scripts/${SCRIPT_NAME}")
+
+echo "-------------------- Batch Echo Results --------------------"
+printf "%-8s %14s %12s %12s\n" "mode" "messages" "msg_per_s" "p95_latency"
+for mode in single batch stream; do
+    messages=$(echo "${k6_output}" | grep "echo_messages_${mode}" | awk '{print $2}')
+    messages=${messages:-0}
+    rate=$(awk "BEGIN {printf \"%.1f\", ${messages} / ${SCENARIO_SECONDS}}")
+    p95=$(echo "${k6_output}" | grep "echo_latency_${mode}" | grep -o 'p(95)=[^ ]*' | cut -d'=' -f2)
+    p95=${p95:-n/a}
+    printf "%-8s %14s %12s %12s\n" "${mode}" "${messages}" "${rate}" "${p95}"
+done
+echo "------------------------------------------------------------"
@@ -0,0 +1,144 @@
+package com.apenlor.lab.benchmark.sse;
+
+import org.HdrHistogram.Recorder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A single SSE connection to the ticker endpoint.
+ * <p>
+ * Unlike the gRPC and WebSocket virtual users, a stream owns no thread. The response body is consumed line by line by
+ * the non-blocking {@link HttpClient}, which multiplexes all of its connections over one selector, so a single
+ * process can hold tens of thousands of streams.
+ * </p>
+ * <p>
+ * Every {@code data:} line carries the ISO-8601 {@code timestamp} at which the server generated the update. Its
+ * delivery lag, the time between that timestamp and the arrival of the line, is recorded in nanoseconds. Both are
+ * wall-clock times, so the client must run on the same host as the server or on one with a synchronized clock.
+ * </p>
+ */
+public class EventStream implements Flow.Subscriber<String> {
+    private static final String DATA_PREFIX = "data:";
+    private static final String TIMESTAMP_FIELD = "\"timestamp\":\"";
+
+    private final HttpClient httpClient;
+    private final URI uri;
+    private final Recorder recorder;
+    private final AtomicLong eventCounter;
+    private final AtomicInteger openStreams;
+    private final AtomicInteger peakStreams;
+    private final AtomicLong failedCounter;
+    private final AtomicLong droppedCounter;
+
+    private volatile Flow.Subscription subscription;
+    private volatile boolean closed;
+    // Whether this stream was added to openStreams, and must therefore be removed from it when it ends.
+    private volatile boolean counted;
+
+    public EventStream(HttpClient httpClient, URI uri, Recorder recorder, AtomicLong eventCounter,
+                       AtomicInteger openStreams, AtomicInteger peakStreams, AtomicLong failedCounter,
+                       AtomicLong droppedCounter) {
+        this.httpClient = httpClient;
+        this.uri = uri;
+        this.recorder = recorder;
+        this.eventCounter = eventCounter;
+        this.openStreams = openStreams;
+        this.peakStreams = peakStreams;
+        this.failedCounter = failedCounter;
+        this.droppedCounter = droppedCounter;
+    }
+
+    /**
+     * Sends the request without waiting for the response. The stream counts as open once the server has answered
+     * with a 200 and the body has started.
+     */
+    public void open() {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Accept", "text/event-stream")
+                .GET()
+                .build();
+        httpClient.sendAsync(request, this::bodySubscriber).whenComplete((response, error) -> {
+            // A streaming response only completes once its body has ended, which onComplete and onError handle.
+            if (subscription == null && !closed) {
+                failedCounter.incrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Cancels the response body, which closes the connection.
+     */
+    public void close() {
+        closed = true;
+        Flow.Subscription current = subscription;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        if (closed) {
+            subscription.cancel();
+            return;
+        }
+        counted = true;
+        peakStreams.accumulateAndGet(openStreams.incrementAndGet(), Math::max);
+        // Lines are handled on the client's threads without blocking, so there is no reason to apply back-pressure.
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(String line) {
+        if (!line.startsWith(DATA_PREFIX)) {
+            return;
+        }
+        Instant received = Instant.now();
+        int start = line.indexOf(TIMESTAMP_FIELD, DATA_PREFIX.length());
+        if (start < 0) {
+            return;
+        }
+        start += TIMESTAMP_FIELD.length();
+        Instant timestamp = Instant.parse(line.subSequence(start, line.indexOf('"', start)));
+        recorder.recordValue(Math.max(0, Duration.between(timestamp, received).toNanos()));
+        eventCounter.incrementAndGet();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        ended();
+    }
+
+    @Override
+    public void onComplete() {
+        ended();
+    }
+
+    private void ended() {
+        if (!counted) {
+            // Cancelled as soon as it was subscribed, because the stream had already been closed.
+            return;
+        }
+        counted = false;
+        openStreams.decrementAndGet();
+        if (!closed) {
+            droppedCounter.incrementAndGet();
+        }
+    }
+
+    private HttpResponse.BodySubscriber<Void> bodySubscriber(HttpResponse.ResponseInfo info) {
+        if (info.statusCode() != 200) {
+            return HttpResponse.BodySubscribers.discarding();
+        }
+        return HttpResponse.BodySubscribers.fromLineSubscriber(this);
+    }
+}
@@ -0,0 +1,67 @@
+package com.apenlor.lab.benchmark.sse;
+
+import com.apenlor.lab.benchmark.common.LatencyLog;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * Collects the delivery lag recorded by every event stream, interval by interval, like the {@link LatencyLog} of
+ * the other bench clients. Each interval of the {@code .hlog} is preceded by a comment with the number of open
+ * streams.
+ * <p>
+ * Because connections are opened gradually, every interval is also checked against the lag SLO: the number of
+ * streams open during the first interval whose p99 lag exceeded it is the capacity this benchmark looks for.
+ * </p>
+ */
+public class LagLog extends LatencyLog {
+    private static final Logger logger = LoggerFactory.getLogger(LagLog.class);
+
+    private final IntSupplier openStreams;
+    private final long sloNanos;
+
+    // Guarded by this, like the intervals of the LatencyLog.
+    private int streams;
+    private int streamsAtSloBreach = -1;
+
+    /**
+     * @param hlogPath        The interval log to write, or null for none.
+     * @param intervalSeconds The length of each interval.
+     * @param quietMode       If true, the intervals are not logged.
+     * @param openStreams     The number of streams open at any time.
+     * @param sloNanos        The p99 lag an interval must not exceed, or zero for no SLO.
+     */
+    public LagLog(String hlogPath, int intervalSeconds, boolean quietMode, IntSupplier openStreams, long sloNanos) {
+        super("SSE delivery lag", hlogPath, intervalSeconds, quietMode);
+        this.openStreams = openStreams;
+        this.sloNanos = sloNanos;
+    }
+
+    /**
+     * @return The number of streams open during the first interval whose p99 lag exceeded the SLO, or -1 if none did.
+     */
+    public synchronized int streamsAtSloBreach() {
+        return streamsAtSloBreach;
+    }
+
+    @Override
+    protected String intervalEnded(Histogram interval) {
+        streams = openStreams.getAsInt();
+        if (sloNanos > 0 && streamsAtSloBreach < 0 && interval.getValueAtPercentile(99) > sloNanos) {
+            streamsAtSloBreach = streams;
+        }
+        return "open streams: " + streams;
+    }
+
+    @Override
+    protected void logInterval(Histogram interval) {
+        logger.info("Interval: {} streams, {} events, lag p50 {} us, p99 {} us, max {} us", streams,
+                interval.getTotalCount(),
+                TimeUnit.NANOSECONDS.toMicros(interval.getValueAtPercentile(50)),
+                TimeUnit.NANOSECONDS.toMicros(interval.getValueAtPercentile(99)),
+                TimeUnit.NANOSECONDS.toMicros(interval.getMaxValue()));
+    }
+}
@@ -0,0 +1,276 @@
+package com.apenlor.lab.benchmark.sse;
+
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The main entry point for the custom SSE benchmark client.
+ * <p>
+ * This application holds a configurable number of concurrent /stream/ticker connections from one process, to find
+ * how many streams a server can serve before their delivery lag exceeds the SLO. Connections are consumed with
+ * non-blocking I/O by {@link EventStream}, so their number is bounded by file descriptors and ports, not threads.
+ * <p>
+ * Streams are opened gradually at '--connect-rate=N' per second and then held for the given duration. The lag of
+ * every event is collected per interval by a {@link LagLog}, with the number of open streams at the time, and
+ * '--slo-ms=N' reports the number of streams open when the p99 lag first exceeded N milliseconds.
+ * '--symbols=LIST' subscribes to the symbol ticker instead of the plain one, and '--hlog=FILE' with
+ * '--log-interval=N' writes every interval histogram to an HdrHistogram interval log.
+ * <p>
+ * A single source address can only open about 28,000 connections to one server port, the size of the default
+ * ephemeral port range. '--local-addresses=LIST' spreads the streams over several source addresses, one HTTP client
+ * each, such as 127.0.0.1,127.0.0.2 on loopback.
+ */
+public class Main {
+    private static final Logger logger = LoggerFactory.getLogger(Main.class);
+
+    public static void main(String[] args) throws InterruptedException, FileNotFoundException, UnknownHostException {
+        final BenchmarkConfig config = parseArgs(args);
+        // If parsing fails, parseArgs will print the usage info and return null.
+        if (config == null) {
+            System.exit(1);
+        }
+
+        // All real-time progress logging is conditional
+        // This ensures a clean output when the --quiet flag is used, suitable for automated log parsing
+        if (!config.quietMode) {
+            logger.info("Starting SSE Benchmark with configuration:");
+            logger.info("Target: {}", config.uri());
+            logger.info("Connections: {}", config.connections);
+            logger.info("Connect rate: {} per second", config.connectRate);
+            logger.info("Hold: {} seconds", config.durationSeconds);
+            logger.info("Local addresses: {}", config.localAddresses.isEmpty() ? "default" : config.localAddresses);
+            if (config.sloMillis > 0) {
+                logger.info("Lag SLO: p99 <= {} ms", config.sloMillis);
+            }
+            if (config.hlogPath != null) {
+                logger.info("Interval log: {} (every {} seconds)", config.hlogPath, config.logIntervalSeconds);
+            }
+            logger.info("--------------------------------------------------");
+        }
+
+        final AtomicLong eventCounter = new AtomicLong(0);
+        final AtomicInteger openStreams = new AtomicInteger(0);
+        final AtomicInteger peakStreams = new AtomicInteger(0);
+        final AtomicLong failedCounter = new AtomicLong(0);
+        final AtomicLong droppedCounter = new AtomicLong(0);
+        final LagLog lagLog = new LagLog(config.hlogPath, config.logIntervalSeconds, config.quietMode,
+                openStreams::get, TimeUnit.MILLISECONDS.toNanos(config.sloMillis));
+
+        // Lines are parsed without blocking, so one thread per core handles the events of every stream.
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        List<HttpClient> httpClients = createClients(config, executor);
+        List<EventStream> streams = new ArrayList<>(config.connections);
+
+        lagLog.start();
+        long startNanos = System.nanoTime();
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / config.connectRate);
+        for (int i = 0; i < config.connections; i++) {
+            long waitNanos = startNanos + i * intervalNanos - System.nanoTime();
+            if (waitNanos > 0) {
+                LockSupport.parkNanos(waitNanos);
+            }
+            EventStream stream = new EventStream(httpClients.get(i % httpClients.size()), config.uri(),
+                    lagLog.recorder(), eventCounter, openStreams, peakStreams, failedCounter, droppedCounter);
+            streams.add(stream);
+            stream.open();
+        }
+        long rampNanos = System.nanoTime() - startNanos;
+        if (!config.quietMode) {
+            logger.info("All {} connections requested in {} ms, {} open. Holding for {} seconds...", config.connections,
+                    TimeUnit.NANOSECONDS.toMillis(rampNanos), openStreams.get(), config.durationSeconds);
+        }
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(config.durationSeconds));
+
+        if (!config.quietMode) {
+            logger.info("Time's up. Closing all streams...");
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        int streamsAtEnd = openStreams.get();
+        lagLog.stop();
+        streams.forEach(EventStream::close);
+        httpClients.forEach(HttpClient::shutdownNow);
+        executor.shutdownNow();
+
+        printResults(lagLog, eventCounter.get(), peakStreams.get(), streamsAtEnd, failedCounter.get(),
+                droppedCounter.get(), rampNanos, elapsedNanos, config);
+    }
+
+    /**
+     * Creates one HTTP client per local address, or a single one bound to the default address.
+     */
+    private static List<HttpClient> createClients(BenchmarkConfig config, ExecutorService executor) throws UnknownHostException {
+        List<HttpClient> httpClients = new ArrayList<>();
+        List<String> addresses = config.localAddresses.isEmpty() ? List.of("") : config.localAddresses;
+        for (String address : addresses) {
+            HttpClient.Builder builder = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .executor(executor);
+            if (!address.isEmpty()) {
+                builder.localAddress(InetAddress.getByName(address));
+            }
+            httpClients.add(builder.build());
+        }
+        return httpClients;
+    }
+
+    /**
+     * Parses command-line arguments into a structured config object.
+     * It supports a '--quiet' flag for suppressing verbose output, '--connect-rate=N', '--symbols=LIST',
+     * '--local-addresses=LIST', '--slo-ms=N', and '--hlog=FILE' with '--log-interval=N' for an interval log.
+     *
+     * @param args The command-line arguments provided at runtime.
+     * @return A populated BenchmarkConfig object, or null if essential arguments are missing.
+     */
+    private static BenchmarkConfig parseArgs(String[] args) {
+        BenchmarkConfig config = new BenchmarkConfig();
+        int positionalArgIndex = 0;
+
+        for (String arg : args) {
+            if ("--quiet".equals(arg)) {
+                config.quietMode = true;
+            } else if (arg.startsWith("--connect-rate=")) {
+                config.connectRate = Double.parseDouble(arg.substring("--connect-rate=".length()));
+            } else if (arg.startsWith("--symbols=")) {
+                config.symbols = arg.substring("--symbols=".length());
+            } else if (arg.startsWith("--local-addresses=")) {
+                config.localAddresses = List.of(arg.substring("--local-addresses=".length()).split(","));
+            } else if (arg.startsWith("--slo-ms=")) {
+                config.sloMillis = Long.parseLong(arg.substring("--slo-ms=".length()));
+            } else if (arg.startsWith("--hlog=")) {
+                config.hlogPath = arg.substring("--hlog=".length());
+            } else if (arg.startsWith("--log-interval=")) {
+                config.logIntervalSeconds = Integer.parseInt(arg.substring("--log-interval=".length()));
+            } else if (!arg.startsWith("--")) {
+                // If it's a positional argument, assign it based on its order.
+                switch (positionalArgIndex) {
+                    case 0 -> config.host = arg;
+                    case 1 -> config.port = Integer.parseInt(arg);
+                    case 2 -> config.connections = Integer.parseInt(arg);
+                    case 3 -> config.durationSeconds = Integer.parseInt(arg);
+                    default -> throw new IllegalStateException("Unexpected value: " + positionalArgIndex);
+                }
+                positionalArgIndex++;
+            }
+        }
+
+        if (positionalArgIndex < 4 || config.connections < 1 || config.connectRate <= 0 || config.sloMillis < 0
+                || config.logIntervalSeconds < 1) {
+            // Print usage directly to System.out to ensure it's visible regardless of logger configuration.
+            System.out.println("Usage: java -jar <jar_file> [--quiet] [--connect-rate=N] [--symbols=SYM0001,...] [--local-addresses=127.0.0.1,...] [--slo-ms=N] [--hlog=FILE] [--log-interval=N] <host> <port> <connections> <hold_seconds>");
+            return null;
+        }
+        return config;
+    }
+
+    /**
+     * Prints a formatted summary of the benchmark results.
+     * In quiet mode it prints directly to System.out, so that automation scripts capture the report without
+     * logger noise.
+     *
+     * @param lagLog       The log holding all collected lags.
+     * @param events       The number of events received by all streams.
+     * @param peakStreams  The largest number of streams open at once.
+     * @param streamsAtEnd The number of streams still open at the end of the hold.
+     * @param failed       The number of connections that could not be opened.
+     * @param dropped      The number of streams ended by the server or the network before the end.
+     * @param rampNanos    The time taken to request every connection.
+     * @param elapsedNanos The time from the first connection to the end of the hold.
+     * @param config       The benchmark configuration, for the SLO and quiet mode.
+     */
+    private static void printResults(LagLog lagLog, long events, int peakStreams, int streamsAtEnd,
+                                     long failed, long dropped, long rampNanos, long elapsedNanos,
+                                     BenchmarkConfig config) {
+        PrintStream out = config.quietMode ? System.out : null;
+        Histogram histogram = lagLog.total();
+
+        logOrPrint(out, "-------------------- Benchmark Results --------------------");
+        logOrPrint(out, "Connections Requested: {}", config.connections);
+        logOrPrint(out, "Peak Open Streams: {}", peakStreams);
+        logOrPrint(out, "Open Streams at End: {}", streamsAtEnd);
+        logOrPrint(out, "Failed Connections: {}", failed);
+        logOrPrint(out, "Dropped Streams: {} (ended before the hold was over)", dropped);
+        logOrPrint(out, "Ramp-up Time: {} ms", TimeUnit.NANOSECONDS.toMillis(rampNanos));
+        logOrPrint(out, "Total Events Received: {}", events);
+        logOrPrint(out, "Throughput: {} events/sec", String.format("%.2f", events / (elapsedNanos / 1e9)));
+        if (histogram.getTotalCount() == 0) {
+            logOrPrint(out, "No events were received. This might indicate a connection or logic issue.");
+            return;
+        }
+        logOrPrint(out, "---------------------------------------------------------");
+        logOrPrint(out, "Delivery Lag (microseconds):");
+        logOrPrint(out, "  min:      {}", TimeUnit.NANOSECONDS.toMicros(histogram.getMinValue()));
+        logOrPrint(out, "  mean:     {}", String.format("%.2f", histogram.getMean() / 1000.0));
+        logOrPrint(out, "  p50 (median): {}", TimeUnit.NANOSECONDS.toMicros(histogram.getValueAtPercentile(50)));
+        logOrPrint(out, "  p90:      {}", TimeUnit.NANOSECONDS.toMicros(histogram.getValueAtPercentile(90)));
+        logOrPrint(out, "  p99:      {}", TimeUnit.NANOSECONDS.toMicros(histogram.getValueAtPercentile(99)));
+        logOrPrint(out, "  p99.9:    {}", TimeUnit.NANOSECONDS.toMicros(histogram.getValueAtPercentile(99.9)));
+        logOrPrint(out, "  max:      {}", TimeUnit.NANOSECONDS.toMicros(histogram.getMaxValue()));
+        logOrPrint(out, "---------------------------------------------------------");
+        if (config.sloMillis > 0) {
+            int streamsAtBreach = lagLog.streamsAtSloBreach();
+            logOrPrint(out, "Lag SLO: p99 <= {} ms per {}s interval", config.sloMillis, config.logIntervalSeconds);
+            logOrPrint(out, "First SLO Breach: {}",
+                    streamsAtBreach < 0 ? "none" : "at " + streamsAtBreach + " open streams");
+            logOrPrint(out, "---------------------------------------------------------");
+        }
+    }
+
+    /**
+     * Directs output either to the SLF4J logger or a PrintStream.
+     *
+     * @param out    The PrintStream to use. If null, the SLF4J logger is used instead.
+     * @param format The message format string, using SLF4J's '{}' placeholder style.
+     * @param args   The arguments to be formatted into the message.
+     */
+    private static void logOrPrint(PrintStream out, String format, Object... args) {
+        if (out != null) {
+            String printfFormat = format.replace("{}", "%s") + "%n";
+            out.printf(printfFormat, args);
+        } else {
+            logger.info(format, args);
+        }
+    }
+
+    /**
+     * Holds the parsed command-line arguments.
+     */
+    private static class BenchmarkConfig {
+        String host;
+        int port;
+        int connections;
+        int durationSeconds;
+        boolean quietMode = false; // Defaults to verbose logging
+        double connectRate = 1000; // Connections opened per second during the ramp-up
+        String symbols = null; // The plain ticker unless symbols are given
+        List<String> localAddresses = List.of(); // Defaults to the address chosen by the OS
+        long sloMillis = 0; // No SLO check unless requested
+        String hlogPath = null; // No interval log unless requested
+        int logIntervalSeconds = 1; // The length of each latency interval
+
+        URI uri() {
+            String query = symbols == null ? "" : "?symbols=" + URLEncoder.encode(symbols, StandardCharsets.UTF_8);
+            return URI.create("http://" + host + ":" + port + "/stream/ticker" + query);
+        }
+    }
+}
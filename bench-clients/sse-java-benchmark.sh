@@ -0,0 +1,163 @@
+#!/bin/bash
+
+# ==============================================================================
+# Custom SSE Benchmark Runner Script
+#
+# This script builds and runs our custom Java SSE benchmark client. It holds a
+# large number of concurrent /stream/ticker connections from one process with
+# non-blocking I/O, and records how far behind each event's timestamp its
+# delivery arrives, as an HdrHistogram. Connections are opened gradually, so
+# the per-second report shows the number of open streams at which the p99 lag
+# first exceeds the SLO.
+#
+# The lag compares the server's wall clock with the client's, so run it on the
+# same host as the services.
+#
+# Usage:
+#   ./bench-clients/sse-java-benchmark.sh <service_name>
+#
+# Parameters:
+#   service_name: The target service container [server-jvm, server-native].
+#
+# Environment overrides:
+#   SSE_CONNECTIONS   Number of concurrent streams to open (default: 10000).
+#   SSE_CONNECT_RATE  Streams opened per second during the ramp-up
+#                     (default: 1000).
+#   SSE_SLO_MS        p99 delivery lag, in milliseconds, that a one-second
+#                     interval must not exceed (default: 100).
+#   SSE_SYMBOLS       Comma-separated symbols to subscribe to instead of the
+#                     plain ticker (default: none).
+#   SSE_LOCAL_ADDRESSES  Comma-separated source addresses to spread the
+#                     streams over, needed beyond about 28,000 streams, such
+#                     as 127.0.0.1,127.0.0.2 (default: none).
+#   SSE_HLOG          File receiving an HdrHistogram interval log of the lag,
+#                     one histogram per second (default: none).
+# ==============================================================================
+
+# --- Strict mode ---
+set -euo pipefail
+
+# --- Spinner ---
+# This spinner will now only run if the script is in an interactive terminal.
+spinner() {
+    local chars="/-\\|"
+    while :; do
+        for (( i=0; i<${#chars}; i++ )); do
+            sleep 0.1
+            echo -en "${chars:$i:1} Running..." "\r" > /dev/tty
+        done
+    done
+}
+
+# --- Argument validation ---
+if [ -z "${1:-}" ]; then
+    echo "Error: No target service name provided." >&2
+    echo "Usage: ./bench-clients/sse-java-benchmark.sh <server-jvm|server-native>" >&2
+    exit 1
+fi
+TARGET_SERVICE=$1
+
+# --- Configuration ---
+: "${DURATION_SECONDS:=30}"
+: "${SSE_CONNECTIONS:=10000}"
+: "${SSE_CONNECT_RATE:=1000}"
+: "${SSE_SLO_MS:=100}"
+: "${SSE_SYMBOLS:=}"
+: "${SSE_LOCAL_ADDRESSES:=}"
+: "${SSE_HLOG:=}"
+
+BENCHMARK_PROJECT_DIR="$( cd -- "$( dirname -- "${BASH_SOURCE[0]}" )" &> /dev/null && pwd )/sse-bench-client"
+JAR_NAME_PATTERN="sse-bench-client-*.jar"
+JAR_PATH_GLOB="${BENCHMARK_PROJECT_DIR}/target/${JAR_NAME_PATTERN}"
+
+# --- Determine target host and port ---
+TARGET_HOST="localhost"
+TARGET_PORT=""
+
+case "$TARGET_SERVICE" in
+  server-jvm)
+    TARGET_PORT="8080"
+    ;;
+  server-native)
+    TARGET_PORT="8081"
+    ;;
+  *)
+    echo "Error: Invalid service specified. Please use 'server-jvm' or 'server-native'." >&2
+    exit 1
+    ;;
+esac
+
+TARGET_SERVICE_UPPER=$(echo "$TARGET_SERVICE" | tr '[:lower:]' '[:upper:]')
+
+echo "============================================================"
+echo " Preparing Custom SSE Benchmark for: ${TARGET_SERVICE_UPPER}"
+echo " Connections:    $SSE_CONNECTIONS"
+echo " Connect rate:   $SSE_CONNECT_RATE per second"
+echo " Lag SLO:        p99 <= $SSE_SLO_MS ms"
+echo " Symbols:        ${SSE_SYMBOLS:-none (plain ticker)}"
+echo " Hold:           $DURATION_SECONDS seconds"
+echo "============================================================"
+echo
+
+# --- Build ---
+echo "Building benchmark client JAR..."
+# The client bundles the shared bench-common module, which has to be installed first.
+(cd "$BENCHMARK_PROJECT_DIR" && ./mvnw install -q -DskipTests -f ../bench-common/pom.xml && ./mvnw clean package -q -DskipTests)
+echo "Build complete."
+echo
+
+JAR_PATH=$(find "${BENCHMARK_PROJECT_DIR}/target" -name "${JAR_NAME_PATTERN}" -not -name "original-*.jar")
+
+if [ ! -f "$JAR_PATH" ]; then
+    echo "Error: Benchmark JAR not found at ${JAR_PATH_GLOB} after build." >&2
+    exit 1
+fi
+if [ "$(echo "$JAR_PATH" | wc -l)" -ne 1 ]; then
+    echo "Error: Ambiguous JAR file. Found multiple files:" >&2
+    echo "$JAR_PATH" >&2
+    exit 1
+fi
+
+# --- Execution ---
+echo "Running benchmark..."
+
+# The `[ -t 1 ]` expression returns true only when the script is run interactively.
+# When output is piped to `tee` (as in `run-all-benchmarks.sh`), this is false.
+if [ -t 1 ]; then
+    spinner &
+    SPINNER_PID=$!
+    # Ensure the spinner is killed when the script exits for any reason.
+    trap 'kill $SPINNER_PID 2>/dev/null; echo -en "\r\033[K" > /dev/tty' EXIT
+fi
+
+EXTRA_ARGS=()
+if [ -n "$SSE_HLOG" ]; then
+    EXTRA_ARGS+=(--hlog="$SSE_HLOG")
+fi
+if [ -n "$SSE_SYMBOLS" ]; then
+    EXTRA_ARGS+=(--symbols="$SSE_SYMBOLS")
+fi
+if [ -n "$SSE_LOCAL_ADDRESSES" ]; then
+    EXTRA_ARGS+=(--local-addresses="$SSE_LOCAL_ADDRESSES")
+fi
+
+# Every stream is a socket, so raise the open file limit as far as allowed.
+ulimit -n "$(ulimit -Hn)" 2>/dev/null || true
+if [ "$(ulimit -n)" != "unlimited" ] && [ "$(ulimit -n)" -le "$SSE_CONNECTIONS" ]; then
+    echo "Warning: the open file limit ($(ulimit -n)) is below the number of connections." >&2
+fi
+
+# The Java application's output (the clean summary) goes to standard output.
+java -jar "$JAR_PATH" --quiet --connect-rate="$SSE_CONNECT_RATE" --slo-ms="$SSE_SLO_MS" "${EXTRA_ARGS[@]}" "$TARGET_HOST" "$TARGET_PORT" "$SSE_CONNECTIONS" "$DURATION_SECONDS"
+
+# Cleanly stop the spinner if it was started.
+if [ -n "${SPINNER_PID:-}" ]; then
+    kill "$SPINNER_PID" 2>/dev/null
+    trap - EXIT # Clear the trap
+    echo -en "\r\033[K" > /dev/tty
+fi
+
+echo
+echo "============================================================"
+echo " Custom SSE Benchmark for ${TARGET_SERVICE_UPPER} complete."
+echo "============================================================"
\ No newline at end of file
@@ -0,0 +1,134 @@
+#!/bin/bash
+
+# ==============================================================================
+# SSE Multi-Symbol Ticker Benchmark
+#
+# This script measures the cost of symbol-filtered ticker streams
+# (GET /stream/ticker?symbols=...) while varying the number of symbols the
+# clients pick from and the number of symbols each client subscribes to.
+#
+# For every combination a fixed number of SSE clients connect, each to its own
+# random selection of symbols, and stay connected for the hold time. The
+# container's cgroup CPU counter is sampled around each run and divided by the
+# number of events delivered. With the per-symbol subscriber index, the CPU per
+# event should stay flat as the symbol universe grows.
+#
+# Usage:
+#   ./bench-clients/sse-symbols-benchmark.sh <service_name>
+#
+# Parameters:
+#   service_name: The target service container [server-jvm, server-native].
+#
+# Environment overrides:
+#   SYMBOL_COUNTS   Space-separated symbol universe sizes (default: "10 100 1000").
+#                   Must not exceed the server's lab.ticker.symbols.count.
+#   SUBSCRIPTIONS   Space-separated symbols per client (default: "1 10 100").
+#   CLIENTS         Number of concurrent SSE clients (default: 100).
+#   HOLD_SECONDS    Measurement window per run (default: 30).
+# ==============================================================================
+
+# --- Strict mode ---
+set -euo pipefail
+
+# --- Argument validation ---
+if [ -z "${1:-}" ]; then
+    echo "Error: No target service name provided." >&2
+    echo "Usage: ./bench-clients/sse-symbols-benchmark.sh <server-jvm|server-native>" >&2
+    exit 1
+fi
+TARGET_SERVICE=$1
+
+case "$TARGET_SERVICE" in
+  server-jvm|server-native) ;;
+  *)
+    echo "Error: Invalid service specified. Please use 'server-jvm' or 'server-native'." >&2
+    exit 1
+    ;;
+esac
+
+# --- Configuration ---
+: "${SYMBOL_COUNTS:=10 100 1000}"
+: "${SUBSCRIPTIONS:=1 10 100}"
+: "${CLIENTS:=100}"
+: "${HOLD_SECONDS:=30}"
+K6_IMAGE="quarkus-lab/k6-with-sse"
+TARGET_URL="http://${TARGET_SERVICE}:8080/stream/ticker"
+
+SCRIPT_DIR=$( cd -- "$( dirname -- "${BASH_SOURCE[0]}" )" &> /dev/null && pwd )
+MOUNT_DIR="${SCRIPT_DIR}/k6/sse"
+SCRIPT_NAME="sse-symbols-benchmark.js"
+
+# --- Helpers ---
+# Reads the cumulative CPU time (in microseconds) consumed by the container from its cgroup v2 accounting.
+read_cpu_usec() {
+    docker exec "${TARGET_SERVICE}" cat /sys/fs/cgroup/cpu.stat | awk '/^usage_usec/ {print $2}'
+}
+
+NETWORK_NAME=$(docker inspect --format '{{range $k, $v := .NetworkSettings.Networks}}{{$k}}{{end}}' "${TARGET_SERVICE}" 2>/dev/null || true)
+if [ -z "$NETWORK_NAME" ]; then
+    echo "Error: Could not find a network for container '${TARGET_SERVICE}'." >&2
+    echo "Is the service running?" >&2
+    exit 1
+fi
+
+if [[ -z "$(docker images -q ${K6_IMAGE}:latest)" ]]; then
+    echo "Custom k6 image '${K6_IMAGE}' not found. Building..."
+    docker build -t ${K6_IMAGE} "${MOUNT_DIR}"
+fi
+
+TARGET_SERVICE_UPPER=$(echo "$TARGET_SERVICE" | tr '[:lower:]' '[:upper:]')
+
+echo "============================================================"
+echo " SSE Multi-Symbol Ticker Benchmark for: ${TARGET_SERVICE_UPPER}"
+echo " Symbol universes:    ${SYMBOL_COUNTS}"
+echo " Symbols per client:  ${SUBSCRIPTIONS}"
+echo " Clients:             ${CLIENTS}"
+echo " Hold:                ${HOLD_SECONDS} seconds per run"
+echo "============================================================"
+echo
+
+RESULTS=()
+for symbols in ${SYMBOL_COUNTS}; do
+    for subscriptions in ${SUBSCRIPTIONS}; do
+        if [ "${subscriptions}" -gt "${symbols}" ]; then
+            continue
+        fi
+        echo "   - Running ${CLIENTS} clients x ${subscriptions} of ${symbols} symbols..."
+        cpu_before=$(read_cpu_usec)
+
+        k6_output=$(docker run --rm -i \
+          --network="${NETWORK_NAME}" \
+          -v "${MOUNT_DIR}:/scripts" \
+          -e TARGET_URL="${TARGET_URL}" \
+          -e CLIENTS="${CLIENTS}" \
+          -e SYMBOLS="${symbols}" \
+          -e SUBSCRIPTIONS="${subscriptions}" \
+          -e HOLD_SECONDS="${HOLD_SECONDS}" \
+          "${K6_IMAGE}" \
+          run --quiet "/scripts/${SCRIPT_NAME}")
+
+        cpu_after=$(read_cpu_usec)
+        events=$(echo "${k6_output}" | grep 'symbol_events_received' | awk '{print $2}')
+        events=${events:-0}
+        rate=$(echo "${k6_output}" | grep 'symbol_events_received' | awk '{print $3}' | sed 's|/s||')
+        rate=${rate:-0}
+        p95=$(echo "${k6_output}" | grep 'symbol_event_lag' | grep -o 'p(95)=[^ ]*' | cut -d'=' -f2)
+        p95=${p95:-n/a}
+        cpu_usec=$((cpu_after - cpu_before))
+
+        if [ "${events}" -gt 0 ]; then
+            per_event=$(awk "BEGIN {printf \"%.3f\", ${cpu_usec} / ${events}}")
+        else
+            per_event="n/a"
+        fi
+        RESULTS+=("$(printf "%8s %15s %12s %12s %10s %18s %10s" "${symbols}" "${subscriptions}" "${events}" "${rate}" "$((cpu_usec / 1000))" "${per_event}" "${p95}")")
+    done
+done
+
+echo
+echo "---------------------- Multi-Symbol Ticker Results ----------------------"
+printf "%8s %15s %12s %12s %10s %18s %10s\n" "symbols" "subs_per_client" "events" "events_per_s" "cpu_ms" "cpu_us_per_event" "p95_lag"
+for row in "${RESULTS[@]}"; do
+    echo "${row}"
+done
+echo "-------------------------------------------------------------------------"
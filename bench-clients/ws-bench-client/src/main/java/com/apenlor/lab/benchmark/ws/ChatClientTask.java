@@ -0,0 +1,181 @@
+package com.apenlor.lab.benchmark.ws;
+
+import com.apenlor.lab.benchmark.common.FanOutTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Represents a single virtual user in the benchmark.
+ * Each instance of this task runs on its own thread, holding one WebSocket session to the chat endpoint.
+ * <p>
+ * Every ping carries a message id and its send time, and every client receiving the broadcast records its delivery
+ * latency through the shared {@link FanOutTracker}. In the default closed loop, the task waits until all the other
+ * clients have received its ping before sending the next one.
+ * </p>
+ * <p>
+ * With a target rate the task runs open loop: it sends on a fixed schedule, whether or not anything came back, and
+ * stamps each ping with the time it was due to be sent. Latency is then measured from that intended send time, so a
+ * server stall that delays the sender as well shows up in full, instead of being hidden by a client that stopped
+ * sending (coordinated omission).
+ * </p>
+ */
+public class ChatClientTask implements Runnable {
+    private static final Logger logger = LoggerFactory.getLogger(ChatClientTask.class);
+
+    private final int clientId;
+    private final HttpClient httpClient;
+    private final URI uri;
+    private final FanOutTracker tracker;
+    private final CountDownLatch startLatch;
+    private final CountDownLatch finishLatch;
+    private final AtomicLong timeoutCounter;
+    private final AtomicLong deliveredCounter;
+    private final double ratePerSecond;
+    private final AtomicLong sentCounter;
+
+    public ChatClientTask(int clientId, HttpClient httpClient, URI uri, FanOutTracker tracker, CountDownLatch startLatch,
+                          CountDownLatch finishLatch, AtomicLong timeoutCounter, AtomicLong deliveredCounter,
+                          double ratePerSecond, AtomicLong sentCounter) {
+        this.clientId = clientId;
+        this.httpClient = httpClient;
+        this.uri = uri;
+        this.tracker = tracker;
+        this.startLatch = startLatch;
+        this.finishLatch = finishLatch;
+        this.timeoutCounter = timeoutCounter;
+        this.deliveredCounter = deliveredCounter;
+        this.ratePerSecond = ratePerSecond;
+        this.sentCounter = sentCounter;
+    }
+
+    @Override
+    public void run() {
+        WebSocket webSocket = null;
+        try {
+            webSocket = httpClient.newWebSocketBuilder()
+                    .buildAsync(uri, new ChatListener())
+                    .get(10, TimeUnit.SECONDS);
+
+            // Wait for the main thread to give the "start" signal.
+            startLatch.await();
+
+            if (ratePerSecond > 0) {
+                runOpenLoop(webSocket);
+                return;
+            }
+
+            // Main benchmark loop. It will run until the main thread interrupts it.
+            while (!Thread.currentThread().isInterrupted()) {
+                FanOutTracker.FanOut ping = tracker.register(System.nanoTime(), 1);
+                send(webSocket, ping.payload());
+
+                // Block until every other client has received the ping; the receivers record the latencies.
+                if (!ping.await(10, TimeUnit.SECONDS)) {
+                    timeoutCounter.incrementAndGet();
+                }
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+
+        } catch (InterruptedException e) {
+            // This is the expected way to exit the loop when the main thread stops us.
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("Client {} failed with an unexpected error", clientId, e);
+        } finally {
+            if (webSocket != null) {
+                webSocket.abort(); // Forcefully close the connection.
+            }
+            finishLatch.countDown(); // Signal to the main thread that this task is finished.
+        }
+    }
+
+    /**
+     * Sends pings at the target rate until the main thread interrupts this task. A ping that is due while the
+     * previous one is still being sent goes out immediately afterwards, keeping its original intended send time.
+     *
+     * @param webSocket The session to send on.
+     */
+    private void runOpenLoop(WebSocket webSocket) throws InterruptedException {
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        // Spread the clients over the first interval so that they do not all send at the same instant.
+        long intendedNanos = System.nanoTime() + ThreadLocalRandom.current().nextLong(intervalNanos);
+        while (!Thread.currentThread().isInterrupted()) {
+            long waitNanos = intendedNanos - System.nanoTime();
+            if (waitNanos > 0) {
+                LockSupport.parkNanos(waitNanos);
+                continue;
+            }
+            send(webSocket, tracker.register(intendedNanos, 1).payload());
+            intendedNanos += intervalNanos;
+        }
+    }
+
+    /**
+     * Sends one text frame. A WebSocket allows a single outstanding send, so this waits until the frame has been
+     * handed to the connection.
+     */
+    private void send(WebSocket webSocket, String text) throws InterruptedException {
+        try {
+            webSocket.sendText(text, true).get(10, TimeUnit.SECONDS);
+            sentCounter.incrementAndGet();
+        } catch (ExecutionException | TimeoutException e) {
+            timeoutCounter.incrementAndGet();
+        }
+    }
+
+    /**
+     * Reassembles the text messages broadcast by the server, which may arrive in several parts, and reports each
+     * one to the tracker. A server that coalesces outbound messages joins several of them into one frame, separated
+     * by line breaks, so each line of a frame is a message of its own.
+     */
+    private final class ChatListener implements WebSocket.Listener {
+        private final StringBuilder partial = new StringBuilder();
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            if (last && partial.isEmpty()) {
+                receive(data.toString());
+            } else {
+                partial.append(data);
+                if (last) {
+                    receive(partial.toString());
+                    partial.setLength(0);
+                }
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket webSocket, Throwable error) {
+            // Errors are expected during forceful shutdown
+        }
+
+        private void receive(String text) {
+            int start = 0;
+            int end;
+            while ((end = text.indexOf('\n', start)) >= 0) {
+                deliver(text.substring(start, end));
+                start = end + 1;
+            }
+            deliver(start == 0 ? text : text.substring(start));
+        }
+
+        private void deliver(String message) {
+            deliveredCounter.incrementAndGet();
+            tracker.delivered(message);
+        }
+    }
+}
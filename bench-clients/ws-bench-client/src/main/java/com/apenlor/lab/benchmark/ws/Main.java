@@ -0,0 +1,273 @@
+package com.apenlor.lab.benchmark.ws;
+
+import com.apenlor.lab.benchmark.common.FanOutTracker;
+import com.apenlor.lab.benchmark.common.LatencyLog;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The main entry point for the custom WebSocket benchmark client.
+ * <p>
+ * This application simulates a configurable number of concurrent clients to
+ * load test the /ws/chat endpoint and measure end-to-end broadcast latency, using
+ * the same method as the gRPC benchmark client so that both transports can be
+ * compared directly. Every chat message carries an id and its send time, so each
+ * recipient records the real delivery latency of each message, and the time until
+ * the last recipient received it is reported as the fan-out completion time.
+ * <p>
+ * By default every client is closed loop: it waits until its message has reached
+ * every other client before sending again. '--rate=N' switches to open loop, where
+ * each client sends N messages per second on a fixed schedule and latency is
+ * measured from the intended send time, correcting for coordinated omission.
+ * '--payload-size=N' appends N bytes to every message, '--path=PATH' targets another
+ * chat endpoint, and '--virtual-threads' runs the virtual users on virtual threads.
+ * <p>
+ * Latencies are collected per interval by a {@link LatencyLog}. '--hlog=FILE' writes every interval
+ * histogram to an HdrHistogram interval log, and '--log-interval=N' sets the interval length in seconds.
+ * It follows the multithreaded benchmark pattern of the gRPC client, using CountDownLatches
+ * for synchronization and HdrHistogram for accurate, low-overhead measurement.
+ */
+public class Main {
+    private static final Logger logger = LoggerFactory.getLogger(Main.class);
+
+    public static void main(String[] args) throws InterruptedException, FileNotFoundException {
+        final BenchmarkConfig config = parseArgs(args);
+        // If parsing fails, parseArgs will print the usage info and return null.
+        if (config == null) {
+            System.exit(1);
+        }
+
+        // All real-time progress logging is conditional
+        // This ensures a clean output when the --quiet flag is used, suitable for automated log parsing
+        if (!config.quietMode) {
+            logger.info("Starting WebSocket Benchmark with configuration:");
+            logger.info("Target: {}", config.uri());
+            logger.info("Concurrency (Virtual Users): {}", config.concurrency);
+            logger.info("Duration: {} seconds", config.durationSeconds);
+            if (config.ratePerSecond > 0) {
+                logger.info("Open loop: {} msg/sec per client", config.ratePerSecond);
+            }
+            if (config.payloadSize > 0) {
+                logger.info("Payload: {} bytes per message", config.payloadSize);
+            }
+            logger.info("Threads: {}", config.virtualThreads ? "virtual" : "platform");
+            if (config.hlogPath != null) {
+                logger.info("Interval log: {} (every {} seconds)", config.hlogPath, config.logIntervalSeconds);
+            }
+            logger.info("--------------------------------------------------");
+        }
+
+        // One client for all sessions; each WebSocket still gets its own connection.
+        try (HttpClient httpClient = HttpClient.newHttpClient();
+             ExecutorService executor = config.virtualThreads
+                     ? Executors.newVirtualThreadPerTaskExecutor()
+                     : Executors.newFixedThreadPool(config.concurrency)) {
+            // Recorded from every client thread and listener, without locking, and merged per interval.
+            final LatencyLog latencyLog = new LatencyLog("WebSocket benchmark latencies", config.hlogPath,
+                    config.logIntervalSeconds, config.quietMode);
+            final FanOutTracker tracker = new FanOutTracker(config.concurrency - 1, config.payloadSize,
+                    latencyLog.recorder(), latencyLog.fanOutRecorder());
+            final AtomicLong timeoutCounter = new AtomicLong(0);
+            final AtomicLong deliveredCounter = new AtomicLong(0);
+            final AtomicLong sentCounter = new AtomicLong(0);
+
+            final CountDownLatch startLatch = new CountDownLatch(1);
+            final CountDownLatch finishLatch = new CountDownLatch(config.concurrency);
+
+            // Create and submit a task for each virtual user.
+            for (int i = 0; i < config.concurrency; i++) {
+                executor.submit(new ChatClientTask(i, httpClient, config.uri(), tracker, startLatch, finishLatch,
+                        timeoutCounter, deliveredCounter, config.ratePerSecond, sentCounter));
+            }
+
+            if (!config.quietMode) {
+                logger.info("All virtual users initialized. Starting benchmark in 3 seconds...");
+            }
+            Thread.sleep(3000);
+
+            if (!config.quietMode) {
+                logger.info("GO!");
+            }
+            latencyLog.start();
+            startLatch.countDown(); // This releases all waiting client threads simultaneously.
+
+            Thread.sleep(TimeUnit.SECONDS.toMillis(config.durationSeconds));
+
+            if (!config.quietMode) {
+                logger.info("Time's up. Requesting client shutdown...");
+            }
+            executor.shutdownNow(); // This interrupts the client threads, signaling them to stop
+
+            // Wait for all threads to confirm clean shutdown via the finishLatch.
+            if (!finishLatch.await(30, TimeUnit.SECONDS)) {
+                if (!config.quietMode) {
+                    logger.warn("Benchmark did not complete cleanly. {} tasks did not finish.", finishLatch.getCount());
+                }
+            } else {
+                if (!config.quietMode) {
+                    logger.info("All client tasks finished cleanly.");
+                }
+            }
+
+            latencyLog.stop();
+            printResults(latencyLog, tracker, timeoutCounter.get(), deliveredCounter.get(), sentCounter.get(), config);
+        }
+    }
+
+    /**
+     * Parses command-line arguments into a structured config object.
+     * It supports a '--quiet' flag for suppressing verbose output, '--rate=N' for open-loop load,
+     * '--payload-size=N', '--path=PATH', '--virtual-threads', and '--hlog=FILE' with '--log-interval=N'
+     * for an interval log of the latencies.
+     *
+     * @param args The command-line arguments provided at runtime.
+     * @return A populated BenchmarkConfig object, or null if essential arguments are missing.
+     */
+    private static BenchmarkConfig parseArgs(String[] args) {
+        BenchmarkConfig config = new BenchmarkConfig();
+        int positionalArgIndex = 0;
+
+        for (String arg : args) {
+            if ("--quiet".equals(arg)) {
+                config.quietMode = true;
+            } else if (arg.startsWith("--rate=")) {
+                config.ratePerSecond = Double.parseDouble(arg.substring("--rate=".length()));
+            } else if (arg.startsWith("--payload-size=")) {
+                config.payloadSize = Integer.parseInt(arg.substring("--payload-size=".length()));
+            } else if (arg.startsWith("--path=")) {
+                config.path = arg.substring("--path=".length());
+            } else if ("--virtual-threads".equals(arg)) {
+                config.virtualThreads = true;
+            } else if (arg.startsWith("--hlog=")) {
+                config.hlogPath = arg.substring("--hlog=".length());
+            } else if (arg.startsWith("--log-interval=")) {
+                config.logIntervalSeconds = Integer.parseInt(arg.substring("--log-interval=".length()));
+            } else if (!arg.startsWith("--")) {
+                // If it's a positional argument, assign it based on its order.
+                switch (positionalArgIndex) {
+                    case 0 -> config.host = arg;
+                    case 1 -> config.port = Integer.parseInt(arg);
+                    case 2 -> config.concurrency = Integer.parseInt(arg);
+                    case 3 -> config.durationSeconds = Integer.parseInt(arg);
+                    default -> throw new IllegalStateException("Unexpected value: " + positionalArgIndex);
+                }
+                positionalArgIndex++;
+            }
+        }
+
+        if (positionalArgIndex < 4 || config.concurrency < 1 || config.ratePerSecond < 0 || config.payloadSize < 0
+                || config.logIntervalSeconds < 1 || !config.path.startsWith("/")) {
+            // Print usage directly to System.out to ensure it's visible regardless of logger configuration.
+            System.out.println("Usage: java -jar <jar_file> [--quiet] [--rate=N] [--payload-size=N] [--path=/ws/chat] [--virtual-threads] [--hlog=FILE] [--log-interval=N] <host> <port> <concurrency> <duration_seconds>");
+            return null;
+        }
+        return config;
+    }
+
+    /**
+     * Prints a formatted summary of the benchmark results, in the same format as the gRPC benchmark client.
+     * In quiet mode it prints directly to System.out, so that automation scripts capture the report without
+     * logger noise.
+     *
+     * @param latencyLog The log holding all collected latency measurements.
+     * @param tracker    The tracker of message fan-outs, for the incomplete ones.
+     * @param timeouts   The number of sends or fan-outs that did not complete in time.
+     * @param delivered  The number of broadcast messages delivered to any client.
+     * @param sent       The number of messages sent by any client.
+     * @param config     The benchmark configuration, for the duration, target rate and quiet mode.
+     */
+    private static void printResults(LatencyLog latencyLog, FanOutTracker tracker, long timeouts, long delivered,
+                                     long sent, BenchmarkConfig config) {
+        PrintStream out = config.quietMode ? System.out : null;
+        int duration = config.durationSeconds;
+        Histogram histogram = latencyLog.total();
+
+        if (histogram.getTotalCount() == 0) {
+            logOrPrint(out, "No measurements were recorded. This might indicate a connection or logic issue.");
+            return;
+        }
+
+        logOrPrint(out, "-------------------- Benchmark Results --------------------");
+        logOrPrint(out, "Total Messages Measured: {}", histogram.getTotalCount());
+        logOrPrint(out, "Total Timeouts: {} (indicates back-pressure)", timeouts);
+        logOrPrint(out, "Throughput: {} msg/sec", String.format("%.2f", histogram.getTotalCount() / (double) duration));
+        logOrPrint(out, "Total Messages Delivered: {}", delivered);
+        logOrPrint(out, "Delivery Throughput: {} msg/sec", String.format("%.2f", delivered / (double) duration));
+        if (config.ratePerSecond > 0) {
+            logOrPrint(out, "Load Model: open loop (latency from intended send time)");
+            logOrPrint(out, "Target Send Rate: {} msg/sec", String.format("%.2f", config.ratePerSecond * config.concurrency));
+            logOrPrint(out, "Achieved Send Rate: {} msg/sec", String.format("%.2f", sent / (double) duration));
+        } else {
+            logOrPrint(out, "Load Model: closed loop");
+        }
+        logOrPrint(out, "---------------------------------------------------------");
+        logOrPrint(out, "Latency (microseconds):");
+        logOrPrint(out, "  min:      {}", TimeUnit.NANOSECONDS.toMicros(histogram.getMinValue()));
+        logOrPrint(out, "  mean:     {}", String.format("%.2f", histogram.getMean() / 1000.0));
+        logOrPrint(out, "  p50 (median): {}", TimeUnit.NANOSECONDS.toMicros(histogram.getValueAtPercentile(50)));
+        logOrPrint(out, "  p90:      {}", TimeUnit.NANOSECONDS.toMicros(histogram.getValueAtPercentile(90)));
+        logOrPrint(out, "  p99:      {}", TimeUnit.NANOSECONDS.toMicros(histogram.getValueAtPercentile(99)));
+        logOrPrint(out, "  p99.9:    {}", TimeUnit.NANOSECONDS.toMicros(histogram.getValueAtPercentile(99.9)));
+        logOrPrint(out, "  max:      {}", TimeUnit.NANOSECONDS.toMicros(histogram.getMaxValue()));
+        logOrPrint(out, "---------------------------------------------------------");
+        Histogram fanOut = latencyLog.fanOutTotal();
+        if (fanOut.getTotalCount() > 0 || tracker.incomplete() > 0) {
+            // One line, so that scripts parsing the per-recipient percentiles above are not confused.
+            logOrPrint(out, "Fan-out Completion (microseconds): p50={} p99={} p99.9={} max={}",
+                    TimeUnit.NANOSECONDS.toMicros(fanOut.getValueAtPercentile(50)),
+                    TimeUnit.NANOSECONDS.toMicros(fanOut.getValueAtPercentile(99)),
+                    TimeUnit.NANOSECONDS.toMicros(fanOut.getValueAtPercentile(99.9)),
+                    TimeUnit.NANOSECONDS.toMicros(fanOut.getMaxValue()));
+            logOrPrint(out, "Incomplete Fan-outs: {} (not received by every client within 10 seconds)", tracker.incomplete());
+            logOrPrint(out, "---------------------------------------------------------");
+        }
+    }
+
+    /**
+     * Directs output either to the SLF4J logger or a PrintStream.
+     *
+     * @param out    The PrintStream to use. If null, the SLF4J logger is used instead.
+     * @param format The message format string, using SLF4J's '{}' placeholder style.
+     * @param args   The arguments to be formatted into the message.
+     */
+    private static void logOrPrint(PrintStream out, String format, Object... args) {
+        if (out != null) {
+            String printfFormat = format.replace("{}", "%s") + "%n";
+            out.printf(printfFormat, args);
+        } else {
+            logger.info(format, args);
+        }
+    }
+
+    /**
+     * Holds the parsed command-line arguments.
+     */
+    private static class BenchmarkConfig {
+        String host;
+        int port;
+        int concurrency;
+        int durationSeconds;
+        boolean quietMode = false; // Defaults to verbose logging
+        String path = "/ws/chat"; // The broadcast chat endpoint
+        double ratePerSecond = 0; // Zero runs closed loop; otherwise the messages per second sent by each client
+        int payloadSize = 0; // Bytes appended to every message after its id and send time
+        boolean virtualThreads = false; // Defaults to one platform thread per virtual user
+        String hlogPath = null; // No interval log unless requested
+        int logIntervalSeconds = 1; // The length of each latency interval
+
+        URI uri() {
+            return URI.create("ws://" + host + ":" + port + path);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+#!/bin/bash
+
+# ==============================================================================
+# WebSocket Fan-out CPU Benchmark
+#
+# This script measures the server CPU time spent per delivered WebSocket
+# broadcast message, comparing the legacy per-session encoding path, the
+# encode-once path, and encode-once with time-window coalescing at several
+# room sizes.
+#
+# For each broadcast mode the target container is recreated with the matching
+# LAB_WS_BROADCAST_ENCODE_ONCE and LAB_WS_OUTBOUND_COALESCE_WINDOW values. For
+# each room size, the container's cgroup CPU counter is sampled before and
+# after a k6 fan-out run, and the delta is divided by the number of messages
+# delivered to the listeners. The delivery rate and p95 delivery latency show
+# what coalescing trades for the saved CPU.
+#
+# Usage:
+#   ./bench-clients/ws-fanout-cpu-benchmark.sh <service_name>
+#
+# Parameters:
+#   service_name: The target service container [server-jvm, server-native].
+#
+# Environment overrides:
+#   SESSION_COUNTS    Space-separated room sizes (default: "10 100 1000").
+#   SENDERS           Number of publishing sessions (default: 1).
+#   SEND_INTERVAL_MS  Publish interval per sender in ms (default: 100).
+#   HOLD_SECONDS      Measurement window per run (default: 30).
+#   COALESCE_WINDOW   Coalescing window of the coalesced mode (default: 2ms).
+# ==============================================================================
+
+# --- Strict mode ---
+set -euo pipefail
+
+# --- Argument validation ---
+if [ -z "${1:-}" ]; then
+    echo "Error: No target service name provided." >&2
+    echo "Usage: ./bench-clients/ws-fanout-cpu-benchmark.sh <server-jvm|server-native>" >&2
+    exit 1
+fi
+TARGET_SERVICE=$1
+
+case "$TARGET_SERVICE" in
+  server-jvm)
+    HEALTH_URL="http://localhost:8080/q/health/live"
+    ;;
+  server-native)
+    HEALTH_URL="http://localhost:8081/q/health/live"
+    ;;
+  *)
+    echo "Error: Invalid service specified. Please use 'server-jvm' or 'server-native'." >&2
+    exit 1
+    ;;
+esac
+
+# --- Configuration ---
+: "${SESSION_COUNTS:=10 100 1000}"
+: "${SENDERS:=1}"
+: "${SEND_INTERVAL_MS:=100}"
+: "${HOLD_SECONDS:=30}"
+: "${COALESCE_WINDOW:=2ms}"
+WARMUP_SECONDS=5
+K6_IMAGE="grafana/k6:latest"
+TARGET_URL="ws://${TARGET_SERVICE}:8080/ws/chat"
+
+SCRIPT_DIR=$( cd -- "$( dirname -- "${BASH_SOURCE[0]}" )" &> /dev/null && pwd )
+PROJECT_ROOT=$( cd -- "${SCRIPT_DIR}/.." &> /dev/null && pwd )
+MOUNT_DIR="${SCRIPT_DIR}/k6/websockets"
+SCRIPT_NAME="ws-fanout-benchmark.js"
+
+# --- Helpers ---
+# Reads the cumulative CPU time (in microseconds) consumed by the container from its cgroup v2 accounting.
+read_cpu_usec() {
+    docker exec "${TARGET_SERVICE}" cat /sys/fs/cgroup/cpu.stat | awk '/^usage_usec/ {print $2}'
+}
+
+# Recreates the target container with the requested broadcast mode and waits until it is healthy.
+restart_with_mode() {
+    local encode_once=$1
+    local coalesce_window=$2
+    (cd "${PROJECT_ROOT}" && LAB_WS_BROADCAST_ENCODE_ONCE="${encode_once}" \
+        LAB_WS_OUTBOUND_COALESCE_WINDOW="${coalesce_window}" \
+        docker compose up -d --no-build --no-deps --force-recreate "${TARGET_SERVICE}" > /dev/null 2>&1)
+    until curl --output /dev/null --silent --head --fail "$HEALTH_URL"; do
+        sleep 0.5
+    done
+}
+
+TARGET_SERVICE_UPPER=$(echo "$TARGET_SERVICE" | tr '[:lower:]' '[:upper:]')
+
+echo "============================================================"
+echo " WebSocket Fan-out CPU Benchmark for: ${TARGET_SERVICE_UPPER}"
+echo " Room sizes:     ${SESSION_COUNTS}"
+echo " Senders:        ${SENDERS} (every ${SEND_INTERVAL_MS} ms)"
+echo " Hold:           ${HOLD_SECONDS} seconds per run"
+echo " Coalescing:     ${COALESCE_WINDOW} window in coalesced mode"
+echo "============================================================"
+echo
+
+RESULTS=()
+for mode in per-session encode-once coalesced; do
+    case "$mode" in
+      per-session) encode_once=false; coalesce_window=0ms ;;
+      encode-once) encode_once=true;  coalesce_window=0ms ;;
+      coalesced)   encode_once=true;  coalesce_window="${COALESCE_WINDOW}" ;;
+    esac
+    echo "--- Restarting ${TARGET_SERVICE} with LAB_WS_BROADCAST_ENCODE_ONCE=${encode_once}, LAB_WS_OUTBOUND_COALESCE_WINDOW=${coalesce_window} ---"
+    restart_with_mode "${encode_once}" "${coalesce_window}"
+
+    NETWORK_NAME=$(docker inspect --format '{{range $k, $v := .NetworkSettings.Networks}}{{$k}}{{end}}' "${TARGET_SERVICE}")
+
+    for sessions in ${SESSION_COUNTS}; do
+        echo "   - Running ${mode} with ${sessions} sessions..."
+        cpu_before=$(read_cpu_usec)
+
+        k6_output=$(docker run --rm -i \
+          --network="${NETWORK_NAME}" \
+          -v "${MOUNT_DIR}:/scripts" \
+          -e TARGET_URL="${TARGET_URL}" \
+          -e SESSIONS="${sessions}" \
+          -e SENDERS="${SENDERS}" \
+          -e SEND_INTERVAL_MS="${SEND_INTERVAL_MS}" \
+          -e WARMUP_SECONDS="${WARMUP_SECONDS}" \
+          -e HOLD_SECONDS="${HOLD_SECONDS}" \
+          "${K6_IMAGE}" \
+          run --quiet "/scripts/${SCRIPT_NAME}")
+
+        cpu_after=$(read_cpu_usec)
+        delivered=$(echo "${k6_output}" | grep 'fanout_messages_delivered' | awk '{print $2}')
+        delivered=${delivered:-0}
+        rate=$(echo "${k6_output}" | grep 'fanout_messages_delivered' | awk '{print $3}' | sed 's|/s||')
+        rate=${rate:-0}
+        p95=$(echo "${k6_output}" | grep 'fanout_delivery_latency' | grep -o 'p(95)=[^ ]*' | cut -d'=' -f2)
+        p95=${p95:-n/a}
+        cpu_usec=$((cpu_after - cpu_before))
+
+        if [ "${delivered}" -gt 0 ]; then
+            per_msg=$(awk "BEGIN {printf \"%.3f\", ${cpu_usec} / ${delivered}}")
+        else
+            per_msg="n/a"
+        fi
+        RESULTS+=("$(printf "%-12s %10s %14s %12s %14s %18s %12s" "${mode}" "${sessions}" "${delivered}" "${rate}" "$((cpu_usec / 1000))" "${per_msg}" "${p95}")")
+    done
+done
+
+# Leave the service in its default configuration.
+restart_with_mode true 0ms
+
+echo
+echo "-------------------- Fan-out CPU Results --------------------"
+printf "%-12s %10s %14s %12s %14s %18s %12s\n" "mode" "sessions" "delivered" "msg_per_s" "cpu_ms" "cpu_us_per_msg" "p95_latency"
+for row in "${RESULTS[@]}"; do
+    echo "${row}"
+done
+echo "-------------------------------------------------------------"
\ No newline at end of file
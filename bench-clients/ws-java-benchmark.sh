@@ -0,0 +1,146 @@
+#!/bin/bash
+
+# ==============================================================================
+# Custom WebSocket Benchmark Runner Script
+#
+# This script builds and runs our custom, multi-threaded Java WebSocket
+# benchmark client against the /ws/chat endpoint. It measures end-to-end
+# broadcast latency per recipient and fan-out completion with HdrHistogram,
+# using the same method and report format as the custom gRPC client, so that
+# both transports can be compared directly.
+#
+# Usage:
+#   ./bench-clients/ws-java-benchmark.sh <service_name>
+#
+# Parameters:
+#   service_name: The target service container [server-jvm, server-native].
+#
+# Environment overrides:
+#   WS_RATE    Messages per second sent by each client in open-loop mode, with
+#              latency measured from the intended send time. Zero keeps the
+#              closed loop (default: 0).
+#   WS_PAYLOAD_SIZE  Bytes of filler content added to every message
+#              (default: 0).
+#   WS_VIRTUAL_THREADS  Run the virtual users on virtual threads: true or
+#              false (default: false).
+#   WS_HLOG    File receiving an HdrHistogram interval log of the latencies,
+#              one histogram per second (default: none).
+# ==============================================================================
+
+# --- Strict mode ---
+set -euo pipefail
+
+# --- Spinner ---
+# This spinner will now only run if the script is in an interactive terminal.
+spinner() {
+    local chars="/-\\|"
+    while :; do
+        for (( i=0; i<${#chars}; i++ )); do
+            sleep 0.1
+            echo -en "${chars:$i:1} Running..." "\r" > /dev/tty
+        done
+    done
+}
+
+# --- Argument validation ---
+if [ -z "${1:-}" ]; then
+    echo "Error: No target service name provided." >&2
+    echo "Usage: ./bench-clients/ws-java-benchmark.sh <server-jvm|server-native>" >&2
+    exit 1
+fi
+TARGET_SERVICE=$1
+
+# --- Configuration ---
+: "${CONCURRENCY:=50}"
+: "${DURATION_SECONDS:=30}"
+: "${WS_RATE:=0}"
+: "${WS_PAYLOAD_SIZE:=0}"
+: "${WS_VIRTUAL_THREADS:=false}"
+: "${WS_HLOG:=}"
+
+BENCHMARK_PROJECT_DIR="$( cd -- "$( dirname -- "${BASH_SOURCE[0]}" )" &> /dev/null && pwd )/ws-bench-client"
+JAR_NAME_PATTERN="ws-bench-client-*.jar"
+JAR_PATH_GLOB="${BENCHMARK_PROJECT_DIR}/target/${JAR_NAME_PATTERN}"
+
+# --- Determine target host and port ---
+TARGET_HOST="localhost"
+TARGET_PORT=""
+
+case "$TARGET_SERVICE" in
+  server-jvm)
+    TARGET_PORT="8080"
+    ;;
+  server-native)
+    TARGET_PORT="8081"
+    ;;
+  *)
+    echo "Error: Invalid service specified. Please use 'server-jvm' or 'server-native'." >&2
+    exit 1
+    ;;
+esac
+
+TARGET_SERVICE_UPPER=$(echo "$TARGET_SERVICE" | tr '[:lower:]' '[:upper:]')
+
+echo "============================================================"
+echo " Preparing Custom WebSocket Benchmark for: ${TARGET_SERVICE_UPPER}"
+echo " Rate:           $WS_RATE msg/sec per client (0 = closed loop)"
+echo " Payload:        $WS_PAYLOAD_SIZE bytes"
+echo " Concurrency:    $CONCURRENCY"
+echo " Virtual thr.:   $WS_VIRTUAL_THREADS"
+echo " Duration:       $DURATION_SECONDS seconds"
+echo "============================================================"
+echo
+
+# --- Build ---
+echo "Building benchmark client JAR..."
+# The client bundles the shared bench-common module, which has to be installed first.
+(cd "$BENCHMARK_PROJECT_DIR" && ./mvnw install -q -DskipTests -f ../bench-common/pom.xml && ./mvnw clean package -q -DskipTests)
+echo "Build complete."
+echo
+
+JAR_PATH=$(find "${BENCHMARK_PROJECT_DIR}/target" -name "${JAR_NAME_PATTERN}" -not -name "original-*.jar")
+
+if [ ! -f "$JAR_PATH" ]; then
+    echo "Error: Benchmark JAR not found at ${JAR_PATH_GLOB} after build." >&2
+    exit 1
+fi
+if [ "$(echo "$JAR_PATH" | wc -l)" -ne 1 ]; then
+    echo "Error: Ambiguous JAR file. Found multiple files:" >&2
+    echo "$JAR_PATH" >&2
+    exit 1
+fi
+
+# --- Execution ---
+echo "Running benchmark..."
+
+# The `[ -t 1 ]` expression returns true only when the script is run interactively.
+# When output is piped to `tee` (as in `run-all-benchmarks.sh`), this is false.
+if [ -t 1 ]; then
+    spinner &
+    SPINNER_PID=$!
+    # Ensure the spinner is killed when the script exits for any reason.
+    trap 'kill $SPINNER_PID 2>/dev/null; echo -en "\r\033[K" > /dev/tty' EXIT
+fi
+
+EXTRA_ARGS=()
+if [ -n "$WS_HLOG" ]; then
+    EXTRA_ARGS+=(--hlog="$WS_HLOG")
+fi
+if [ "$WS_VIRTUAL_THREADS" = "true" ]; then
+    EXTRA_ARGS+=(--virtual-threads)
+fi
+
+# The Java application's output (the clean summary) goes to standard output.
+java -jar "$JAR_PATH" --quiet --rate="$WS_RATE" --payload-size="$WS_PAYLOAD_SIZE" "${EXTRA_ARGS[@]}" "$TARGET_HOST" "$TARGET_PORT" "$CONCURRENCY" "$DURATION_SECONDS"
+
+# Cleanly stop the spinner if it was started.
+if [ -n "${SPINNER_PID:-}" ]; then
+    kill "$SPINNER_PID" 2>/dev/null
+    trap - EXIT # Clear the trap
+    echo -en "\r\033[K" > /dev/tty
+fi
+
+echo
+echo "============================================================"
+echo " Custom WebSocket Benchmark for ${TARGET_SERVICE_UPPER} complete."
+echo "============================================================"
\ No newline at end of file
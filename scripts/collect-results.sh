@@ -14,6 +14,21 @@ cd "${PROJECT_ROOT}"
 RAW_RESULTS_DIR="bench-clients/results/raw"
 SUMMARY_CSV="bench-clients/results/summary.csv"
 
+# Duration of each execution-model and format scenario in bench-clients/k6/rest/rest-benchmark.js.
+REST_SCENARIO_SECONDS=70
+REST_MODELS=("default" "event-loop" "worker" "virtual-thread")
+REST_FORMATS=("protobuf" "cbor" "smile")
+
+# Converts a k6 duration such as "850µs", "12.5ms" or "1.2s" to milliseconds.
+to_ms() {
+    awk -v value="$1" 'BEGIN {
+        if (value ~ /µs$/) { sub("µs", "", value); printf "%.3f", value / 1000 }
+        else if (value ~ /ms$/) { sub("ms", "", value); printf "%.3f", value }
+        else if (value ~ /s$/) { sub("s", "", value); printf "%.3f", value * 1000 }
+        else { printf "%s", value }
+    }'
+}
+
 parse_perf_log() {
     local protocol=$1
     local runtime=$2
@@ -21,10 +36,38 @@ parse_perf_log() {
 
     case "${protocol}" in
         rest)
-            rps=$(grep 'http_reqs' "${log_file}" | awk '{sub("/s", "", $3); print $3}')
-            p95_latency=$(grep 'http_req_duration' "${log_file}" | grep -o 'p(95)=[0-9.]*ms' | cut -d'=' -f2 | tr -d 'ms')
-            echo "rest,${runtime},requests_per_sec,${rps}" >> "${SUMMARY_CSV}"
-            echo "rest,${runtime},p95_latency_ms,${p95_latency}" >> "${SUMMARY_CSV}"
+            # Each execution model runs on its own for REST_SCENARIO_SECONDS, so its throughput is its
+            # request count over that window. The default model keeps the original metric names.
+            for model in "${REST_MODELS[@]}"; do
+                metric_suffix=${model//-/_}
+                requests=$(grep "rest_requests_${metric_suffix}\b" "${log_file}" | awk '{print $2}')
+                p95=$(grep "rest_latency_${metric_suffix}\b" "${log_file}" | grep -o 'p(95)=[^ ]*' | cut -d'=' -f2)
+                if [ -z "${requests}" ] || [ -z "${p95}" ]; then
+                    continue
+                fi
+                rps=$(awk "BEGIN {printf \"%.2f\", ${requests} / ${REST_SCENARIO_SECONDS}}")
+                p95_latency=$(to_ms "${p95}")
+                if [ "${model}" == "default" ]; then
+                    echo "rest,${runtime},requests_per_sec,${rps}" >> "${SUMMARY_CSV}"
+                    echo "rest,${runtime},p95_latency_ms,${p95_latency}" >> "${SUMMARY_CSV}"
+                    # The default model is also the JSON baseline of the serialization formats.
+                    echo "rest-json,${runtime},format_requests_per_sec,${rps}" >> "${SUMMARY_CSV}"
+                    echo "rest-json,${runtime},format_p95_latency_ms,${p95_latency}" >> "${SUMMARY_CSV}"
+                fi
+                echo "rest-${model},${runtime},model_requests_per_sec,${rps}" >> "${SUMMARY_CSV}"
+                echo "rest-${model},${runtime},model_p95_latency_ms,${p95_latency}" >> "${SUMMARY_CSV}"
+            done
+            # The binary formats all hit /echo with the default execution model.
+            for format in "${REST_FORMATS[@]}"; do
+                requests=$(grep "rest_requests_${format}\b" "${log_file}" | awk '{print $2}')
+                p95=$(grep "rest_latency_${format}\b" "${log_file}" | grep -o 'p(95)=[^ ]*' | cut -d'=' -f2)
+                if [ -z "${requests}" ] || [ -z "${p95}" ]; then
+                    continue
+                fi
+                rps=$(awk "BEGIN {printf \"%.2f\", ${requests} / ${REST_SCENARIO_SECONDS}}")
+                echo "rest-${format},${runtime},format_requests_per_sec,${rps}" >> "${SUMMARY_CSV}"
+                echo "rest-${format},${runtime},format_p95_latency_ms,$(to_ms "${p95}")" >> "${SUMMARY_CSV}"
+            done
             ;;
         sse)
             max_vus=$(grep 'vus_max' "${log_file}" | awk '{print $2}')
@@ -35,7 +78,7 @@ parse_perf_log() {
             echo "ws,${runtime},total_messages_sent,${msgs_sent}" >> "${SUMMARY_CSV}"
             ;;
         grpc)
-            throughput=$(grep 'Throughput:' "${log_file}" | awk '{gsub(",", ".", $2); print $2}')
+            throughput=$(grep '^Throughput:' "${log_file}" | awk '{gsub(",", ".", $2); print $2}')
             throughput_int=$(printf "%.0f" "$throughput")
             p99_latency_us=$(grep 'p99:' "${log_file}" | awk '{print $NF}')
             p99_latency_ms=$(awk "BEGIN {printf \"%.2f\", ${p99_latency_us} / 1000}")
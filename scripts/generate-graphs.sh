@@ -84,6 +84,10 @@ generate_plot() {
 generate_plot "time_ms" "Startup time" "Time (ms) - Lower is Better" "startup-time.png"
 generate_plot "requests_per_sec" "REST throughput" "Requests/sec - Higher is Better" "rest-throughput.png"
 generate_plot "p95_latency_ms" "REST P95 latency" "Latency (ms) - Lower is Better" "rest-latency.png"
+generate_plot "model_requests_per_sec" "REST throughput by execution model" "Requests/sec - Higher is Better" "rest-model-throughput.png"
+generate_plot "model_p95_latency_ms" "REST P95 latency by execution model" "Latency (ms) - Lower is Better" "rest-model-latency.png"
+generate_plot "format_requests_per_sec" "REST throughput by serialization format" "Requests/sec - Higher is Better" "rest-format-throughput.png"
+generate_plot "format_p95_latency_ms" "REST P95 latency by serialization format" "Latency (ms) - Lower is Better" "rest-format-latency.png"
 generate_plot "messages_per_sec" "gRPC throughput" "Messages/sec - Higher is Better" "grpc-throughput.png"
 generate_plot "p99_latency_ms" "gRPC P99 latency" "Latency (ms) - Lower is Better" "grpc-latency.png"
 generate_plot "total_messages_sent" "WebSocket throughput" "Total Messages Sent - Higher is Better" "ws-throughput.png"
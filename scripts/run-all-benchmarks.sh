@@ -83,7 +83,8 @@ for protocol in "${PROTOCOLS[@]}"; do
         PERF_LOG_FILE="${RESULTS_DIR}/${protocol}-${runtime}.log"
         BENCHMARK_SCRIPT="bench-clients/${protocol}-benchmark.sh"
         echo "     - Applying load..."
-        if ./"${BENCHMARK_SCRIPT}" "${runtime}" | tee "${PERF_LOG_FILE}"; then
+        # The gRPC client also writes its latencies over time as an HdrHistogram interval log.
+        if GRPC_HLOG="${RESULTS_DIR}/${protocol}-${runtime}.hlog" ./"${BENCHMARK_SCRIPT}" "${runtime}" | tee "${PERF_LOG_FILE}"; then
             echo "     ✅  Load test completed."
         else
             echo "     ❌  Load test failed for ${protocol} on ${runtime}. Aborting."; exit 1;
@@ -0,0 +1,218 @@
+package com.apenlor.lab.api;
+
+import com.apenlor.lab.dto.EchoMessage;
+import com.apenlor.lab.service.GreetingService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.quarkus.vertx.http.runtime.RouteConstants;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Serves {@code POST /echo/stream}: echoes a stream of newline-delimited JSON messages.
+ * <p>
+ * Every other endpoint is bound by {@code quarkus.http.limits.max-body-size}, as they buffer their whole body. This
+ * one reads its body chunk by chunk and writes the echoes of each chunk's complete lines before reading the next, so
+ * the memory it uses does not depend on the size of the body. That is why it is served from the Vert.x router, ahead
+ * of the handler enforcing the body size limit, rather than from {@link GreetingResource}. Only a single line is
+ * limited, by {@code lab.rest.echo-stream.max-line-size}.
+ * </p>
+ * <p>
+ * The request is paused while a chunk is processed, and while the response cannot take more data, so a client that
+ * sends faster than the echoes can be written is slowed down by TCP flow control. Lines are parsed and echoed on a
+ * worker thread, as {@link GreetingService} may block.
+ * </p>
+ * <p>
+ * Clients must therefore read the response while they send the body. One that writes its whole body before reading
+ * anything, as most blocking HTTP clients do, deadlocks once the unread echoes fill the socket buffers: the server
+ * stops reading until the echoes drain, and the client never reads them.
+ * </p>
+ */
+@ApplicationScoped
+public class EchoStreamRoute {
+
+    private static final Logger log = LoggerFactory.getLogger(EchoStreamRoute.class);
+
+    private final GreetingService service;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader echoReader;
+    private final ObjectWriter echoWriter;
+    private final long maxLineSize;
+
+    @Inject
+    public EchoStreamRoute(GreetingService service, ObjectMapper objectMapper,
+                           @ConfigProperty(name = "lab.rest.echo-stream.max-line-size", defaultValue = "1048576") long maxLineSize) {
+        this.service = service;
+        this.objectMapper = objectMapper;
+        this.echoReader = objectMapper.readerFor(EchoMessage.class);
+        // Let the generator's buffer decide when to write, instead of flushing after every message.
+        this.echoWriter = objectMapper.writerFor(EchoMessage.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.maxLineSize = maxLineSize;
+    }
+
+    void registerRoute(@Observes Router router) {
+        router.post("/echo/stream")
+                .order(RouteConstants.ROUTE_ORDER_UPLOAD_LIMIT - 1)
+                .consumes(GreetingResource.APPLICATION_NDJSON)
+                .handler(routingContext -> new Exchange(routingContext).start());
+    }
+
+    /**
+     * Parses every complete line of a chunk and echoes it.
+     *
+     * @param lines One or more lines, the last one possibly without its newline.
+     * @return The echoes, one per line, each terminated by a newline.
+     */
+    private Buffer echoLines(Buffer lines) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(lines.length() + 64);
+        try (MappingIterator<EchoMessage> requests = echoReader.readValues(lines.getBytes());
+             JsonGenerator generator = objectMapper.createGenerator(output)) {
+            // Lines are separated explicitly, not by Jackson's default root value separator.
+            generator.setRootValueSeparator(null);
+            while (requests.hasNextValue()) {
+                echoWriter.writeValue(generator, service.echo(requests.nextValue()));
+                generator.writeRaw('\n');
+            }
+        }
+        return Buffer.buffer(output.toByteArray());
+    }
+
+    private static int lastNewline(Buffer data) {
+        for (int i = data.length() - 1; i >= 0; i--) {
+            if (data.getByte(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * One request being echoed. Only accessed from the event loop that owns the connection.
+     */
+    private final class Exchange {
+
+        private final Vertx vertx;
+        private final HttpServerRequest request;
+        private final HttpServerResponse response;
+        // The start of a line whose newline has not arrived yet.
+        private Buffer partial = Buffer.buffer();
+        private boolean processing;
+        private boolean ended;
+        private boolean failed;
+
+        Exchange(RoutingContext routingContext) {
+            this.vertx = routingContext.vertx();
+            this.request = routingContext.request();
+            this.response = routingContext.response();
+        }
+
+        void start() {
+            response.setChunked(true).putHeader(HttpHeaders.CONTENT_TYPE, GreetingResource.APPLICATION_NDJSON);
+            response.drainHandler(ignored -> resume());
+            request.exceptionHandler(this::fail);
+            request.endHandler(ignored -> {
+                ended = true;
+                if (!processing) {
+                    finish();
+                }
+            });
+            request.handler(this::receive);
+        }
+
+        private void receive(Buffer chunk) {
+            if (failed) {
+                return;
+            }
+            Buffer data = partial.length() == 0 ? chunk : partial.appendBuffer(chunk);
+            int end = lastNewline(data) + 1;
+            partial = data.getBuffer(end, data.length());
+            if (partial.length() > maxLineSize) {
+                reject(413, "A line may hold at most " + maxLineSize + " bytes");
+                return;
+            }
+            if (end > 0) {
+                process(data.getBuffer(0, end));
+            }
+        }
+
+        private void process(Buffer lines) {
+            processing = true;
+            request.pause();
+            vertx.executeBlocking(() -> echoLines(lines), false).onComplete(result -> {
+                processing = false;
+                if (result.failed()) {
+                    fail(result.cause());
+                    return;
+                }
+                response.write(result.result());
+                if (ended) {
+                    finish();
+                } else {
+                    resume();
+                }
+            });
+        }
+
+        private void resume() {
+            if (!processing && !ended && !failed && !response.writeQueueFull()) {
+                request.resume();
+            }
+        }
+
+        private void finish() {
+            if (failed) {
+                return;
+            }
+            if (partial.length() > 0) {
+                // The last line was not terminated by a newline.
+                Buffer last = partial;
+                partial = Buffer.buffer();
+                process(last);
+                return;
+            }
+            response.end();
+        }
+
+        private void fail(Throwable failure) {
+            log.debug("Failed to echo NDJSON stream: {}", failure.getMessage());
+            reject(400, failure.getMessage());
+        }
+
+        private void reject(int statusCode, String message) {
+            if (failed) {
+                return;
+            }
+            failed = true;
+            if (response.headWritten()) {
+                // Part of the stream has been echoed already; the client can only tell from the broken connection.
+                response.reset();
+                return;
+            }
+            // The rest of the body is not read, so the connection cannot be reused.
+            response.endHandler(ignored -> request.connection().close());
+            response.setChunked(false)
+                    .setStatusCode(statusCode)
+                    .putHeader(HttpHeaders.CONTENT_TYPE, "text/plain")
+                    .putHeader(HttpHeaders.CONNECTION, "close")
+                    .end(String.valueOf(message));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.apenlor.lab.api;
+
+import io.vertx.core.buffer.Buffer;
+
+import java.util.function.Consumer;
+
+/**
+ * A fixed-size ring of the most recent pre-encoded Server-Sent Events, used to replay what a reconnecting client
+ * missed.
+ * <p>
+ * Event ids are assigned by the ring: they start at 1 and increase by one per event, so the slot of an event is
+ * derived from its id and the ring knows exactly which ids it still holds. The ring is not thread-safe; its owner
+ * guards it.
+ * </p>
+ */
+final class EventRing {
+
+    private final Buffer[] events;
+    private long latestId;
+
+    EventRing(int capacity) {
+        this.events = new Buffer[Math.max(1, capacity)];
+    }
+
+    /**
+     * @return The id the next event will get.
+     */
+    long nextId() {
+        return latestId + 1;
+    }
+
+    /**
+     * @return The id of the most recent event, or 0 if there is none.
+     */
+    long latestId() {
+        return latestId;
+    }
+
+    /**
+     * Stores the next event, evicting the oldest one if the ring is full.
+     *
+     * @param event The encoded event, whose id must be {@link #nextId()}.
+     */
+    void add(Buffer event) {
+        latestId++;
+        events[slot(latestId)] = event;
+    }
+
+    /**
+     * Replays the events that followed the given one, oldest first. If that event has already been evicted, every
+     * event still held is replayed. An id the ring has not issued yet, such as one from another node, replays nothing.
+     *
+     * @param lastEventId The id of the last event the client received.
+     * @param consumer    Receives each event to resend.
+     */
+    void replayAfter(long lastEventId, Consumer<Buffer> consumer) {
+        if (lastEventId < 0 || lastEventId >= latestId) {
+            return;
+        }
+        long oldestId = Math.max(1, latestId - events.length + 1);
+        for (long id = Math.max(lastEventId + 1, oldestId); id <= latestId; id++) {
+            consumer.accept(events[slot(id)]);
+        }
+    }
+
+    private int slot(long id) {
+        return (int) (id % events.length);
+    }
+}
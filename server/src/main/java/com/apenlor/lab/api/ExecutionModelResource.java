@@ -0,0 +1,106 @@
+package com.apenlor.lab.api;
+
+import com.apenlor.lab.dto.EchoMessage;
+import com.apenlor.lab.service.GreetingService;
+import io.smallrye.common.annotation.Blocking;
+import io.smallrye.common.annotation.NonBlocking;
+import io.smallrye.common.annotation.RunOnVirtualThread;
+import io.vertx.core.Context;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import org.jboss.resteasy.reactive.RestResponse;
+
+/**
+ * Variants of the {@link GreetingResource} endpoints, each pinned to one execution model.
+ * <ul>
+ *     <li>{@code /event-loop/*} runs on the Vert.x event loop ({@code @NonBlocking}).</li>
+ *     <li>{@code /worker/*} runs on the worker thread pool ({@code @Blocking}).</li>
+ *     <li>{@code /virtual-thread/*} runs on a new virtual thread per request ({@code @RunOnVirtualThread}).</li>
+ * </ul>
+ * With {@code lab.greeting.simulated-delay} set, the event-loop variants block the event loop on purpose,
+ * to show the cost of blocking I/O on the wrong model.
+ * <p>
+ * Each ping reports the kind of thread that actually served it in the {@value #EXECUTION_MODEL_HEADER} header,
+ * so that a variant wired to the wrong model can be told apart.
+ * </p>
+ */
+@Path("/")
+public class ExecutionModelResource {
+
+    static final String EXECUTION_MODEL_HEADER = "X-Execution-Model";
+
+    private final GreetingService service;
+
+    @Inject
+    public ExecutionModelResource(GreetingService service) {
+        this.service = service;
+    }
+
+    @GET
+    @Path("/event-loop/ping")
+    @Produces(MediaType.TEXT_PLAIN)
+    @NonBlocking
+    public RestResponse<String> pingOnEventLoop() {
+        return ping();
+    }
+
+    @POST
+    @Path("/event-loop/echo")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @NonBlocking
+    public EchoMessage echoOnEventLoop(EchoMessage request) {
+        return service.echo(request);
+    }
+
+    @GET
+    @Path("/worker/ping")
+    @Produces(MediaType.TEXT_PLAIN)
+    @Blocking
+    public RestResponse<String> pingOnWorker() {
+        return ping();
+    }
+
+    @POST
+    @Path("/worker/echo")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Blocking
+    public EchoMessage echoOnWorker(EchoMessage request) {
+        return service.echo(request);
+    }
+
+    @GET
+    @Path("/virtual-thread/ping")
+    @Produces(MediaType.TEXT_PLAIN)
+    @RunOnVirtualThread
+    public RestResponse<String> pingOnVirtualThread() {
+        return ping();
+    }
+
+    @POST
+    @Path("/virtual-thread/echo")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @RunOnVirtualThread
+    public EchoMessage echoOnVirtualThread(EchoMessage request) {
+        return service.echo(request);
+    }
+
+    private RestResponse<String> ping() {
+        return RestResponse.ResponseBuilder.ok(service.ping())
+                .header(EXECUTION_MODEL_HEADER, executionModel())
+                .build();
+    }
+
+    /**
+     * @return The execution model of the calling thread, named like the path prefix of its variants.
+     */
+    private static String executionModel() {
+        if (Thread.currentThread().isVirtual()) {
+            return "virtual-thread";
+        }
+        return Context.isOnEventLoopThread() ? "event-loop" : "worker";
+    }
+}
@@ -6,12 +6,31 @@ import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 
+import java.util.List;
+
 /**
  * This class is the entry point for REST requests.
  */
 @Path("/")
 public class GreetingResource {
 
+    /**
+     * Newline-delimited JSON: one JSON document per line, as served by {@link EchoStreamRoute}.
+     */
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+    /**
+     * Protobuf encoding of the {@code EchoMessage} schema in {@code echo.proto}.
+     */
+    public static final String APPLICATION_PROTOBUF = "application/x-protobuf";
+    /**
+     * Concise Binary Object Representation (RFC 8949) of the JSON DTOs.
+     */
+    public static final String APPLICATION_CBOR = "application/cbor";
+    /**
+     * Jackson's binary JSON format, Smile.
+     */
+    public static final String APPLICATION_SMILE = "application/x-jackson-smile";
+
     private final GreetingService service;
 
     @Inject
@@ -27,17 +46,33 @@ public class GreetingResource {
     }
 
     /**
-     * Echoes a structured JSON message.
-     * This endpoint now consumes and produces JSON, representing a more realistic API contract.
+     * Echoes a structured message.
+     * This endpoint consumes and produces JSON, representing a more realistic API contract. Protobuf, CBOR and Smile
+     * bodies are also accepted and returned, following the Content-Type and Accept headers, so the cost of each
+     * serialization format can be compared on the same endpoint.
      *
      * @param request The EchoMessage object deserialized from the request body.
-     * @return An EchoMessage object which will be serialized to JSON.
+     * @return An EchoMessage object which will be serialized in the negotiated format.
      */
     @POST
     @Path("/echo")
-    @Consumes(MediaType.APPLICATION_JSON)
-    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes({MediaType.APPLICATION_JSON, APPLICATION_PROTOBUF, APPLICATION_CBOR, APPLICATION_SMILE})
+    @Produces({MediaType.APPLICATION_JSON, APPLICATION_PROTOBUF, APPLICATION_CBOR, APPLICATION_SMILE})
     public EchoMessage echo(EchoMessage request) {
         return service.echo(request);
     }
+
+    /**
+     * Echoes a JSON array of messages in a single request, amortizing the per-request overhead.
+     *
+     * @param requests The EchoMessage objects deserialized from the request body.
+     * @return One EchoMessage per request, in the same order.
+     */
+    @POST
+    @Path("/echo/batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public List<EchoMessage> echoBatch(List<EchoMessage> requests) {
+        return service.echoAll(requests);
+    }
 }
\ No newline at end of file
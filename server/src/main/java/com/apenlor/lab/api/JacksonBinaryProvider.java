@@ -0,0 +1,87 @@
+package com.apenlor.lab.api;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.ext.MessageBodyReader;
+import jakarta.ws.rs.ext.MessageBodyWriter;
+import jakarta.ws.rs.ext.Provider;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+/**
+ * Reads and writes the JSON DTOs in Jackson's binary formats, CBOR and Smile.
+ * <p>
+ * Both mappers are copies of the application's {@link ObjectMapper} with a binary factory, so they share its modules
+ * and features and a DTO has the same shape in every format. Only the encoding on the wire differs.
+ * </p>
+ */
+@Provider
+@Consumes({GreetingResource.APPLICATION_CBOR, GreetingResource.APPLICATION_SMILE})
+@Produces({GreetingResource.APPLICATION_CBOR, GreetingResource.APPLICATION_SMILE})
+public class JacksonBinaryProvider implements MessageBodyReader<Object>, MessageBodyWriter<Object> {
+
+    private static final MediaType CBOR = MediaType.valueOf(GreetingResource.APPLICATION_CBOR);
+
+    private final ObjectMapper cborMapper;
+    private final ObjectMapper smileMapper;
+
+    @Inject
+    public JacksonBinaryProvider(ObjectMapper objectMapper) {
+        this.cborMapper = binaryCopy(objectMapper, new CBORFactory());
+        this.smileMapper = binaryCopy(objectMapper, new SmileFactory());
+    }
+
+    private static ObjectMapper binaryCopy(ObjectMapper objectMapper, JsonFactory factory) {
+        // The container owns the entity streams, so Jackson must not close them.
+        return objectMapper.copyWith(factory)
+                .disable(JsonParser.Feature.AUTO_CLOSE_SOURCE)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return true;
+    }
+
+    @Override
+    public Object readFrom(Class<Object> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                           MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException {
+        ObjectMapper mapper = mapperFor(mediaType);
+        try {
+            return mapper.readValue(entityStream, mapper.constructType(genericType));
+        } catch (JsonProcessingException e) {
+            throw new BadRequestException("Malformed " + mediaType + " body", e);
+        }
+    }
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return true;
+    }
+
+    @Override
+    public void writeTo(Object value, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                        MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException {
+        ObjectMapper mapper = mapperFor(mediaType);
+        mapper.writerFor(mapper.constructType(genericType)).writeValue(entityStream, value);
+    }
+
+    private ObjectMapper mapperFor(MediaType mediaType) {
+        return CBOR.isCompatible(mediaType) ? cborMapper : smileMapper;
+    }
+}
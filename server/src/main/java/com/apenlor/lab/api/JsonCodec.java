@@ -0,0 +1,303 @@
+package com.apenlor.lab.api;
+
+import com.apenlor.lab.dto.EchoMessage;
+import com.apenlor.lab.dto.TickerMessage;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Hand-written JSON encoding of the {@link EchoMessage} and {@link TickerMessage} records.
+ * <p>
+ * Jackson databind resolves bean metadata, looks up serializers and runs the {@code Instant} serializer through a
+ * {@code DateTimeFormatter} for every value. The shapes of these two DTOs are fixed, so this codec writes their UTF-8
+ * bytes directly into a reusable per-thread buffer and hands the result to the output stream in a single write. The
+ * output is byte-for-byte what the application's {@code ObjectMapper} produces. Requests are read with Jackson's
+ * streaming parser, without databind.
+ * </p>
+ * <p>
+ * A buffer grown past {@value #MAX_RETAINED_CAPACITY} bytes by a large message is released after that write, so a
+ * pooled thread does not hold on to it. Virtual threads serve a single request and never reuse a buffer, so they get
+ * a fresh one instead of a thread-local.
+ * </p>
+ */
+final class JsonCodec {
+
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes();
+    private static final int SECONDS_PER_DAY = 86_400;
+    // Days from 0000-03-01 to 1970-01-01, in the proleptic Gregorian calendar.
+    private static final int DAYS_0000_TO_1970 = 719_468;
+    private static final int DAYS_PER_400_YEARS = 146_097;
+
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private static final ThreadLocal<JsonCodec> SCRATCH = ThreadLocal.withInitial(JsonCodec::new);
+
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+    private int length;
+
+    private JsonCodec() {
+    }
+
+    /**
+     * Writes an EchoMessage as a JSON object.
+     *
+     * @param message The message to write.
+     * @param output  The stream that receives the encoded bytes in a single write.
+     */
+    static void write(EchoMessage message, OutputStream output) throws IOException {
+        JsonCodec codec = acquire();
+        codec.writeAscii("{\"message\":");
+        codec.writeString(message.message());
+        codec.writeAscii(",\"timestamp\":");
+        codec.writeInstant(message.timestamp());
+        codec.writeByte('}');
+        codec.flushTo(output);
+    }
+
+    /**
+     * Writes a TickerMessage as a JSON object.
+     *
+     * @param message The message to write.
+     * @param output  The stream that receives the encoded bytes in a single write.
+     */
+    static void write(TickerMessage message, OutputStream output) throws IOException {
+        JsonCodec codec = acquire();
+        codec.writeByte('{');
+        if (message.symbol() != null) {
+            // The symbol is omitted for the anonymous ticker, as @JsonInclude(NON_NULL) does.
+            codec.writeAscii("\"symbol\":");
+            codec.writeString(message.symbol());
+            codec.writeByte(',');
+        }
+        codec.writeAscii("\"price\":");
+        codec.writeDouble(message.price());
+        codec.writeAscii(",\"timestamp\":");
+        codec.writeString(message.timestamp());
+        codec.writeByte('}');
+        codec.flushTo(output);
+    }
+
+    /**
+     * Reads an EchoMessage from a JSON object. Unknown properties are ignored, as the application's
+     * {@code ObjectMapper} does.
+     *
+     * @param parser A parser positioned before the object.
+     * @return The message, or null if the input is empty.
+     * @throws IOException If the input is not a valid EchoMessage, e.g. if its message is an object.
+     */
+    static EchoMessage readEcho(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == null || token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token != JsonToken.START_OBJECT) {
+            throw new IOException("Expected an EchoMessage object but found " + token);
+        }
+        String message = null;
+        Instant timestamp = null;
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            JsonToken value = parser.nextToken();
+            if (value != null && value.isStructStart()) {
+                // Skip the whole object or array, so that its own fields are not read as the message's.
+                parser.skipChildren();
+                if (field.equals("message") || field.equals("timestamp")) {
+                    throw new IOException("Expected a string for " + field + " but found " + value);
+                }
+                continue;
+            }
+            switch (field) {
+                case "message" -> message = value == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+                case "timestamp" -> timestamp = value == JsonToken.VALUE_NULL ? null : Instant.parse(parser.getText());
+                default -> {
+                    // An unknown scalar property, ignored.
+                }
+            }
+        }
+        return new EchoMessage(message, timestamp);
+    }
+
+    /**
+     * @return The capacity of the current thread's buffer, as kept between writes.
+     */
+    static int retainedCapacity() {
+        return SCRATCH.get().buffer.length;
+    }
+
+    private static JsonCodec acquire() {
+        JsonCodec codec = Thread.currentThread().isVirtual() ? new JsonCodec() : SCRATCH.get();
+        codec.length = 0;
+        return codec;
+    }
+
+    private void flushTo(OutputStream output) throws IOException {
+        try {
+            output.write(buffer, 0, length);
+        } finally {
+            if (buffer.length > MAX_RETAINED_CAPACITY) {
+                buffer = new byte[INITIAL_CAPACITY];
+            }
+        }
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+        }
+    }
+
+    private void writeByte(int b) {
+        ensureCapacity(1);
+        buffer[length++] = (byte) b;
+    }
+
+    private void writeAscii(String text) {
+        int size = text.length();
+        ensureCapacity(size);
+        for (int i = 0; i < size; i++) {
+            buffer[length++] = (byte) text.charAt(i);
+        }
+    }
+
+    private void writeDouble(double value) {
+        if (Double.isFinite(value)) {
+            writeAscii(Double.toString(value));
+        } else {
+            // Jackson quotes the non-numeric values.
+            writeByte('"');
+            writeAscii(Double.toString(value));
+            writeByte('"');
+        }
+    }
+
+    /**
+     * Writes a quoted, escaped JSON string, using the same escapes as Jackson.
+     */
+    private void writeString(String value) {
+        if (value == null) {
+            writeAscii("null");
+            return;
+        }
+        int size = value.length();
+        // Worst case: every char becomes a six-byte \\u escape.
+        ensureCapacity(size * 6 + 2);
+        byte[] out = buffer;
+        int pos = length;
+        out[pos++] = '"';
+        for (int i = 0; i < size; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c >= 0x20 && c != '"' && c != '\\') {
+                    out[pos++] = (byte) c;
+                    continue;
+                }
+                out[pos++] = '\\';
+                switch (c) {
+                    case '"', '\\' -> out[pos++] = (byte) c;
+                    case '\b' -> out[pos++] = 'b';
+                    case '\t' -> out[pos++] = 't';
+                    case '\n' -> out[pos++] = 'n';
+                    case '\f' -> out[pos++] = 'f';
+                    case '\r' -> out[pos++] = 'r';
+                    default -> {
+                        out[pos++] = 'u';
+                        out[pos++] = '0';
+                        out[pos++] = '0';
+                        out[pos++] = HEX[c >> 4];
+                        out[pos++] = HEX[c & 0xF];
+                    }
+                }
+            } else if (c < 0x800) {
+                out[pos++] = (byte) (0xC0 | (c >> 6));
+                out[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Jackson escapes both halves of a surrogate pair rather than writing a four-byte sequence.
+                out[pos++] = '\\';
+                out[pos++] = 'u';
+                out[pos++] = HEX[c >> 12];
+                out[pos++] = HEX[(c >> 8) & 0xF];
+                out[pos++] = HEX[(c >> 4) & 0xF];
+                out[pos++] = HEX[c & 0xF];
+            } else {
+                out[pos++] = (byte) (0xE0 | (c >> 12));
+                out[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                out[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        out[pos++] = '"';
+        length = pos;
+    }
+
+    /**
+     * Writes an Instant in the ISO-8601 format of {@link Instant#toString()}, which is also what Jackson writes
+     * when dates are not serialized as timestamps: {@code 2024-01-31T12:34:56.789Z}. The fraction has zero, three,
+     * six or nine digits, whichever is the shortest exact one.
+     */
+    private void writeInstant(Instant instant) {
+        if (instant == null) {
+            writeAscii("null");
+            return;
+        }
+        long epochDay = Math.floorDiv(instant.getEpochSecond(), SECONDS_PER_DAY);
+        int secondOfDay = (int) Math.floorMod(instant.getEpochSecond(), SECONDS_PER_DAY);
+
+        // Civil date from the day count, counting years from March so that leap days fall at the end of the year.
+        long z = epochDay + DAYS_0000_TO_1970;
+        long era = Math.floorDiv(z, DAYS_PER_400_YEARS);
+        int dayOfEra = (int) (z - era * DAYS_PER_400_YEARS);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int monthIndex = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * monthIndex + 2) / 5 + 1;
+        int month = monthIndex < 10 ? monthIndex + 3 : monthIndex - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        if (year < 0 || year > 9999) {
+            // Years outside 0000-9999 get a sign or extra digits; leave them to the JDK.
+            writeByte('"');
+            writeAscii(instant.toString());
+            writeByte('"');
+            return;
+        }
+        ensureCapacity(32);
+        writeByte('"');
+        writeDigits((int) year, 4);
+        writeByte('-');
+        writeDigits(month, 2);
+        writeByte('-');
+        writeDigits(day, 2);
+        writeByte('T');
+        writeDigits(secondOfDay / 3600, 2);
+        writeByte(':');
+        writeDigits(secondOfDay / 60 % 60, 2);
+        writeByte(':');
+        writeDigits(secondOfDay % 60, 2);
+        int nanos = instant.getNano();
+        if (nanos != 0) {
+            writeByte('.');
+            if (nanos % 1_000_000 == 0) {
+                writeDigits(nanos / 1_000_000, 3);
+            } else if (nanos % 1_000 == 0) {
+                writeDigits(nanos / 1_000, 6);
+            } else {
+                writeDigits(nanos, 9);
+            }
+        }
+        writeByte('Z');
+        writeByte('"');
+    }
+
+    private void writeDigits(int value, int digits) {
+        for (int i = length + digits - 1; i >= length; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+    }
+}
@@ -0,0 +1,119 @@
+package com.apenlor.lab.api;
+
+import com.apenlor.lab.dto.EchoMessage;
+import com.apenlor.lab.dto.TickerMessage;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.ext.Provider;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.resteasy.reactive.server.spi.ResteasyReactiveResourceInfo;
+import org.jboss.resteasy.reactive.server.spi.ServerMessageBodyReader;
+import org.jboss.resteasy.reactive.server.spi.ServerMessageBodyWriter;
+import org.jboss.resteasy.reactive.server.spi.ServerRequestContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Serves the {@link EchoMessage} and {@link TickerMessage} JSON bodies with the hand-written {@link JsonCodec}
+ * instead of Jackson databind.
+ * <p>
+ * Being specific to these two types, this provider takes precedence over the generic Jackson provider. When
+ * {@code lab.rest.json-codec.enabled} is false it declines every type, so the same endpoints can be benchmarked with
+ * the default Jackson path. The encoded body is copied from the codec's scratch buffer into the response output
+ * stream in a single write.
+ * </p>
+ */
+@Provider
+@Consumes(MediaType.APPLICATION_JSON)
+@Produces(MediaType.APPLICATION_JSON)
+public class JsonCodecProvider implements ServerMessageBodyReader<Object>, ServerMessageBodyWriter<Object> {
+
+    private final boolean enabled;
+    private final JsonFactory jsonFactory;
+
+    @Inject
+    public JsonCodecProvider(@ConfigProperty(name = "lab.rest.json-codec.enabled", defaultValue = "true") boolean enabled,
+                             ObjectMapper objectMapper) {
+        this.enabled = enabled;
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    private boolean handles(Class<?> type) {
+        return enabled && (type == EchoMessage.class || type == TickerMessage.class);
+    }
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, ResteasyReactiveResourceInfo lazyMethod, MediaType mediaType) {
+        return enabled && type == EchoMessage.class;
+    }
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return enabled && type == EchoMessage.class;
+    }
+
+    @Override
+    public Object readFrom(Class<Object> type, Type genericType, MediaType mediaType, ServerRequestContext context)
+            throws IOException {
+        return read(context.getInputStream());
+    }
+
+    @Override
+    public Object readFrom(Class<Object> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                           MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException {
+        return read(entityStream);
+    }
+
+    private EchoMessage read(InputStream entityStream) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(entityStream)) {
+            return JsonCodec.readEcho(parser);
+        } catch (IOException | DateTimeParseException e) {
+            throw new BadRequestException("Malformed EchoMessage JSON body", e);
+        }
+    }
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, ResteasyReactiveResourceInfo target, MediaType mediaType) {
+        return handles(type);
+    }
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return handles(type);
+    }
+
+    @Override
+    public void writeResponse(Object o, Type genericType, ServerRequestContext context) throws IOException {
+        OutputStream stream = context.getOrCreateOutputStream();
+        write(o, stream);
+        // Closing the stream ends the response.
+        stream.close();
+    }
+
+    @Override
+    public void writeTo(Object o, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                        MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException {
+        // Used for Server-Sent Event data, where the container owns the stream.
+        write(o, entityStream);
+    }
+
+    private static void write(Object o, OutputStream stream) throws IOException {
+        if (o instanceof EchoMessage echo) {
+            JsonCodec.write(echo, stream);
+        } else {
+            JsonCodec.write((TickerMessage) o, stream);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.apenlor.lab.api;
+
+import com.apenlor.lab.dto.EchoMessage;
+import com.google.protobuf.InvalidProtocolBufferException;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.ext.MessageBodyReader;
+import jakarta.ws.rs.ext.MessageBodyWriter;
+import jakarta.ws.rs.ext.Provider;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Reads and writes {@link EchoMessage} DTOs as the {@code EchoMessage} protobuf defined in {@code echo.proto}.
+ * <p>
+ * The DTO stays the single model used by the resource and the service; this provider only maps it to and from the
+ * generated protobuf class at the edge, as {@link com.apenlor.lab.grpc.LabGrpcService} does for gRPC.
+ * </p>
+ */
+@Provider
+@Consumes(GreetingResource.APPLICATION_PROTOBUF)
+@Produces(GreetingResource.APPLICATION_PROTOBUF)
+public class ProtobufEchoMessageProvider implements MessageBodyReader<EchoMessage>, MessageBodyWriter<EchoMessage> {
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return type == EchoMessage.class;
+    }
+
+    @Override
+    public EchoMessage readFrom(Class<EchoMessage> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                                MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException {
+        com.apenlor.lab.dto.proto.EchoMessage message;
+        try {
+            message = com.apenlor.lab.dto.proto.EchoMessage.parseFrom(entityStream);
+        } catch (InvalidProtocolBufferException e) {
+            throw new BadRequestException("Expected an EchoMessage protobuf", e);
+        }
+        Instant timestamp;
+        try {
+            timestamp = message.getTimestamp().isEmpty() ? null : Instant.parse(message.getTimestamp());
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException("Expected an ISO 8601 timestamp", e);
+        }
+        return new EchoMessage(message.getMessage(), timestamp);
+    }
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return type == EchoMessage.class;
+    }
+
+    @Override
+    public void writeTo(EchoMessage echoMessage, Class<?> type, Type genericType, Annotation[] annotations,
+                        MediaType mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream)
+            throws IOException {
+        com.apenlor.lab.dto.proto.EchoMessage.Builder message = com.apenlor.lab.dto.proto.EchoMessage.newBuilder();
+        if (echoMessage.message() != null) {
+            message.setMessage(echoMessage.message());
+        }
+        if (echoMessage.timestamp() != null) {
+            message.setTimestamp(echoMessage.timestamp().toString());
+        }
+        message.build().writeTo(entityStream);
+    }
+}
@@ -0,0 +1,433 @@
+package com.apenlor.lab.api;
+
+import com.apenlor.lab.dto.TickerMessage;
+import com.apenlor.lab.service.TickerService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.vertx.http.runtime.RouteConstants;
+import io.smallrye.mutiny.subscription.Cancellable;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves {@code GET /stream/ticker} from the shared ticker, serializing each update to its SSE bytes once.
+ * <p>
+ * The JAX-RS {@link TickerResource} serializes and frames every update separately for each subscriber. This route
+ * sits in front of it on the Vert.x router. It subscribes once to the hot {@link TickerService#ticker()} stream while
+ * at least one client is connected, and turns each update into a single {@code id:}/{@code data:} event buffer. That
+ * buffer is handed to every response without copying. Subscribers are grouped by the event loop that owns their
+ * connection, so a tick costs one task per event loop rather than one per subscriber.
+ * </p>
+ * <p>
+ * The most recent events are kept in an {@link EventRing}. A client that reconnects with a {@code Last-Event-ID}
+ * header first receives the events it missed from the ring, then joins the live stream.
+ * </p>
+ * <p>
+ * Should the shared subscription fail, every stream it was feeding is ended. Clients reconnect, with their
+ * {@code Last-Event-ID}, and the first one to come back subscribes again.
+ * </p>
+ * <p>
+ * With {@code ?symbols=SYM0001,SYM0002}, a client subscribes to {@link TickerService#symbolTicker()} instead. Each
+ * symbol keeps its own set of subscribers, so an update is only encoded if someone follows the symbol, and only
+ * reaches those subscribers. A tick never scans the subscribers of other symbols. Symbol events carry no
+ * {@code id:} and are not kept for replay, so a symbol stream cannot be resumed: a client that reconnects receives
+ * the next tick onwards, and the updates published while it was away are lost.
+ * </p>
+ * <p>
+ * With {@code lab.sse.ticker.delivery=conflate}, a subscriber whose connection is backed up stops queueing updates.
+ * Until the connection drains, each new update replaces the pending one for its symbol, so a slow client holds at
+ * most one event per followed symbol and then catches up with the latest prices. Fast clients never back up and
+ * receive every update. The {@code lab.sse.ticker.conflated} counter tracks the replaced updates and
+ * {@code lab.sse.ticker.dropped} the pending ones discarded when a backed-up client disconnects.
+ * </p>
+ * <p>
+ * Updates are encoded with the hand-written {@link JsonCodec} when {@code lab.rest.json-codec.enabled} is true, like
+ * the JAX-RS endpoints, and with the application's {@code ObjectMapper} otherwise.
+ * </p>
+ * <p>
+ * Set {@code lab.sse.ticker.shared} to false to leave the endpoint to {@link TickerResource}.
+ * </p>
+ */
+@ApplicationScoped
+public class SharedTickerRoute {
+
+    private static final Logger log = LoggerFactory.getLogger(SharedTickerRoute.class);
+    private static final String LAST_EVENT_ID = "Last-Event-ID";
+    // The pending-update key of the anonymous ticker, which has no symbol index.
+    private static final int ANONYMOUS = -1;
+
+    private final TickerService service;
+    private final ObjectMapper objectMapper;
+    private final boolean jsonCodec;
+    private final TickerConfig config;
+    private final Conflation conflation;
+
+    // Open subscriptions to the anonymous ticker, keyed by the event loop context that owns their connection.
+    private final Map<Context, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    // Subscribers of each symbol, indexed like the updates of a symbol tick.
+    private final List<Set<Subscriber>> symbolSubscribers;
+
+    // Guarded by this. Publishing and joining hold the lock so that a joining client either replays an event
+    // or receives it live, never neither.
+    private final EventRing ring;
+    private int subscriberCount;
+    private Cancellable subscription;
+    private int symbolSubscriberCount;
+    private Cancellable symbolSubscription;
+
+    @Inject
+    public SharedTickerRoute(TickerService service, ObjectMapper objectMapper,
+                             @ConfigProperty(name = "lab.rest.json-codec.enabled", defaultValue = "true") boolean jsonCodec,
+                             TickerConfig config, MeterRegistry registry) {
+        this.service = service;
+        this.objectMapper = objectMapper;
+        this.jsonCodec = jsonCodec;
+        this.config = config;
+        this.conflation = Conflation.register(registry);
+        this.ring = new EventRing(config.replaySize());
+        this.symbolSubscribers = new ArrayList<>(service.symbolCount());
+        for (int i = 0; i < service.symbolCount(); i++) {
+            symbolSubscribers.add(ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    void registerRoute(@Observes Router router) {
+        if (config.shared()) {
+            router.get("/stream/ticker")
+                    .order(RouteConstants.ROUTE_ORDER_BEFORE_DEFAULT)
+                    .handler(this::subscribe);
+        }
+    }
+
+    private void subscribe(RoutingContext routingContext) {
+        String symbols = routingContext.request().getParam("symbols");
+        int[] symbolIndexes = null;
+        if (symbols != null && !symbols.isBlank()) {
+            try {
+                symbolIndexes = service.symbolIndexes(symbols);
+            } catch (IllegalArgumentException e) {
+                routingContext.response().setStatusCode(400).end(e.getMessage());
+                return;
+            }
+        }
+
+        HttpServerResponse response = routingContext.response();
+        Subscriber subscriber = new Subscriber(Vertx.currentContext(), response, symbolIndexes,
+                config.delivery() == TickerDelivery.CONFLATE ? conflation : null);
+        response.setChunked(true)
+                .putHeader(HttpHeaders.CONTENT_TYPE, "text/event-stream")
+                .putHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        response.closeHandler(ignored -> unsubscribe(subscriber));
+        response.drainHandler(ignored -> subscriber.drain());
+        response.writeHead();
+
+        if (symbolIndexes != null) {
+            subscribeToSymbols(subscriber);
+        } else {
+            subscribeToTicker(subscriber, parseLastEventId(routingContext.request().getHeader(LAST_EVENT_ID)));
+        }
+    }
+
+    private synchronized void subscribeToTicker(Subscriber subscriber, long lastEventId) {
+        if (lastEventId >= 0) {
+            ring.replayAfter(lastEventId, subscriber.response::write);
+        }
+        // Events published before this point were either replayed or precede the client's Last-Event-ID.
+        subscriber.lastEventId = ring.latestId();
+        subscribers.computeIfAbsent(subscriber.context, ignored -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        if (subscriberCount++ == 0) {
+            subscription = service.ticker().subscribe().with(this::publish, this::tickerFailed);
+        }
+    }
+
+    private synchronized void subscribeToSymbols(Subscriber subscriber) {
+        for (int index : subscriber.symbolIndexes) {
+            symbolSubscribers.get(index).add(subscriber);
+        }
+        if (symbolSubscriberCount++ == 0) {
+            symbolSubscription = service.symbolTicker().subscribe().with(this::publishSymbols, this::symbolTickerFailed);
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        subscriber.close();
+        if (subscriber.symbolIndexes != null) {
+            boolean removed = false;
+            for (int index : subscriber.symbolIndexes) {
+                removed |= symbolSubscribers.get(index).remove(subscriber);
+            }
+            if (!removed) {
+                // Already ended by a failure of the symbol ticker.
+                return;
+            }
+            synchronized (this) {
+                if (--symbolSubscriberCount == 0 && symbolSubscription != null) {
+                    symbolSubscription.cancel();
+                    symbolSubscription = null;
+                }
+            }
+            return;
+        }
+        Set<Subscriber> contextSubscribers = subscribers.get(subscriber.context);
+        if (contextSubscribers == null || !contextSubscribers.remove(subscriber)) {
+            return;
+        }
+        synchronized (this) {
+            if (--subscriberCount == 0 && subscription != null) {
+                subscription.cancel();
+                subscription = null;
+            }
+        }
+    }
+
+    /**
+     * Ends every stream of the anonymous ticker, whose subscription has failed.
+     */
+    private synchronized void tickerFailed(Throwable failure) {
+        log.error("Shared ticker stream failed: {}", failure.getMessage(), failure);
+        subscription = null;
+        subscriberCount = 0;
+        subscribers.forEach((context, contextSubscribers) -> {
+            List<Subscriber> ended = List.copyOf(contextSubscribers);
+            contextSubscribers.clear();
+            context.runOnContext(ignored -> ended.forEach(Subscriber::end));
+        });
+    }
+
+    /**
+     * Ends every stream of the symbol ticker, whose subscription has failed.
+     */
+    private synchronized void symbolTickerFailed(Throwable failure) {
+        log.error("Shared symbol ticker stream failed: {}", failure.getMessage(), failure);
+        symbolSubscription = null;
+        symbolSubscriberCount = 0;
+        Set<Subscriber> ended = new HashSet<>();
+        for (Set<Subscriber> interested : symbolSubscribers) {
+            ended.addAll(interested);
+            interested.clear();
+        }
+        ended.forEach(subscriber -> subscriber.context.runOnContext(ignored -> subscriber.end()));
+    }
+
+    private static long parseLastEventId(String header) {
+        if (header == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(header.trim());
+        } catch (NumberFormatException e) {
+            // Not one of our ids; the client simply joins the live stream.
+            return -1;
+        }
+    }
+
+    /**
+     * Encodes one update as a Server-Sent Event, stores it for replay and hands the same buffer to every subscriber,
+     * from the event loop that owns its connection.
+     */
+    private void publish(TickerMessage message) {
+        byte[] data;
+        try {
+            data = encode(message);
+        } catch (IOException e) {
+            log.error("Failed to serialize ticker update", e);
+            return;
+        }
+        synchronized (this) {
+            long id = ring.nextId();
+            Buffer event = Buffer.buffer(data.length + 32)
+                    .appendString("id:" + id + "\ndata:")
+                    .appendBytes(data)
+                    .appendString("\n\n");
+            ring.add(event);
+            subscribers.forEach((context, contextSubscribers) -> {
+                if (!contextSubscribers.isEmpty()) {
+                    context.runOnContext(ignored -> contextSubscribers.forEach(subscriber -> subscriber.send(id, event)));
+                }
+            });
+        }
+    }
+
+    /**
+     * Delivers one tick of the symbol ticker. Only symbols with subscribers are encoded, once each, and the
+     * deliveries are grouped per event loop so that each loop runs a single task for the whole tick.
+     */
+    private void publishSymbols(List<TickerMessage> tick) {
+        Map<Context, Deliveries> deliveries = new HashMap<>();
+        for (int i = 0; i < symbolSubscribers.size(); i++) {
+            Set<Subscriber> interested = symbolSubscribers.get(i);
+            if (interested.isEmpty()) {
+                continue;
+            }
+            Buffer event;
+            try {
+                byte[] data = encode(tick.get(i));
+                event = Buffer.buffer(data.length + 8).appendString("data:").appendBytes(data).appendString("\n\n");
+            } catch (IOException e) {
+                log.error("Failed to serialize ticker update for {}", tick.get(i).symbol(), e);
+                continue;
+            }
+            for (Subscriber subscriber : interested) {
+                deliveries.computeIfAbsent(subscriber.context, ignored -> new Deliveries()).add(subscriber, i, event);
+            }
+        }
+        deliveries.forEach((context, batch) -> context.runOnContext(ignored -> batch.deliver()));
+    }
+
+    private byte[] encode(TickerMessage message) throws IOException {
+        if (!jsonCodec) {
+            return objectMapper.writeValueAsBytes(message);
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream(128);
+        JsonCodec.write(message, output);
+        return output.toByteArray();
+    }
+
+    /**
+     * The counters of conflated delivery.
+     *
+     * @param conflatedCounter Updates replaced by a newer one for the same symbol while a subscriber was backed up.
+     * @param droppedCounter   Pending updates discarded when a backed-up subscriber disconnected.
+     */
+    record Conflation(Counter conflatedCounter, Counter droppedCounter) {
+
+        static Conflation register(MeterRegistry registry) {
+            return new Conflation(
+                    Counter.builder("lab.sse.ticker.conflated")
+                            .description("Ticker updates replaced by a newer one before a backed-up subscriber could receive them")
+                            .register(registry),
+                    Counter.builder("lab.sse.ticker.dropped")
+                            .description("Pending ticker updates discarded when a backed-up subscriber disconnected")
+                            .register(registry));
+        }
+    }
+
+    /**
+     * One open response. Apart from its initialization under the route's lock, it is only accessed from the event
+     * loop that owns the connection.
+     */
+    static final class Subscriber {
+
+        private final Context context;
+        private final HttpServerResponse response;
+        // The indexes of the followed symbols, or null for the anonymous ticker.
+        private final int[] symbolIndexes;
+        // The counters of conflated delivery, or null when every update is queued.
+        private final Conflation conflation;
+        private long lastEventId;
+        private boolean closed;
+        // While the connection is backed up, the latest undelivered event per symbol index, or under ANONYMOUS.
+        private Map<Integer, Buffer> pending;
+
+        Subscriber(Context context, HttpServerResponse response, int[] symbolIndexes, Conflation conflation) {
+            this.context = context;
+            this.response = response;
+            this.symbolIndexes = symbolIndexes;
+            this.conflation = conflation;
+        }
+
+        private void send(long id, Buffer event) {
+            // A client that joined while this event was being dispatched may already have it from the replay.
+            if (id > lastEventId) {
+                lastEventId = id;
+                send(ANONYMOUS, event);
+            }
+        }
+
+        void send(int symbol, Buffer event) {
+            if (closed) {
+                return;
+            }
+            if (pending != null) {
+                if (pending.put(symbol, event) != null) {
+                    conflation.conflatedCounter().increment();
+                }
+                return;
+            }
+            response.write(event);
+            holdIfBackedUp();
+        }
+
+        /**
+         * Sends the updates held while the connection was backed up, once it has room again.
+         */
+        void drain() {
+            if (pending == null || closed) {
+                return;
+            }
+            Map<Integer, Buffer> held = pending;
+            pending = null;
+            held.values().forEach(response::write);
+            holdIfBackedUp();
+        }
+
+        private void holdIfBackedUp() {
+            if (conflation != null && response.writeQueueFull()) {
+                pending = new LinkedHashMap<>();
+            }
+        }
+
+        /**
+         * Ends the response, for a subscriber that has been removed from the route.
+         */
+        void end() {
+            if (!closed) {
+                close();
+                response.end();
+            }
+        }
+
+        void close() {
+            closed = true;
+            if (pending != null) {
+                conflation.droppedCounter().increment(pending.size());
+                pending = null;
+            }
+        }
+    }
+
+    /**
+     * The events of one symbol tick destined to the subscribers of a single event loop.
+     */
+    private static final class Deliveries {
+
+        private final List<Subscriber> subscribers = new ArrayList<>();
+        private final List<Integer> symbols = new ArrayList<>();
+        private final List<Buffer> events = new ArrayList<>();
+
+        private void add(Subscriber subscriber, int symbol, Buffer event) {
+            subscribers.add(subscriber);
+            symbols.add(symbol);
+            events.add(event);
+        }
+
+        private void deliver() {
+            for (int i = 0; i < subscribers.size(); i++) {
+                subscribers.get(i).send(symbols.get(i).intValue(), events.get(i));
+            }
+        }
+    }
+}
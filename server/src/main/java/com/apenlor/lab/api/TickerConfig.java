@@ -0,0 +1,30 @@
+package com.apenlor.lab.api;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+/**
+ * Settings of the shared SSE ticker served by {@link SharedTickerRoute}.
+ */
+@ConfigMapping(prefix = "lab.sse.ticker")
+public interface TickerConfig {
+
+    /**
+     * @return Whether {@code /stream/ticker} is served from the shared, pre-encoded ticker instead of the
+     * per-subscriber JAX-RS resource.
+     */
+    @WithDefault("true")
+    boolean shared();
+
+    /**
+     * @return The number of recent events kept for clients that reconnect with a {@code Last-Event-ID} header.
+     */
+    @WithDefault("64")
+    int replaySize();
+
+    /**
+     * @return How updates are delivered to a subscriber whose connection is backed up.
+     */
+    @WithDefault("conflate")
+    TickerDelivery delivery();
+}
@@ -0,0 +1,16 @@
+package com.apenlor.lab.api;
+
+/**
+ * What {@link SharedTickerRoute} does with updates for a subscriber whose connection cannot keep up.
+ */
+public enum TickerDelivery {
+    /**
+     * Queue every update on the connection, however far behind the client is.
+     */
+    QUEUE,
+    /**
+     * While the connection is backed up, keep only the latest pending update per symbol, or the latest one for the
+     * anonymous ticker, and send it once the connection drains.
+     */
+    CONFLATE
+}
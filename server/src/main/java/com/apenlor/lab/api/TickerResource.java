@@ -1,41 +1,50 @@
 package com.apenlor.lab.api;
 
 import com.apenlor.lab.dto.TickerMessage;
+import com.apenlor.lab.service.TickerService;
 import io.smallrye.mutiny.Multi;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.BadRequestException;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.core.MediaType;
+import org.jboss.resteasy.reactive.RestQuery;
 import org.jboss.resteasy.reactive.RestStreamElementType;
 
-import java.time.Duration;
-import java.time.Instant;
-import java.util.Random;
-
 @Path("/stream")
 public class TickerResource {
 
-    private final Random random = new Random();
+    private final TickerService service;
+
+    @Inject
+    public TickerResource(TickerService service) {
+        this.service = service;
+    }
 
     /**
      * Endpoint that streams a new TickerMessage every second.
      * Quarkus RESTEasy Reactive automatically handles serializing the message
      * objects into JSON and formatting them as valid Server-Sent Events.
+     * This runs once per subscriber; unless {@code lab.sse.ticker.shared} is disabled,
+     * {@link SharedTickerRoute} serves this path instead and serializes each update once.
      *
+     * @param symbols Optional comma-separated symbols, e.g. {@code SYM0001,SYM0002}. When present, the stream
+     *                carries one update per listed symbol per tick instead of the anonymous ticker.
      * @return A Multi (reactive stream) of TickerMessage objects.
      */
     @GET
     @Path("/ticker")
     @Produces(MediaType.SERVER_SENT_EVENTS)
     @RestStreamElementType(MediaType.APPLICATION_JSON)
-    public Multi<TickerMessage> streamTicker() {
-        // Generate a new event every second
-        return Multi.createFrom().ticks().every(Duration.ofSeconds(1))
-                .map(tick -> {
-                    // Generate a random price
-                    double price = 100 + random.nextDouble() * 10;
-                    String timestamp = Instant.now().toString();
-                    return new TickerMessage(price, timestamp);
-                });
+    public Multi<TickerMessage> streamTicker(@RestQuery String symbols) {
+        if (symbols == null || symbols.isBlank()) {
+            return service.ticker();
+        }
+        try {
+            return service.ticker(service.symbolIndexes(symbols));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
     }
-}
\ No newline at end of file
+}
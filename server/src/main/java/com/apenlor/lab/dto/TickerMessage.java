@@ -1,11 +1,24 @@
 package com.apenlor.lab.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 /**
  * DTO representing a single stock ticker update.
  * Using a record for a concise, immutable data carrier.
  *
+ * @param symbol    The symbol the price belongs to, or null for the anonymous ticker. Omitted from JSON when null.
  * @param price     The random price for the ticker.
  * @param timestamp The ISO-8601 timestamp of when the event was generated.
  */
-public record TickerMessage(double price, String timestamp) {
-}
\ No newline at end of file
+public record TickerMessage(@JsonInclude(JsonInclude.Include.NON_NULL) String symbol, double price, String timestamp) {
+
+    /**
+     * Creates an update of the anonymous ticker, which has no symbol.
+     *
+     * @param price     The random price for the ticker.
+     * @param timestamp The ISO-8601 timestamp of when the event was generated.
+     */
+    public TickerMessage(double price, String timestamp) {
+        this(null, price, timestamp);
+    }
+}
@@ -0,0 +1,72 @@
+package com.apenlor.lab.grpc;
+
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.Counter;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link HubSubscriber} that delivers messages in {@link ChatBatch}es, for {@code BidiChatCoalesced} streams.
+ * <p>
+ * The first drain that finds messages pending arms a one-shot timer instead of emitting, and the batch is sent when
+ * the timer fires or as soon as enough messages are pending, whichever comes first. No message waits longer than
+ * the window, and an idle client costs no periodic timer.
+ * </p>
+ */
+final class BatchSubscriber extends HubSubscriber<ChatBatch> {
+
+    private final long windowNanos;
+    private final int maxMessages;
+
+    private volatile boolean windowElapsed;
+    // Only accessed while draining.
+    private ScheduledFuture<?> scheduledDrain;
+
+    BatchSubscriber(ChatHub hub, long connectionId, ChatGrpcConfig.Stream limits, Counter droppedCounter,
+                    StreamObserver<ChatBatch> observer, Duration window, int maxMessages) {
+        super(hub, connectionId, limits, droppedCounter, observer);
+        this.windowNanos = window.toNanos();
+        this.maxMessages = Math.max(1, maxMessages);
+    }
+
+    @Override
+    protected void drain(ServerCallStreamObserver<ChatBatch> observer) {
+        long backlog = backlog();
+        if (backlog == 0 || !observer.isReady()) {
+            return;
+        }
+        if (windowNanos > 0 && !windowElapsed && backlog < maxMessages) {
+            if (scheduledDrain == null) {
+                scheduledDrain = Infrastructure.getDefaultWorkerPool().schedule(this::onWindowElapsed, windowNanos, TimeUnit.NANOSECONDS);
+            }
+            return;
+        }
+        windowElapsed = false;
+        if (scheduledDrain != null) {
+            scheduledDrain.cancel(false);
+            scheduledDrain = null;
+        }
+
+        // Whatever is left once the call stops being ready waits for the on-ready handler.
+        while (observer.isReady()) {
+            ChatBatch.Builder batch = ChatBatch.newBuilder();
+            HubEntry entry;
+            while (batch.getMessagesCount() < maxMessages && (entry = poll()) != null) {
+                batch.addMessages(entry.v1());
+            }
+            if (batch.getMessagesCount() == 0) {
+                return;
+            }
+            observer.onNext(batch.build());
+        }
+    }
+
+    private void onWindowElapsed() {
+        windowElapsed = true;
+        signal();
+    }
+}
@@ -0,0 +1,75 @@
+package com.apenlor.lab.grpc;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+import java.time.Duration;
+
+/**
+ * Tuning of the gRPC chat service, bound from the {@code lab.grpc.chat} configuration prefix.
+ */
+@ConfigMapping(prefix = "lab.grpc.chat")
+public interface ChatGrpcConfig {
+
+    /**
+     * @return The number of recent messages kept by the {@link ChatHub}, rounded up to a power of two. A client that
+     * falls further behind than this loses the oldest messages.
+     */
+    @WithDefault("1024")
+    int bufferSize();
+
+    /**
+     * @return The maximum number of messages per {@link ChatBatch} delivered to {@code BidiChatBatch} clients.
+     */
+    @WithDefault("256")
+    int maxBatchSize();
+
+    /**
+     * @return The flow-control limits applied to every client stream.
+     */
+    Stream stream();
+
+    /**
+     * @return The coalescing applied to {@code BidiChatCoalesced} streams.
+     */
+    Coalesce coalesce();
+
+    /**
+     * Per-client flow control. Messages are only written while the client's call is ready, which follows its HTTP/2
+     * flow-control window, so a client that stops reading accumulates a backlog in the hub. The backlog is bounded by
+     * {@link #maxLag()}.
+     */
+    interface Stream {
+
+        /**
+         * @return The number of pending messages a client may fall behind before {@link #overflow()} applies. Capped
+         * at the hub's buffer size.
+         */
+        @WithDefault("256")
+        int maxLag();
+
+        /**
+         * @return The strategy applied once a client exceeds {@link #maxLag()}.
+         */
+        @WithDefault("drop")
+        StreamOverflow overflow();
+    }
+
+    /**
+     * Time-window coalescing of the messages delivered to one client.
+     */
+    interface Coalesce {
+
+        /**
+         * @return How long the first pending message may wait for others before the batch is sent.
+         */
+        @WithDefault("2ms")
+        Duration window();
+
+        /**
+         * @return The number of pending messages that triggers sending the batch before the window expires.
+         */
+        @WithDefault("64")
+        int maxMessages();
+    }
+}
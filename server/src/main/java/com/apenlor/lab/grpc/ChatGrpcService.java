@@ -1,84 +1,145 @@
 package com.apenlor.lab.grpc;
 
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
 import io.quarkus.grpc.GrpcService;
-import io.smallrye.mutiny.Multi;
-import io.smallrye.mutiny.operators.multi.processors.BroadcastProcessor;
+import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.time.Instant;
-import java.time.ZoneOffset;
-import java.time.format.DateTimeFormatter;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.time.Duration;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Implements the gRPC ChatService for bidirectional, real-time communication.
  * This service acts as a central hub for a chat room and implements
  * backend-side sender exclusion to prevent message echoing.
+ * <p>
+ * The service uses the plain gRPC stubs rather than the Mutiny ones: response streams are written directly through
+ * their {@link io.grpc.stub.ServerCallStreamObserver}, whose readiness reflects the HTTP/2 flow control of the
+ * client. The Mutiny bridge requests an unbounded number of items, so a client that stops reading would never slow
+ * its stream down.
+ * </p>
  */
 @GrpcService
 @Singleton
-public class ChatGrpcService extends MutinyChatServiceGrpc.ChatServiceImplBase {
+public class ChatGrpcService extends ChatServiceGrpc.ChatServiceImplBase {
 
     private static final Logger log = LoggerFactory.getLogger(ChatGrpcService.class);
 
     /**
-     * We use a ConcurrentHashMap to manage the connections
-     * Key: A unique String ID (UUID) for each connected client
-     * Value: A BroadcastProcessor, which acts as the entry point for pushing messages TO that specific client.
-     * This map represents our "chat room" of active participants.
+     * The shared fan-out hub represents our "chat room" of active participants.
+     * Each message is stored there once and every client reads it at its own pace,
+     * instead of being pushed into a dedicated processor per client.
      */
-    private final ConcurrentHashMap<String, BroadcastProcessor<ChatMessage>> activeConnections = new ConcurrentHashMap<>();
+    private final ChatHub hub;
+    private final ChatGrpcConfig config;
+
+    @Inject
+    public ChatGrpcService(ChatHub hub, ChatGrpcConfig config) {
+        this.hub = hub;
+        this.config = config;
+    }
+
+    @Override
+    public StreamObserver<ChatMessage> bidiChat(StreamObserver<ChatMessage> responseObserver) {
+        // Register a dedicated cursor into the hub for this client. The response observer is the "pipe"
+        // through which this client will receive messages broadcasted from other clients.
+        final MessageSubscriber<ChatMessage> subscriber = hub.subscribeMessages(HubEntry::v1, responseObserver);
+        return join(subscriber, ChatMessage::getSender, ChatMessage::getMessage);
+    }
+
+    @Override
+    public StreamObserver<ChatMessage> bidiChatCoalesced(StreamObserver<ChatBatch> responseObserver) {
+        // Messages for this client are collected for up to one window and delivered as a single batch.
+        final BatchSubscriber subscriber = hub.subscribeBatches(config.coalesce().window(), config.coalesce().maxMessages(), responseObserver);
+        return join(subscriber, ChatMessage::getSender, ChatMessage::getMessage);
+    }
+
+    @Override
+    public StreamObserver<ChatMessageV2> bidiChatV2(StreamObserver<ChatMessageV2> responseObserver) {
+        // Same chat as bidiChat; only the wire representation of the messages differs.
+        final MessageSubscriber<ChatMessageV2> subscriber = hub.subscribeMessages(HubEntry::v2, responseObserver);
+        return join(subscriber, ChatMessageV2::getSender, ChatMessageV2::getMessage);
+    }
 
     @Override
-    public Multi<ChatMessage> bidiChat(Multi<ChatMessage> request) {
-        // Generate a unique identifier for the connection
-        final String connectionId = UUID.randomUUID().toString();
-        // Create a dedicated processor for this client
-        final BroadcastProcessor<ChatMessage> clientProcessor = BroadcastProcessor.create();
-
-        activeConnections.put(connectionId, clientProcessor);
-        log.info("New client connected with ID: {}. Total clients: {}", connectionId, activeConnections.size());
-
-
-        // We subscribe to the stream of messages coming FROM this client.
-        request
-                // The .onTermination() operator is a cleanup mechanism. Called when the stream completes
-                // (client disconnects gracefully) or fails (error).
-                .onTermination().invoke(() -> {
-                    activeConnections.remove(connectionId);
-                    log.info("Client disconnected with ID: {}. Total clients: {}", connectionId, activeConnections.size());
-                })
-                .subscribe().with(
-                        // This is the handler for each message received FROM the client.
-                        incomingMessage -> {
-                            log.info("Message from [{}]: {}", incomingMessage.getSender(), incomingMessage.getMessage());
-
-                            // Enrich the message with a server-side timestamp.
-                            ChatMessage broadcastMessage = ChatMessage.newBuilder()
-                                    .setSender(incomingMessage.getSender())
-                                    .setMessage(incomingMessage.getMessage())
-                                    .setTimestamp(Instant.now().atOffset(ZoneOffset.UTC).format(DateTimeFormatter.ISO_INSTANT))
-                                    .build();
-
-                            // Iterate over all active connections to broadcast the message
-                            activeConnections.forEach((id, processor) -> {
-                                // only send the message to other clients
-                                if (!id.equals(connectionId)) {
-                                    // The onNext method pushes the item to the processor's subscribers.
-                                    processor.onNext(broadcastMessage);
-                                }
-                            });
-                        },
-                        // This is the handler for an error in the client's incoming stream
-                        failure -> log.error("Client stream for {} failed: {}", connectionId, failure.getMessage())
-                );
-
-        // We return the client's personal processor, converted to a Multi (a reactive stream).
-        // This is the "pipe" through which this client will receive messages broadcasted
-        // from other clients.
-        return Multi.createFrom().publisher(clientProcessor);
+    public StreamObserver<ChatBatch> bidiChatBatch(StreamObserver<ChatBatch> responseObserver) {
+        // Deliver whatever is pending in each drain as one batch, without waiting for a window.
+        final BatchSubscriber subscriber = hub.subscribeBatches(Duration.ZERO, config.maxBatchSize(), responseObserver);
+        final long connectionId = subscriber.connectionId();
+        return join(subscriber, incomingBatch -> {
+            log.debug("Batch of {} messages from client {}", incomingBatch.getMessagesCount(), connectionId);
+            if (incomingBatch.getMessagesCount() > hub.capacity()) {
+                // The batch would lap every other client before they could read its first messages.
+                log.warn("Rejecting batch of {} messages from client {}", incomingBatch.getMessagesCount(), connectionId);
+                subscriber.fail(Status.INVALID_ARGUMENT
+                        .withDescription("A batch may hold at most " + hub.capacity() + " messages")
+                        .asRuntimeException());
+                return;
+            }
+            // The whole batch is appended to the hub at once and wakes the other clients a single time.
+            hub.publishAll(connectionId, incomingBatch.getMessagesList());
+        });
+    }
+
+    /**
+     * Publishes every message sent by a client to the hub, and removes the client when its stream terminates.
+     *
+     * @param subscriber The client's subscription to the hub.
+     * @param sender     Extracts the sender's username from an incoming message.
+     * @param message    Extracts the content from an incoming message.
+     * @param <M>        The wire representation of the incoming messages.
+     * @return The observer of the messages coming FROM the client.
+     */
+    private <M> StreamObserver<M> join(HubSubscriber<?> subscriber, Function<M, String> sender, Function<M, String> message) {
+        final long connectionId = subscriber.connectionId();
+        return join(subscriber, incomingMessage -> {
+            String senderName = sender.apply(incomingMessage);
+            String content = message.apply(incomingMessage);
+            log.info("Message from [{}]: {}", senderName, content);
+
+            // Store the message once; the hub stamps it with a server-side timestamp and
+            // message id, and wakes every other client to read it.
+            hub.publish(connectionId, senderName, content);
+        });
+    }
+
+    /**
+     * Hands every item sent by a client to a publisher, and removes the client when its stream terminates.
+     *
+     * @param subscriber The client's subscription to the hub.
+     * @param publisher  Publishes one incoming item to the hub.
+     * @param <M>        The wire representation of the incoming items.
+     * @return The observer of the items coming FROM the client.
+     */
+    private <M> StreamObserver<M> join(HubSubscriber<?> subscriber, Consumer<M> publisher) {
+        final long connectionId = subscriber.connectionId();
+        log.info("New client connected with ID: {}. Total clients: {}", connectionId, hub.subscriberCount());
+
+        return new StreamObserver<>() {
+            @Override
+            public void onNext(M item) {
+                // This is the handler for each item received FROM the client.
+                publisher.accept(item);
+            }
+
+            @Override
+            public void onError(Throwable failure) {
+                // The client's incoming stream failed or was cancelled; its response stream is gone too.
+                log.error("Client stream for {} failed: {}", connectionId, failure.getMessage());
+                subscriber.cancel();
+                log.info("Client disconnected with ID: {}. Total clients: {}", connectionId, hub.subscriberCount());
+            }
+
+            @Override
+            public void onCompleted() {
+                // The client disconnected gracefully; complete its response stream as well.
+                subscriber.complete();
+                log.info("Client disconnected with ID: {}. Total clients: {}", connectionId, hub.subscriberCount());
+            }
+        };
     }
 }
\ No newline at end of file
@@ -0,0 +1,218 @@
+package com.apenlor.lab.grpc;
+
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * The shared fan-out hub of the gRPC chat room.
+ * <p>
+ * Every published message is stored once in a sequenced ring buffer, stamped with its sequence as message id and
+ * with the time it was published. Each connected client is represented by a
+ * {@link HubSubscriber} that reads the buffer at its own cursor, so storing a message costs one slot write and one
+ * sequence increment whatever the size of the room. Waking the subscribers is still linear in their number: each
+ * one takes an atomic increment and, unless a drain is already pending, schedules one on the client's own call
+ * context. Wake-ups are thus deduplicated, the writes to different clients run in parallel and each subscriber
+ * drains every message published since it last ran.
+ * </p>
+ * <p>
+ * Messages carry the numeric id of the connection that sent them, which lets subscribers skip their own messages
+ * with a {@code long} comparison. A subscriber that falls more than the buffer size behind loses the overwritten
+ * messages and resumes from the oldest one still buffered.
+ * </p>
+ * <p>
+ * Each connection exposes its backlog in the {@code lab.grpc.chat.stream.depth} gauge and the messages it skipped,
+ * through its overflow strategy or by being lapped, in the {@code lab.grpc.chat.stream.dropped} counter, both tagged
+ * with the connection id. The meters are removed when the connection leaves.
+ * </p>
+ */
+@Singleton
+public class ChatHub {
+
+    private static final HubSubscriber<?>[] NO_SUBSCRIBERS = new HubSubscriber<?>[0];
+
+    private final ChatGrpcConfig config;
+    private final MeterRegistry registry;
+    private final HubEntry[] ring;
+    private final int mask;
+    // The sequence of the next message to be published, which is also the number of messages published so far.
+    private volatile long published;
+
+    private volatile HubSubscriber<?>[] subscribers = NO_SUBSCRIBERS;
+    private final AtomicLong connectionIds = new AtomicLong();
+
+    @Inject
+    public ChatHub(ChatGrpcConfig config, MeterRegistry registry) {
+        this.config = config;
+        this.registry = registry;
+        int capacity = Integer.highestOneBit(Math.max(1, config.bufferSize() - 1)) << 1;
+        this.ring = new HubEntry[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Registers a client that receives every message individually.
+     *
+     * @param version  Selects the wire representation of each entry, such as {@link HubEntry#v1()}.
+     * @param observer The client's response stream.
+     * @param <T>      The type of the messages streamed to the client.
+     * @return The new subscriber. Its stream starts with the next message published.
+     */
+    <T> MessageSubscriber<T> subscribeMessages(Function<HubEntry, T> version, StreamObserver<T> observer) {
+        long connectionId = connectionIds.incrementAndGet();
+        return register(new MessageSubscriber<>(this, connectionId, config.stream(), droppedCounter(connectionId), observer, version));
+    }
+
+    /**
+     * Registers a client that receives messages grouped into batches.
+     *
+     * @param window      How long the first pending message may wait for others before the batch is sent.
+     * @param maxMessages The number of pending messages that sends the batch before the window expires.
+     * @param observer    The client's response stream.
+     * @return The new subscriber. Its stream starts with the next message published.
+     */
+    BatchSubscriber subscribeBatches(Duration window, int maxMessages, StreamObserver<ChatBatch> observer) {
+        long connectionId = connectionIds.incrementAndGet();
+        return register(new BatchSubscriber(this, connectionId, config.stream(), droppedCounter(connectionId), observer, window, maxMessages));
+    }
+
+    /**
+     * Appends a message to the buffer, stamped with the current time, and wakes the subscribers.
+     *
+     * @param senderId The id of the publishing connection, which will not receive the message.
+     * @param sender   The username of the sender.
+     * @param message  The content of the message.
+     */
+    void publish(long senderId, String sender, String message) {
+        long timestampNanos = nowNanos();
+        synchronized (ring) {
+            long sequence = published;
+            ring[(int) (sequence & mask)] = new HubEntry(sequence, senderId, sender, message, timestampNanos);
+            // The volatile write makes the slot visible to every subscriber that reads the new sequence.
+            published = sequence + 1;
+        }
+        wakeSubscribers();
+    }
+
+    /**
+     * Appends a batch of messages to the buffer under a single lock acquisition, stamped with the same time, and
+     * wakes the subscribers once.
+     * <p>
+     * A batch may hold at most {@link #capacity()} messages: a larger one would overwrite its own first messages
+     * before any subscriber could read them.
+     * </p>
+     *
+     * @param senderId The id of the publishing connection, which will not receive the messages.
+     * @param messages The messages to broadcast, in order. Their timestamps are ignored.
+     * @throws IllegalArgumentException If the batch holds more messages than the buffer.
+     */
+    void publishAll(long senderId, List<ChatMessage> messages) {
+        if (messages.size() > ring.length) {
+            throw new IllegalArgumentException(
+                    "Batch of " + messages.size() + " messages exceeds the chat buffer of " + ring.length);
+        }
+        if (messages.isEmpty()) {
+            return;
+        }
+        long timestampNanos = nowNanos();
+        synchronized (ring) {
+            long sequence = published;
+            for (ChatMessage message : messages) {
+                ring[(int) (sequence & mask)] = new HubEntry(sequence, senderId, message.getSender(), message.getMessage(), timestampNanos);
+                sequence++;
+            }
+            published = sequence;
+        }
+        wakeSubscribers();
+    }
+
+    /**
+     * @return The number of connected clients.
+     */
+    public int subscriberCount() {
+        return subscribers.length;
+    }
+
+    /**
+     * @return The number of messages the buffer holds, which is also the largest batch that can be published.
+     */
+    int capacity() {
+        return ring.length;
+    }
+
+    long published() {
+        return published;
+    }
+
+    /**
+     * @return The sequence of the oldest message still held in the buffer.
+     */
+    long oldest() {
+        return Math.max(0, published - ring.length);
+    }
+
+    /**
+     * Reads the message at a sequence lower than {@link #published()}.
+     *
+     * @return The entry, or null if it has already been overwritten.
+     */
+    HubEntry entry(long sequence) {
+        HubEntry entry = ring[(int) (sequence & mask)];
+        return entry != null && entry.sequence() == sequence ? entry : null;
+    }
+
+    synchronized void unsubscribe(HubSubscriber<?> subscriber) {
+        HubSubscriber<?>[] current = subscribers;
+        int index = Arrays.asList(current).indexOf(subscriber);
+        if (index < 0) {
+            return;
+        }
+        String connection = Long.toString(subscriber.connectionId());
+        registry.find("lab.grpc.chat.stream.depth").tag("connection", connection).meters().forEach(registry::remove);
+        registry.find("lab.grpc.chat.stream.dropped").tag("connection", connection).meters().forEach(registry::remove);
+        HubSubscriber<?>[] updated = new HubSubscriber<?>[current.length - 1];
+        System.arraycopy(current, 0, updated, 0, index);
+        System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+        subscribers = updated;
+    }
+
+    private synchronized <S extends HubSubscriber<?>> S register(S subscriber) {
+        HubSubscriber<?>[] current = subscribers;
+        HubSubscriber<?>[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = subscriber;
+        subscribers = updated;
+        Gauge.builder("lab.grpc.chat.stream.depth", subscriber, HubSubscriber::backlog)
+                .description("Messages published to the chat but not yet delivered to this connection")
+                .tag("connection", Long.toString(subscriber.connectionId()))
+                .register(registry);
+        return subscriber;
+    }
+
+    private Counter droppedCounter(long connectionId) {
+        return Counter.builder("lab.grpc.chat.stream.dropped")
+                .description("Messages skipped because this connection fell too far behind")
+                .tag("connection", Long.toString(connectionId))
+                .register(registry);
+    }
+
+    private static long nowNanos() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000_000L + now.getNano();
+    }
+
+    private void wakeSubscribers() {
+        for (HubSubscriber<?> subscriber : subscribers) {
+            subscriber.signal();
+        }
+    }
+}
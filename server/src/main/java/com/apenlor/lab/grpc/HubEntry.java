@@ -0,0 +1,84 @@
+package com.apenlor.lab.grpc;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * A message stored in the {@link ChatHub}'s ring buffer, independent of the wire version it is delivered in.
+ * <p>
+ * The v1 and v2 protobuf representations are built lazily by the first subscriber that needs them and then shared
+ * by every other recipient of the same version. A chat with only v2 clients therefore never formats an ISO 8601
+ * timestamp. Two subscribers racing on the first access may both build the message; they build equal messages and
+ * either one may be kept.
+ * </p>
+ */
+final class HubEntry {
+
+    private final long sequence;
+    private final long senderId;
+    private final String sender;
+    private final String message;
+    private final long timestampNanos;
+
+    private volatile ChatMessage v1;
+    private volatile ChatMessageV2 v2;
+
+    HubEntry(long sequence, long senderId, String sender, String message, long timestampNanos) {
+        this.sequence = sequence;
+        this.senderId = senderId;
+        this.sender = sender;
+        this.message = message;
+        this.timestampNanos = timestampNanos;
+    }
+
+    /**
+     * @return The position of the message in the hub's history, which is also its message id.
+     */
+    long sequence() {
+        return sequence;
+    }
+
+    /**
+     * @return The id of the connection that published the message.
+     */
+    long senderId() {
+        return senderId;
+    }
+
+    /**
+     * @return The message with an ISO 8601 timestamp, as delivered to v1 clients.
+     */
+    ChatMessage v1() {
+        ChatMessage built = v1;
+        if (built == null) {
+            long seconds = Math.floorDiv(timestampNanos, 1_000_000_000L);
+            long nanos = Math.floorMod(timestampNanos, 1_000_000_000L);
+            built = ChatMessage.newBuilder()
+                    .setSender(sender)
+                    .setMessage(message)
+                    .setTimestamp(Instant.ofEpochSecond(seconds, nanos).atOffset(ZoneOffset.UTC).format(DateTimeFormatter.ISO_INSTANT))
+                    .build();
+            v1 = built;
+        }
+        return built;
+    }
+
+    /**
+     * @return The message with numeric metadata, as delivered to v2 clients.
+     */
+    ChatMessageV2 v2() {
+        ChatMessageV2 built = v2;
+        if (built == null) {
+            built = ChatMessageV2.newBuilder()
+                    .setMessageId(sequence)
+                    .setTimestampNanos(timestampNanos)
+                    .setSenderId(senderId)
+                    .setSender(sender)
+                    .setMessage(message)
+                    .build();
+            v2 = built;
+        }
+        return built;
+    }
+}
@@ -0,0 +1,215 @@
+package com.apenlor.lab.grpc;
+
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.Counter;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One client's view of the {@link ChatHub}: a cursor into the shared buffer and the stream it feeds.
+ * <p>
+ * {@link #signal()} may be called from any thread and only schedules a drain on the context of the client's call,
+ * captured when it subscribed. Drains of different clients therefore run in parallel on their own event loops,
+ * while the drains of one client are serialized with a work-in-progress counter: a signal that arrives while a
+ * drain is pending or running makes that drain loop once more instead of scheduling another one.
+ * </p>
+ * <p>
+ * Items are only written while the call {@link ServerCallStreamObserver#isReady() is ready}, that is while the
+ * transport can take them without buffering beyond its flow-control window. Messages a slow client has not read
+ * stay in the hub's shared buffer rather than in a per-client queue, and the distance between the cursor and the
+ * newest message is bounded by {@code maxLag}. The call's on-ready handler signals a drain once the client catches
+ * up.
+ * </p>
+ *
+ * @param <T> The type of the items streamed to the client.
+ */
+abstract class HubSubscriber<T> {
+
+    private static final Logger log = LoggerFactory.getLogger(HubSubscriber.class);
+
+    protected final ChatHub hub;
+    protected final long connectionId;
+    private final long maxLag;
+    private final StreamOverflow overflow;
+    private final Counter droppedCounter;
+
+    private final ServerCallStreamObserver<T> observer;
+    private final Executor executor;
+    private final AtomicInteger wip = new AtomicInteger();
+    private volatile boolean terminated;
+    private volatile boolean completed;
+    private volatile StatusRuntimeException failure;
+    // Only written while draining; volatile so the depth gauge can read it.
+    private volatile long cursor;
+
+    HubSubscriber(ChatHub hub, long connectionId, ChatGrpcConfig.Stream limits, Counter droppedCounter,
+                  StreamObserver<T> observer) {
+        this.hub = hub;
+        this.connectionId = connectionId;
+        this.maxLag = Math.max(1, Math.min(limits.maxLag(), hub.capacity()));
+        this.overflow = limits.overflow();
+        this.droppedCounter = droppedCounter;
+        this.cursor = hub.published();
+        // Server streams are always ServerCallStreamObservers; the cast exposes their readiness.
+        this.observer = (ServerCallStreamObserver<T>) observer;
+        this.executor = callExecutor();
+        this.observer.setOnReadyHandler(this::signal);
+        this.observer.setOnCancelHandler(this::cancel);
+    }
+
+    /**
+     * @return The numeric id identifying this client as a sender.
+     */
+    long connectionId() {
+        return connectionId;
+    }
+
+    /**
+     * Requests a drain of the messages published since the last one. Returns without waiting for it.
+     */
+    void signal() {
+        if (wip.getAndIncrement() == 0) {
+            executor.execute(this::drainLoop);
+        }
+    }
+
+    /**
+     * @return An executor running tasks on the Vert.x context of the current gRPC call, or on the default executor
+     * outside of one.
+     */
+    private static Executor callExecutor() {
+        Context context = Vertx.currentContext();
+        if (context == null) {
+            return Infrastructure.getDefaultExecutor();
+        }
+        return task -> context.runOnContext(ignored -> task.run());
+    }
+
+    /**
+     * Drains until no signal arrived during the previous pass.
+     */
+    private void drainLoop() {
+        int missed = 1;
+        do {
+            if (!terminated && failure != null) {
+                cancel();
+                observer.onError(failure);
+            } else if (!terminated && completed) {
+                cancel();
+                observer.onCompleted();
+            } else if (!terminated && enforceMaxLag()) {
+                drain(observer);
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    /**
+     * Completes the client's stream and leaves the hub. Called when the client's request stream terminates.
+     */
+    void complete() {
+        // The call is completed by the drain loop, so that it never overlaps a write.
+        completed = true;
+        signal();
+    }
+
+    /**
+     * Fails the client's stream and leaves the hub. Called when the client sends something the hub cannot accept.
+     *
+     * @param failure The status the call is closed with.
+     */
+    void fail(StatusRuntimeException failure) {
+        // Like completion, the failure is delivered by the drain loop so that it never overlaps a write.
+        this.failure = failure;
+        signal();
+    }
+
+    /**
+     * @return The number of messages published since the cursor, including this client's own.
+     */
+    long backlog() {
+        return hub.published() - cursor;
+    }
+
+    /**
+     * Writes pending messages while the call is ready. Never runs concurrently with itself.
+     *
+     * @param observer The client's stream.
+     */
+    protected abstract void drain(ServerCallStreamObserver<T> observer);
+
+    /**
+     * Advances the cursor to the next message published by another connection.
+     *
+     * @return The entry, or null if there is none pending.
+     */
+    protected HubEntry poll() {
+        long published = hub.published();
+        long position = cursor;
+        while (position < published) {
+            HubEntry entry = hub.entry(position);
+            if (entry == null) {
+                // The writer lapped this subscriber; skip to the oldest message still buffered.
+                long oldest = hub.oldest();
+                droppedCounter.increment(oldest - position);
+                position = oldest;
+                published = hub.published();
+                continue;
+            }
+            position++;
+            if (entry.senderId() != connectionId) {
+                cursor = position;
+                return entry;
+            }
+        }
+        cursor = position;
+        return null;
+    }
+
+    /**
+     * Applies the overflow strategy if the client has fallen more than {@code maxLag} messages behind.
+     *
+     * @return false if the stream has been cancelled.
+     */
+    private boolean enforceMaxLag() {
+        long lag = backlog();
+        if (lag <= maxLag) {
+            return true;
+        }
+        switch (overflow) {
+            case DROP -> skip(lag - maxLag);
+            case KEEP_LATEST -> skip(lag - 1);
+            case CANCEL -> {
+                log.warn("Cancelling stream of connection {}: {} messages behind", connectionId, lag);
+                cancel();
+                observer.onError(Status.RESOURCE_EXHAUSTED
+                        .withDescription("Client fell " + lag + " messages behind the chat")
+                        .asRuntimeException());
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void skip(long count) {
+        cursor += count;
+        droppedCounter.increment(count);
+    }
+
+    /**
+     * Leaves the hub without touching the call. Called when the client cancels or its request stream fails.
+     */
+    void cancel() {
+        terminated = true;
+        hub.unsubscribe(this);
+    }
+}
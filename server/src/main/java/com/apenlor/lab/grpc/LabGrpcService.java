@@ -0,0 +1,64 @@
+package com.apenlor.lab.grpc;
+
+import com.apenlor.lab.dto.EchoMessage;
+import com.apenlor.lab.service.GreetingService;
+import com.apenlor.lab.service.TickerService;
+import io.quarkus.grpc.GrpcService;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+
+/**
+ * Implements the gRPC LabService, the gRPC counterpart of the REST and SSE endpoints.
+ * Both RPCs delegate to the same services as their HTTP equivalents, so benchmarks
+ * compare the transports on identical work.
+ */
+@GrpcService
+@Singleton
+public class LabGrpcService extends MutinyLabServiceGrpc.LabServiceImplBase {
+
+    private final GreetingService greetingService;
+    private final TickerService tickerService;
+
+    @Inject
+    public LabGrpcService(GreetingService greetingService, TickerService tickerService) {
+        this.greetingService = greetingService;
+        this.tickerService = tickerService;
+    }
+
+    /**
+     * Unary equivalent of {@code POST /echo}.
+     * Runs on the worker pool, because the service may simulate a blocking I/O call that must not stall the
+     * event loop shared by every other call on the connection. {@code @Blocking} is not enough here: it keeps the
+     * calls of a connection ordered on its worker context, so concurrent echoes would still run one after another.
+     *
+     * @param request The message to echo.
+     * @return The original message with a server-side timestamp.
+     */
+    @Override
+    public Uni<EchoReply> echo(EchoRequest request) {
+        return Uni.createFrom().item(() -> greetingService.echo(new EchoMessage(request.getMessage(), null)))
+                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+                .map(response -> EchoReply.newBuilder()
+                        .setMessage(response.message())
+                        .setTimestamp(response.timestamp().toString())
+                        .build());
+    }
+
+    /**
+     * Server-streaming equivalent of {@code GET /stream/ticker}.
+     *
+     * @param request Unused; the ticker takes no parameters.
+     * @return A stream of ticker updates, one every second.
+     */
+    @Override
+    public Multi<TickerUpdate> ticker(TickerRequest request) {
+        return tickerService.ticker()
+                .map(message -> TickerUpdate.newBuilder()
+                        .setPrice(message.price())
+                        .setTimestamp(message.timestamp())
+                        .build());
+    }
+}
@@ -0,0 +1,32 @@
+package com.apenlor.lab.grpc;
+
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.Counter;
+
+import java.util.function.Function;
+
+/**
+ * A {@link HubSubscriber} that delivers every message as soon as it is drained, for {@code BidiChat} and
+ * {@code BidiChatV2} streams.
+ *
+ * @param <T> The wire representation of the messages.
+ */
+final class MessageSubscriber<T> extends HubSubscriber<T> {
+
+    private final Function<HubEntry, T> version;
+
+    MessageSubscriber(ChatHub hub, long connectionId, ChatGrpcConfig.Stream limits, Counter droppedCounter,
+                      StreamObserver<T> observer, Function<HubEntry, T> version) {
+        super(hub, connectionId, limits, droppedCounter, observer);
+        this.version = version;
+    }
+
+    @Override
+    protected void drain(ServerCallStreamObserver<T> observer) {
+        HubEntry entry;
+        while (observer.isReady() && (entry = poll()) != null) {
+            observer.onNext(version.apply(entry));
+        }
+    }
+}
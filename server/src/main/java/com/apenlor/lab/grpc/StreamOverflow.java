@@ -0,0 +1,19 @@
+package com.apenlor.lab.grpc;
+
+/**
+ * What a gRPC chat stream does when its client falls further behind the {@link ChatHub} than its bound allows.
+ */
+public enum StreamOverflow {
+    /**
+     * Skip the oldest pending messages, keeping the most recent ones up to the bound.
+     */
+    DROP,
+    /**
+     * Skip every pending message except the most recent one.
+     */
+    KEEP_LATEST,
+    /**
+     * Fail the stream with {@code RESOURCE_EXHAUSTED}.
+     */
+    CANCEL
+}
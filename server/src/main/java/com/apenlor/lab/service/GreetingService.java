@@ -2,23 +2,39 @@ package com.apenlor.lab.service;
 
 import com.apenlor.lab.dto.EchoMessage;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * A simple service bean to demonstrate dependency injection.
  * In a real-world application, this is where the core business logic would reside,
  * keeping the resource layer clean and focused on HTTP concerns.
+ * <p>
+ * An optional delay simulates a blocking I/O call, such as a database query, in every operation.
+ * It blocks the calling thread, which is what makes the execution models of the REST layer behave differently.
  */
 @ApplicationScoped
 public class GreetingService {
 
+    private final long simulatedDelayMillis;
+
+    @Inject
+    public GreetingService(@ConfigProperty(name = "lab.greeting.simulated-delay", defaultValue = "0ms") Duration simulatedDelay) {
+        this.simulatedDelayMillis = simulatedDelay.toMillis();
+    }
+
     /**
      * Provides a static response for the health-check-style ping endpoint.
      *
      * @return The string "pong".
      */
     public String ping() {
+        simulateBlockingIo();
         return "pong";
     }
 
@@ -31,6 +47,39 @@ public class GreetingService {
      * @return A new EchoMessage containing the original message and a server timestamp.
      */
     public EchoMessage echo(EchoMessage request) {
+        simulateBlockingIo();
         return new EchoMessage(request.message(), Instant.now());
     }
+
+    /**
+     * Processes a batch of EchoMessage requests in one call.
+     * The whole batch shares one server timestamp and one simulated I/O round trip, as a batched
+     * database call would.
+     *
+     * @param requests The incoming EchoMessages from the client.
+     * @return A new EchoMessage per request, in the same order.
+     */
+    public List<EchoMessage> echoAll(List<EchoMessage> requests) {
+        simulateBlockingIo();
+        Instant now = Instant.now();
+        List<EchoMessage> responses = new ArrayList<>(requests.size());
+        for (EchoMessage request : requests) {
+            responses.add(new EchoMessage(request.message(), now));
+        }
+        return responses;
+    }
+
+    /**
+     * Blocks the calling thread for the configured delay, if any.
+     */
+    private void simulateBlockingIo() {
+        if (simulatedDelayMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(simulatedDelayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 }
\ No newline at end of file
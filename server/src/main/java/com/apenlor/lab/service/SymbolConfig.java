@@ -0,0 +1,26 @@
+package com.apenlor.lab.service;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+import java.time.Duration;
+
+/**
+ * The universe of symbols published by the multi-symbol ticker.
+ * Symbols are named {@code SYM0000}, {@code SYM0001}, and so on, up to {@link #count()} - 1.
+ */
+@ConfigMapping(prefix = "lab.ticker.symbols")
+public interface SymbolConfig {
+
+    /**
+     * @return The number of symbols with a price stream.
+     */
+    @WithDefault("1000")
+    int count();
+
+    /**
+     * @return How often every symbol gets a new price.
+     */
+    @WithDefault("1s")
+    Duration interval();
+}
@@ -0,0 +1,153 @@
+package com.apenlor.lab.service;
+
+import com.apenlor.lab.dto.TickerMessage;
+import io.smallrye.mutiny.Multi;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Generates the stock ticker stream shared by the SSE and gRPC endpoints,
+ * so both transports push exactly the same workload.
+ */
+@ApplicationScoped
+public class TickerService {
+
+    private final Random random = new Random();
+
+    /**
+     * A single hot stream per node. The timer starts with the first subscriber and stops
+     * after the last one leaves, so every subscriber sees the same update at the same time
+     * instead of running its own timer and price generator.
+     * <p>
+     * The timer cannot wait: ticks nobody has requested are dropped instead of failing the
+     * stream. Consumers get the broadcast through {@link #ticker()}, which drops updates per
+     * subscriber as well, so one that stops requesting never holds back the others.
+     */
+    private final Multi<TickerMessage> ticker = Multi.createFrom().ticks().every(Duration.ofSeconds(1))
+            .map(tick -> {
+                // Generate a random price
+                double price = 100 + random.nextDouble() * 10;
+                String timestamp = Instant.now().toString();
+                return new TickerMessage(price, timestamp);
+            })
+            .onOverflow().drop()
+            .broadcast().withCancellationAfterLastSubscriberDeparture().toAllSubscribers();
+
+    private final List<String> symbols;
+    private final Map<String, Integer> symbolIndexes;
+    private final Multi<List<TickerMessage>> symbolTicker;
+
+    @Inject
+    public TickerService(SymbolConfig config) {
+        List<String> names = new ArrayList<>(config.count());
+        Map<String, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < config.count(); i++) {
+            String symbol = String.format("SYM%04d", i);
+            names.add(symbol);
+            indexes.put(symbol, i);
+        }
+        this.symbols = List.copyOf(names);
+        this.symbolIndexes = Map.copyOf(indexes);
+
+        // Like the anonymous ticker, a single hot stream per node. Each tick carries one update per symbol,
+        // at the symbol's index, so consumers look up the symbols they need instead of scanning the tick.
+        double[] prices = new double[symbols.size()];
+        Arrays.fill(prices, 100);
+        this.symbolTicker = Multi.createFrom().ticks().every(config.interval())
+                .map(tick -> {
+                    String timestamp = Instant.now().toString();
+                    List<TickerMessage> updates = new ArrayList<>(prices.length);
+                    for (int i = 0; i < prices.length; i++) {
+                        // A random walk that stays positive.
+                        prices[i] = Math.max(1, prices[i] + random.nextDouble() - 0.5);
+                        updates.add(new TickerMessage(symbols.get(i), prices[i], timestamp));
+                    }
+                    return updates;
+                })
+                .onOverflow().drop()
+                .broadcast().withCancellationAfterLastSubscriberDeparture().toAllSubscribers();
+    }
+
+    /**
+     * Returns the shared ticker stream, which emits an update every second.
+     * Subscribers joining later only receive the updates emitted after they subscribed,
+     * and a subscriber without outstanding demand misses the updates emitted meanwhile.
+     *
+     * @return A Multi (reactive stream) of TickerMessage objects.
+     */
+    public Multi<TickerMessage> ticker() {
+        return ticker.onOverflow().drop();
+    }
+
+    /**
+     * Returns the shared multi-symbol stream. Every item is one tick: a list with the new price of every symbol,
+     * where the update of a symbol sits at the index returned by {@link #symbolIndexes(String)}. Like
+     * {@link #ticker()}, a subscriber without outstanding demand misses the ticks emitted meanwhile.
+     *
+     * @return A Multi of ticks.
+     */
+    public Multi<List<TickerMessage>> symbolTicker() {
+        return symbolTicker.onOverflow().drop();
+    }
+
+    /**
+     * Returns the price stream of the given symbols, one update per symbol per tick.
+     *
+     * @param symbolIndexes The indexes of the symbols, as returned by {@link #symbolIndexes(String)}.
+     * @return A Multi of TickerMessage objects for those symbols only.
+     */
+    public Multi<TickerMessage> ticker(int[] symbolIndexes) {
+        return symbolTicker().onItem().transformToIterable(tick -> {
+            List<TickerMessage> selected = new ArrayList<>(symbolIndexes.length);
+            for (int index : symbolIndexes) {
+                selected.add(tick.get(index));
+            }
+            return selected;
+        });
+    }
+
+    /**
+     * Resolves a comma-separated list of symbols, such as the {@code symbols} query parameter.
+     * Blank entries and duplicates are ignored.
+     *
+     * @param commaSeparatedSymbols The symbols, e.g. {@code SYM0001,SYM0002}.
+     * @return The index of every distinct symbol, in order of first appearance.
+     * @throws IllegalArgumentException If a symbol is unknown, or if the list holds no symbol at all.
+     */
+    public int[] symbolIndexes(String commaSeparatedSymbols) {
+        Set<Integer> indexes = new LinkedHashSet<>();
+        for (String symbol : commaSeparatedSymbols.split(",")) {
+            String trimmed = symbol.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            Integer index = symbolIndexes.get(trimmed);
+            if (index == null) {
+                throw new IllegalArgumentException("Unknown symbol: " + trimmed);
+            }
+            indexes.add(index);
+        }
+        if (indexes.isEmpty()) {
+            throw new IllegalArgumentException("No symbol in: " + commaSeparatedSymbols);
+        }
+        return indexes.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * @return The number of symbols published by {@link #symbolTicker()}.
+     */
+    public int symbolCount() {
+        return symbols.size();
+    }
+}
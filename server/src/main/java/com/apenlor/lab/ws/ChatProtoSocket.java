@@ -0,0 +1,132 @@
+package com.apenlor.lab.ws;
+
+import com.apenlor.lab.grpc.ChatMessage;
+import com.google.protobuf.InvalidProtocolBufferException;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.websocket.*;
+import jakarta.websocket.server.ServerEndpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Binary variant of {@link ChatSocket} that exchanges the gRPC {@link ChatMessage} protobuf as WebSocket frames.
+ * <p>
+ * Clients send serialized {@code ChatMessage} binary frames. The server stamps each message with a server-side
+ * timestamp, exactly as {@link com.apenlor.lab.grpc.ChatGrpcService} does, serializes it once and broadcasts the
+ * same bytes to every other session. This allows WebSocket and gRPC to be compared with an identical payload.
+ * </p>
+ */
+@ServerEndpoint("/ws/chat-proto")
+@ApplicationScoped
+public class ChatProtoSocket {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatProtoSocket.class);
+
+    // A thread-safe set to store all active sessions.
+    private final Set<Session> sessions = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    private final OutboundQueues outboundQueues;
+
+    @Inject
+    public ChatProtoSocket(OutboundQueues outboundQueues) {
+        this.outboundQueues = outboundQueues;
+    }
+
+    /**
+     * Called when a new WebSocket connection is established.
+     * Attaches an outbound queue and adds the new session to the set of active sessions.
+     *
+     * @param session The WebSocket session representing the new connection.
+     */
+    @OnOpen
+    public void onOpen(Session session) {
+        outboundQueues.open(session);
+        sessions.add(session);
+        log.info("New protobuf WebSocket session opened: id={}, total sessions={}", session.getId(), sessions.size());
+    }
+
+    /**
+     * Called when a WebSocket connection is closed.
+     * Removes the session from the set of active sessions and releases its pending frames.
+     *
+     * @param session The session that is being closed.
+     */
+    @OnClose
+    public void onClose(Session session) {
+        sessions.remove(session);
+        outboundQueues.close(session);
+        log.info("Protobuf WebSocket session closed: id={}, total sessions={}", session.getId(), sessions.size());
+    }
+
+    /**
+     * Called when a WebSocket error occurs.
+     * Logs the error and removes the session.
+     *
+     * @param session   The session where the error occurred.
+     * @param throwable The throwable representing the error.
+     */
+    @OnError
+    public void onError(Session session, Throwable throwable) {
+        log.error("Protobuf WebSocket error on session id={}: {}", session.getId(), throwable.getMessage(), throwable);
+        sessions.remove(session);
+        outboundQueues.close(session);
+    }
+
+    /**
+     * Called when a binary frame is received from a client.
+     * The frame must contain a serialized {@link ChatMessage}; anything else closes the session with
+     * {@code 1007 Invalid Frame Payload Data}.
+     *
+     * @param payload The binary frame received from the client.
+     * @param session The session from which the message was sent.
+     */
+    @OnMessage
+    public void onMessage(ByteBuffer payload, Session session) {
+        ChatMessage incomingMessage;
+        try {
+            incomingMessage = ChatMessage.parseFrom(payload);
+        } catch (InvalidProtocolBufferException e) {
+            log.warn("Closing session id={}: frame is not a valid ChatMessage", session.getId());
+            closeQuietly(session, new CloseReason(CloseReason.CloseCodes.NOT_CONSISTENT, "Expected a ChatMessage protobuf"));
+            return;
+        }
+        log.debug("Message from [{}] on session id={}. Broadcasting to other clients.", incomingMessage.getSender(), session.getId());
+
+        // Enrich the message with a server-side timestamp.
+        ChatMessage broadcastMessage = ChatMessage.newBuilder()
+                .setSender(incomingMessage.getSender())
+                .setMessage(incomingMessage.getMessage())
+                .setTimestamp(Instant.now().atOffset(ZoneOffset.UTC).format(DateTimeFormatter.ISO_INSTANT))
+                .build();
+
+        // Serialize once and share the bytes with every recipient.
+        EncodedFrame frame = EncodedFrame.binary(broadcastMessage.toByteArray());
+        try {
+            sessions.forEach(recipient -> {
+                if (recipient != session && recipient.isOpen()) {
+                    outboundQueues.offer(recipient, frame);
+                }
+            });
+        } finally {
+            frame.release();
+        }
+    }
+
+    private void closeQuietly(Session session, CloseReason reason) {
+        try {
+            session.close(reason);
+        } catch (IOException e) {
+            log.debug("Failed to close session id={}", session.getId(), e);
+        }
+    }
+}
\ No newline at end of file
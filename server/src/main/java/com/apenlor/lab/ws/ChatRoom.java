@@ -0,0 +1,68 @@
+package com.apenlor.lab.ws;
+
+import jakarta.websocket.Session;
+
+import java.util.Arrays;
+
+/**
+ * The set of sessions that have joined a single chat room.
+ * <p>
+ * Membership is stored as a copy-on-write array. Broadcasts read the current snapshot without taking any lock, so
+ * their cost depends only on the size of this room. Joins and leaves replace the array; they are serialized per room
+ * by {@link RoomRegistry}, which only ever mutates a room from inside its own map entry.
+ * </p>
+ */
+final class ChatRoom {
+
+    private static final Session[] EMPTY = new Session[0];
+
+    private volatile Session[] members = EMPTY;
+
+    int size() {
+        return members.length;
+    }
+
+    /**
+     * Adds a session to the room. Must only be called by {@link RoomRegistry}.
+     */
+    void add(Session session) {
+        Session[] current = members;
+        Session[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = session;
+        members = updated;
+    }
+
+    /**
+     * Removes a session from the room. Must only be called by {@link RoomRegistry}.
+     *
+     * @return true if the room is empty after the removal.
+     */
+    boolean remove(Session session) {
+        Session[] current = members;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == session) {
+                Session[] updated = new Session[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                members = updated;
+                break;
+            }
+        }
+        return members.length == 0;
+    }
+
+    /**
+     * Queues an already encoded frame for every open member of the room except the sender.
+     *
+     * @param frame          The encoded frame shared by all recipients.
+     * @param sender         The session that published the message, or null to deliver to everyone.
+     * @param outboundQueues The per-session delivery queues.
+     */
+    void broadcast(EncodedFrame frame, Session sender, OutboundQueues outboundQueues) {
+        for (Session session : members) {
+            if (session != sender && session.isOpen()) {
+                outboundQueues.offer(session, frame);
+            }
+        }
+    }
+}
\ No newline at end of file
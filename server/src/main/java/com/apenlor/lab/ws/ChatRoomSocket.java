@@ -0,0 +1,99 @@
+package com.apenlor.lab.ws;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.websocket.*;
+import jakarta.websocket.server.PathParam;
+import jakarta.websocket.server.ServerEndpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Room-scoped variant of {@link ChatSocket}.
+ * <p>
+ * Instead of walking every connected session, each message is delivered only to the members of the room named in
+ * the connection path. Fan-out cost therefore grows with the size of the room, not with the total number of
+ * connections on the node.
+ * </p>
+ */
+@ServerEndpoint("/ws/chat/{room}")
+@ApplicationScoped
+public class ChatRoomSocket {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatRoomSocket.class);
+
+    private final RoomRegistry registry;
+    private final OutboundQueues outboundQueues;
+
+    @Inject
+    public ChatRoomSocket(RoomRegistry registry, OutboundQueues outboundQueues) {
+        this.registry = registry;
+        this.outboundQueues = outboundQueues;
+    }
+
+    /**
+     * Called when a new WebSocket connection is established.
+     * Adds the new session to the room named in the path.
+     *
+     * @param session The WebSocket session representing the new connection.
+     * @param room    The room name taken from the connection path.
+     */
+    @OnOpen
+    public void onOpen(Session session, @PathParam("room") String room) {
+        outboundQueues.open(session);
+        int members = registry.join(room, session);
+        log.info("Session id={} joined room '{}', room members={}, total rooms={}", session.getId(), room, members, registry.roomCount());
+    }
+
+    /**
+     * Called when a WebSocket connection is closed.
+     * Removes the session from its room.
+     *
+     * @param session The session that is being closed.
+     * @param room    The room name taken from the connection path.
+     */
+    @OnClose
+    public void onClose(Session session, @PathParam("room") String room) {
+        int members = registry.leave(room, session);
+        outboundQueues.close(session);
+        log.info("Session id={} left room '{}', room members={}, total rooms={}", session.getId(), room, members, registry.roomCount());
+    }
+
+    /**
+     * Called when a WebSocket error occurs.
+     * Logs the error and removes the session from its room.
+     *
+     * @param session   The session where the error occurred.
+     * @param room      The room name taken from the connection path.
+     * @param throwable The throwable representing the error.
+     */
+    @OnError
+    public void onError(Session session, @PathParam("room") String room, Throwable throwable) {
+        log.error("WebSocket error on session id={} in room '{}': {}", session.getId(), room, throwable.getMessage(), throwable);
+        registry.leave(room, session);
+        outboundQueues.close(session);
+    }
+
+    /**
+     * Called when a text message is received from a client.
+     * The message is encoded once and broadcast to every other member of the sender's room.
+     *
+     * @param message The message received from the client.
+     * @param session The session from which the message was sent.
+     * @param room    The room name taken from the connection path.
+     */
+    @OnMessage
+    public void onMessage(String message, Session session, @PathParam("room") String room) {
+        ChatRoom chatRoom = registry.find(room);
+        if (chatRoom == null || !outboundQueues.admitText(session, message)) {
+            return;
+        }
+        log.debug("Message from session id={} in room '{}'. Broadcasting to {} members.", session.getId(), room, chatRoom.size() - 1);
+        EncodedFrame frame = EncodedFrame.text(message);
+        try {
+            chatRoom.broadcast(frame, session, outboundQueues);
+        } finally {
+            frame.release();
+        }
+    }
+}
\ No newline at end of file
@@ -1,8 +1,10 @@
 package com.apenlor.lab.ws;
 
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import jakarta.websocket.*;
 import jakarta.websocket.server.ServerEndpoint;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -19,27 +21,43 @@ public class ChatSocket {
     // A thread-safe set to store all active sessions.
     private final Set<Session> sessions = Collections.newSetFromMap(new ConcurrentHashMap<>());
 
+    // When true, each broadcast message is encoded into a single shared frame payload for all recipients.
+    // When false, the legacy per-session sendText path is used, which re-encodes the message for every recipient.
+    private final boolean encodeOnce;
+
+    // Bounded per-session delivery queues that protect the server from slow readers.
+    private final OutboundQueues outboundQueues;
+
+    @Inject
+    public ChatSocket(@ConfigProperty(name = "lab.ws.broadcast.encode-once", defaultValue = "true") boolean encodeOnce,
+                      OutboundQueues outboundQueues) {
+        this.encodeOnce = encodeOnce;
+        this.outboundQueues = outboundQueues;
+    }
+
     /**
      * Called when a new WebSocket connection is established.
-     * Adds the new session to the set of active sessions.
+     * Attaches an outbound queue and adds the new session to the set of active sessions.
      *
      * @param session The WebSocket session representing the new connection.
      */
     @OnOpen
     public void onOpen(Session session) {
+        outboundQueues.open(session);
         sessions.add(session);
         log.info("New WebSocket session opened: id={}, total sessions={}", session.getId(), sessions.size());
     }
 
     /**
      * Called when a WebSocket connection is closed.
-     * Removes the session from the set of active sessions.
+     * Removes the session from the set of active sessions and releases its pending frames.
      *
      * @param session The session that is being closed.
      */
     @OnClose
     public void onClose(Session session) {
         sessions.remove(session);
+        outboundQueues.close(session);
         log.info("WebSocket session closed: id={}, total sessions={}", session.getId(), sessions.size());
     }
 
@@ -55,6 +73,7 @@ public class ChatSocket {
         log.error("WebSocket error on session id={}: {}", session.getId(), throwable.getMessage(), throwable);
         // It's good practice to ensure the session is removed on error.
         sessions.remove(session);
+        outboundQueues.close(session);
     }
 
     /**
@@ -87,6 +106,10 @@ public class ChatSocket {
     @OnMessage
     public void onMessage(String message, Session session) {
         log.info("Message from session id={}: '{}'. Broadcasting to other clients.", session.getId(), message);
+        // Only the encode-once path goes through the outbound queues, which may coalesce messages into lines.
+        if (encodeOnce && !outboundQueues.admitText(session, message)) {
+            return;
+        }
         // Pass the original sender's session to the broadcast method for filtering.
         broadcast(message, session);
     }
@@ -99,6 +122,41 @@ public class ChatSocket {
      * @param sender  The session of the client that sent the message.
      */
     private void broadcast(String message, Session sender) {
+        if (encodeOnce) {
+            broadcastEncoded(message, sender);
+        } else {
+            broadcastPerSession(message, sender);
+        }
+    }
+
+    /**
+     * Encodes the message once and queues the same read-only payload for every recipient.
+     * Each recipient's {@link OutboundQueue} enforces the configured slow-consumer limits.
+     *
+     * @param message The message to be broadcast.
+     * @param sender  The session of the client that sent the message.
+     */
+    private void broadcastEncoded(String message, Session sender) {
+        EncodedFrame frame = EncodedFrame.text(message);
+        try {
+            sessions.forEach(session -> {
+                if (session.isOpen() && !session.getId().equals(sender.getId())) {
+                    outboundQueues.offer(session, frame);
+                }
+            });
+        } finally {
+            frame.release();
+        }
+    }
+
+    /**
+     * Legacy broadcast path: hands the raw string to each session, which encodes and frames it independently.
+     * Kept to provide the baseline for the fan-out CPU benchmark; it bypasses the outbound queues and is unbounded.
+     *
+     * @param message The message to be broadcast.
+     * @param sender  The session of the client that sent the message.
+     */
+    private void broadcastPerSession(String message, Session sender) {
         sessions.forEach(session -> {
             if (session.isOpen() && !session.getId().equals(sender.getId())) {
                 session.getAsyncRemote().sendText(message, result -> {
@@ -111,4 +169,4 @@ public class ChatSocket {
             }
         });
     }
-}
\ No newline at end of file
+}
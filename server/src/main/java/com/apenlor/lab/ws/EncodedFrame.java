@@ -0,0 +1,135 @@
+package com.apenlor.lab.ws;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ * A WebSocket payload that has been encoded exactly once and can be written to any number of sessions.
+ * <p>
+ * {@code session.getAsyncRemote().sendText(String)} wraps the string in a new {@link TextWebSocketFrame}, which
+ * UTF-8 encodes it into a fresh buffer for every recipient. This class encodes the message once into a read-only
+ * buffer and hands each recipient a retained duplicate of it, so the fan-out only pays for the frame header.
+ * </p>
+ * <p>
+ * The frame holds one reference to the shared buffer. Every {@link #writeTo(Channel)} takes an extra reference
+ * that Netty releases once the frame has been flushed. Holders such as outbound queues take their own reference with
+ * {@link #retain()}, and everyone, including the creator, calls {@link #release()} when done with the frame.
+ * </p>
+ */
+final class EncodedFrame {
+
+    // Separator between messages in a coalesced text frame.
+    private static final ByteBuf NEWLINE = Unpooled.unreleasableBuffer(Unpooled.wrappedBuffer(new byte[]{'\n'}).asReadOnly());
+    // Protobuf key of ChatBatch.messages: field number 1, wire type 2 (length-delimited).
+    private static final byte CHAT_BATCH_MESSAGES_KEY = (1 << 3) | 2;
+
+    private final ByteBuf payload;
+    private final boolean binary;
+
+    private EncodedFrame(ByteBuf payload, boolean binary) {
+        this.payload = payload;
+        this.binary = binary;
+    }
+
+    /**
+     * Encodes a text message once as UTF-8.
+     *
+     * @param message The text to encode.
+     * @return A frame ready to be written to many sessions.
+     */
+    static EncodedFrame text(String message) {
+        return new EncodedFrame(Unpooled.wrappedBuffer(message.getBytes(StandardCharsets.UTF_8)).asReadOnly(), false);
+    }
+
+    /**
+     * Wraps an already serialized binary payload, such as a protobuf message.
+     *
+     * @param payload The bytes to send. The array must not be modified afterwards.
+     * @return A frame ready to be written to many sessions.
+     */
+    static EncodedFrame binary(byte[] payload) {
+        return new EncodedFrame(Unpooled.wrappedBuffer(payload).asReadOnly(), true);
+    }
+
+    /**
+     * Combines several frames into a single frame without copying their payloads.
+     * <p>
+     * Text payloads are joined with a newline, so clients of a coalescing endpoint split each frame on {@code '\n'}.
+     * Newlines are therefore rejected in text messages while coalescing, see {@link OutboundQueues#admitText}.
+     * Binary payloads are assumed to be serialized {@code ChatMessage}s and are framed as the repeated
+     * {@code messages} field of a {@code ChatBatch}, so the result parses as a {@code ChatBatch}. All frames must be
+     * of the same kind, which holds because every endpoint sends a single kind.
+     * </p>
+     *
+     * @param frames The frames to combine, in delivery order. The caller keeps its references to them.
+     * @return A new frame holding its own references to the combined payloads.
+     */
+    static EncodedFrame coalesce(Collection<EncodedFrame> frames) {
+        boolean binary = frames.iterator().next().binary;
+        CompositeByteBuf combined = Unpooled.compositeBuffer(frames.size() * 2);
+        for (EncodedFrame frame : frames) {
+            if (binary) {
+                combined.addComponent(true, batchEntryHeader(frame.size()));
+            } else if (combined.numComponents() > 0) {
+                combined.addComponent(true, NEWLINE.duplicate());
+            }
+            combined.addComponent(true, frame.payload.retainedDuplicate());
+        }
+        return new EncodedFrame(combined, binary);
+    }
+
+    private static ByteBuf batchEntryHeader(int length) {
+        ByteBuf header = Unpooled.buffer(6);
+        header.writeByte(CHAT_BATCH_MESSAGES_KEY);
+        // Base-128 varint encoding of the entry length.
+        while ((length & ~0x7F) != 0) {
+            header.writeByte((length & 0x7F) | 0x80);
+            length >>>= 7;
+        }
+        header.writeByte(length);
+        return header;
+    }
+
+    /**
+     * @return The size of the encoded payload in bytes.
+     */
+    int size() {
+        return payload.readableBytes();
+    }
+
+    /**
+     * Takes an additional reference to the shared payload, for a holder that keeps the frame beyond the broadcast.
+     *
+     * @return This frame.
+     */
+    EncodedFrame retain() {
+        payload.retain();
+        return this;
+    }
+
+    /**
+     * Writes the shared payload to a channel without re-encoding it. The caller is responsible for flushing.
+     *
+     * @param channel The recipient's channel.
+     * @return The future completed when the frame has been written to the socket.
+     */
+    ChannelFuture writeTo(Channel channel) {
+        ByteBuf content = payload.retainedDuplicate();
+        return channel.write(binary ? new BinaryWebSocketFrame(content) : new TextWebSocketFrame(content));
+    }
+
+    /**
+     * Releases one reference to the shared payload. Frames already written keep their own references.
+     */
+    void release() {
+        payload.release();
+    }
+}
@@ -0,0 +1,56 @@
+package com.apenlor.lab.ws;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+import java.time.Duration;
+
+/**
+ * Per-session outbound limits for the WebSocket chat endpoints.
+ * Frames that are queued or already handed to the socket both count towards the limits.
+ */
+@ConfigMapping(prefix = "lab.ws.outbound")
+public interface OutboundConfig {
+
+    /**
+     * @return The maximum number of frames pending delivery to a single session.
+     */
+    @WithDefault("1000")
+    int maxMessages();
+
+    /**
+     * @return The maximum number of payload bytes pending delivery to a single session.
+     */
+    @WithDefault("1048576")
+    long maxBytes();
+
+    /**
+     * @return The policy applied when a new frame would exceed either limit.
+     */
+    @WithDefault("drop-oldest")
+    OverflowPolicy policy();
+
+    /**
+     * @return The optional coalescing of queued frames into batched frames.
+     */
+    Coalesce coalesce();
+
+    /**
+     * Time-window coalescing. When enabled, a session's queue waits up to {@link #window()} after the first pending
+     * frame, or until {@link #maxMessages()} frames are pending, and then delivers them all as a single frame.
+     */
+    interface Coalesce {
+
+        /**
+         * @return How long the first pending frame may wait for others to join it. Zero disables coalescing.
+         */
+        @WithDefault("0ms")
+        Duration window();
+
+        /**
+         * @return The number of pending frames that triggers delivery before the window expires.
+         */
+        @WithDefault("64")
+        int maxMessages();
+    }
+}
\ No newline at end of file
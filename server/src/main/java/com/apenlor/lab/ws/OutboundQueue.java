@@ -0,0 +1,253 @@
+package com.apenlor.lab.ws;
+
+import io.micrometer.core.instrument.Counter;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.util.concurrent.Future;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded queue of frames waiting to be delivered to one WebSocket session.
+ * <p>
+ * At most one batch of frames is handed to the channel at a time. Frames published while a batch is in flight wait
+ * here and are written together, with a single flush, once the previous batch has reached the socket. A slow reader
+ * therefore holds back its own queue instead of growing Netty's unbounded outbound buffer, and the limits below cap
+ * the memory it can pin.
+ * </p>
+ * <p>
+ * When a coalescing window is configured, an idle queue does not flush the first frame straight away. It waits for
+ * the window, or until enough frames are pending, and then merges the pending frames into one frame with
+ * {@link EncodedFrame#coalesce}, trading a bounded delay for fewer frames, syscalls and wake-ups per message.
+ * </p>
+ * <p>
+ * All state is guarded by the queue's monitor. Offers come from the publishers' threads and completions from the
+ * session's event loop, so contention is limited to the publishers of a single recipient. Closing a slow session
+ * runs its close handshake, so it happens after the monitor has been released.
+ * </p>
+ */
+final class OutboundQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboundQueue.class);
+
+    private final Session session;
+    private final Channel channel;
+    private final int maxMessages;
+    private final long maxBytes;
+    private final OverflowPolicy policy;
+    private final Counter overflowCounter;
+    private final long coalesceWindowNanos;
+    private final int coalesceMaxMessages;
+
+    private final ArrayDeque<EncodedFrame> queued = new ArrayDeque<>();
+    private long queuedBytes;
+    private int inFlightMessages;
+    private long inFlightBytes;
+    private boolean closed;
+    private ScheduledFuture<?> scheduledFlush;
+
+    OutboundQueue(Session session, Channel channel, int maxMessages, long maxBytes, OverflowPolicy policy,
+                  Counter overflowCounter, Duration coalesceWindow, int coalesceMaxMessages) {
+        this.session = session;
+        this.channel = channel;
+        this.maxMessages = maxMessages;
+        this.maxBytes = maxBytes;
+        this.policy = policy;
+        this.overflowCounter = overflowCounter;
+        this.coalesceWindowNanos = coalesceWindow.toNanos();
+        this.coalesceMaxMessages = Math.max(1, coalesceMaxMessages);
+    }
+
+    /**
+     * Queues a frame for delivery, applying the overflow policy if the session is over its limits.
+     * The queue takes its own reference to the frame; the caller keeps ownership of its reference.
+     *
+     * @param frame The frame to deliver.
+     */
+    void offer(EncodedFrame frame) {
+        boolean disconnect;
+        synchronized (this) {
+            disconnect = enqueue(frame);
+        }
+        if (disconnect) {
+            disconnect();
+        }
+    }
+
+    /**
+     * Releases every queued frame and rejects further offers. Called when the session closes.
+     */
+    synchronized void close() {
+        closed = true;
+        cancelScheduledFlush();
+        clearQueued();
+    }
+
+    /**
+     * Queues a frame, or applies the overflow policy if it does not fit.
+     *
+     * @return true if the frame overflowed under the disconnect policy, which has closed the queue.
+     */
+    private boolean enqueue(EncodedFrame frame) {
+        if (closed) {
+            return false;
+        }
+        int size = frame.size();
+        if (!fits(size) && !makeRoom(size)) {
+            // Only the disconnect policy closes the queue when making room.
+            return closed;
+        }
+        queued.add(frame.retain());
+        queuedBytes += size;
+        if (inFlightMessages > 0) {
+            // Picked up when the batch in flight completes.
+            return false;
+        }
+        if (coalesceWindowNanos == 0 || queued.size() >= coalesceMaxMessages) {
+            flush();
+        } else if (scheduledFlush == null) {
+            scheduledFlush = channel.eventLoop().schedule(this::onWindowElapsed, coalesceWindowNanos, TimeUnit.NANOSECONDS);
+        }
+        return false;
+    }
+
+    private boolean fits(int size) {
+        return inFlightMessages + queued.size() < maxMessages && inFlightBytes + queuedBytes + size <= maxBytes;
+    }
+
+    /**
+     * Applies the overflow policy for a frame that does not fit.
+     *
+     * @return true if the frame should still be queued.
+     */
+    private boolean makeRoom(int size) {
+        switch (policy) {
+            case DROP_OLDEST -> {
+                while (!queued.isEmpty() && !fits(size)) {
+                    EncodedFrame oldest = queued.poll();
+                    queuedBytes -= oldest.size();
+                    oldest.release();
+                    overflowCounter.increment();
+                }
+                if (fits(size)) {
+                    return true;
+                }
+                // Only in-flight frames are left and they cannot be recalled, so the new frame is the one dropped.
+                overflowCounter.increment();
+                return false;
+            }
+            case DROP_NEWEST -> {
+                overflowCounter.increment();
+                return false;
+            }
+            case CONFLATE -> {
+                // The latest frame always replaces whatever is still waiting, even if frames in flight leave no room.
+                overflowCounter.increment(queued.size());
+                clearQueued();
+                return true;
+            }
+            case DISCONNECT -> {
+                overflowCounter.increment();
+                close();
+                return false;
+            }
+            default -> throw new IllegalStateException("Unexpected overflow policy: " + policy);
+        }
+    }
+
+    /**
+     * Hands every queued frame to the channel as one batch, flushing once. With coalescing enabled, the batch is
+     * written as frames of up to {@code coalesceMaxMessages} merged messages each.
+     */
+    private void flush() {
+        cancelScheduledFlush();
+        if (queued.isEmpty()) {
+            return;
+        }
+        inFlightMessages = queued.size();
+        inFlightBytes = queuedBytes;
+        queuedBytes = 0;
+
+        ChannelFuture last = coalesceWindowNanos == 0 ? writeEach() : writeCoalesced();
+        channel.flush();
+        last.addListener(this::onBatchWritten);
+    }
+
+    private ChannelFuture writeEach() {
+        ChannelFuture last = null;
+        EncodedFrame frame;
+        while ((frame = queued.poll()) != null) {
+            last = frame.writeTo(channel);
+            frame.release();
+        }
+        return last;
+    }
+
+    private ChannelFuture writeCoalesced() {
+        ChannelFuture last = null;
+        List<EncodedFrame> chunk = new ArrayList<>(Math.min(queued.size(), coalesceMaxMessages));
+        while (!queued.isEmpty()) {
+            while (chunk.size() < coalesceMaxMessages && !queued.isEmpty()) {
+                chunk.add(queued.poll());
+            }
+            EncodedFrame merged = EncodedFrame.coalesce(chunk);
+            last = merged.writeTo(channel);
+            merged.release();
+            chunk.forEach(EncodedFrame::release);
+            chunk.clear();
+        }
+        return last;
+    }
+
+    private synchronized void onWindowElapsed() {
+        scheduledFlush = null;
+        if (!closed && inFlightMessages == 0) {
+            flush();
+        }
+    }
+
+    private void cancelScheduledFlush() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+    }
+
+    private synchronized void onBatchWritten(Future<? super Void> result) {
+        inFlightMessages = 0;
+        inFlightBytes = 0;
+        if (!result.isSuccess()) {
+            log.debug("Failed to deliver batch to session id={}: {}", session.getId(), result.cause().getMessage());
+        }
+        if (!closed) {
+            flush();
+        }
+    }
+
+    private void disconnect() {
+        log.warn("Disconnecting slow consumer session id={}: outbound limits exceeded", session.getId());
+        try {
+            session.close(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, "Slow consumer"));
+        } catch (IOException e) {
+            log.debug("Failed to close slow consumer session id={}", session.getId(), e);
+        }
+    }
+
+    private void clearQueued() {
+        EncodedFrame frame;
+        while ((frame = queued.poll()) != null) {
+            frame.release();
+        }
+        queuedBytes = 0;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,114 @@
+package com.apenlor.lab.ws;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.Channel;
+import io.undertow.websockets.UndertowSession;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Creates and looks up the {@link OutboundQueue} attached to each WebSocket session.
+ * <p>
+ * Overflow events are counted per policy in the {@code lab.ws.outbound.overflow} counter. For the drop and conflate
+ * policies each discarded frame counts once; for the disconnect policy each closed session counts once.
+ * </p>
+ */
+@ApplicationScoped
+public class OutboundQueues {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboundQueues.class);
+    private static final String QUEUE_PROPERTY = OutboundQueue.class.getName();
+
+    private final OutboundConfig config;
+    private final Map<OverflowPolicy, Counter> overflowCounters = new EnumMap<>(OverflowPolicy.class);
+
+    @Inject
+    public OutboundQueues(OutboundConfig config, MeterRegistry registry) {
+        this.config = config;
+        // Register every policy up front so dashboards show a zero series for the inactive ones.
+        for (OverflowPolicy policy : OverflowPolicy.values()) {
+            overflowCounters.put(policy, Counter.builder("lab.ws.outbound.overflow")
+                    .description("Frames discarded or sessions closed because a session exceeded its outbound limits")
+                    .tag("policy", policy.name().toLowerCase().replace('_', '-'))
+                    .register(registry));
+        }
+    }
+
+    /**
+     * Attaches a new outbound queue to a session. Must be called before the session can receive broadcasts.
+     *
+     * @param session The newly opened session.
+     */
+    void open(Session session) {
+        open(session, ((UndertowSession) session).getChannel());
+    }
+
+    /**
+     * Attaches a new outbound queue that writes to the given channel.
+     *
+     * @param session The newly opened session.
+     * @param channel The channel the session's frames are written to.
+     */
+    void open(Session session, Channel channel) {
+        OverflowPolicy policy = config.policy();
+        OutboundQueue queue = new OutboundQueue(session, channel, config.maxMessages(), config.maxBytes(), policy,
+                overflowCounters.get(policy), config.coalesce().window(), config.coalesce().maxMessages());
+        session.getUserProperties().put(QUEUE_PROPERTY, queue);
+    }
+
+    /**
+     * Detaches the session's queue and releases any frames it still holds.
+     *
+     * @param session The closing session.
+     */
+    void close(Session session) {
+        OutboundQueue queue = (OutboundQueue) session.getUserProperties().remove(QUEUE_PROPERTY);
+        if (queue != null) {
+            queue.close();
+        }
+    }
+
+    /**
+     * Checks that a text message can be framed for delivery. Coalesced text frames carry one message per line, so
+     * while coalescing is enabled a message containing a line break could not be told apart from two messages. Such a
+     * message is rejected and its sender is closed with {@code 1003 Cannot Accept}.
+     *
+     * @param session The sender.
+     * @param message The text message received from the sender.
+     * @return true if the message can be broadcast.
+     */
+    boolean admitText(Session session, String message) {
+        if (config.coalesce().window().isZero() || message.indexOf('\n') < 0) {
+            return true;
+        }
+        log.warn("Closing session id={}: line breaks are not allowed in messages while coalescing", session.getId());
+        try {
+            session.close(new CloseReason(CloseReason.CloseCodes.CANNOT_ACCEPT, "Line breaks are not allowed"));
+        } catch (IOException e) {
+            log.debug("Failed to close session id={}", session.getId(), e);
+        }
+        return false;
+    }
+
+    /**
+     * Queues a frame for delivery to a session. Sessions without a queue (already closed) are skipped.
+     *
+     * @param session The recipient.
+     * @param frame   The frame to deliver.
+     */
+    void offer(Session session, EncodedFrame frame) {
+        OutboundQueue queue = (OutboundQueue) session.getUserProperties().get(QUEUE_PROPERTY);
+        if (queue != null) {
+            queue.offer(frame);
+        }
+    }
+}
\ No newline at end of file
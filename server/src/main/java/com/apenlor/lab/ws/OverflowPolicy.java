@@ -0,0 +1,23 @@
+package com.apenlor.lab.ws;
+
+/**
+ * What to do when a session's outbound queue would exceed its configured limits.
+ */
+public enum OverflowPolicy {
+    /**
+     * Discard the oldest queued frames until the new one fits.
+     */
+    DROP_OLDEST,
+    /**
+     * Discard the new frame and keep what is already queued.
+     */
+    DROP_NEWEST,
+    /**
+     * Replace everything still queued with the new frame, so a slow reader only ever catches up on the latest message.
+     */
+    CONFLATE,
+    /**
+     * Close the session with {@code 1013 Try Again Later}.
+     */
+    DISCONNECT
+}
\ No newline at end of file
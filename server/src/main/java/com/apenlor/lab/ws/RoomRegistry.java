@@ -0,0 +1,67 @@
+package com.apenlor.lab.ws;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.websocket.Session;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the chat rooms that currently have at least one member.
+ * <p>
+ * Rooms live in a {@link ConcurrentHashMap}, whose {@code compute} operations lock only the hash bin of the affected
+ * key. That gives the registry lock striping for free: a join or leave in one room never blocks a join, leave or
+ * broadcast in another. Broadcasts do not lock at all; they read the room's membership snapshot directly.
+ * </p>
+ * <p>
+ * Empty rooms are removed eagerly, so a node hosting thousands of short-lived rooms does not accumulate state.
+ * </p>
+ */
+@ApplicationScoped
+public class RoomRegistry {
+
+    private final ConcurrentHashMap<String, ChatRoom> rooms = new ConcurrentHashMap<>();
+
+    /**
+     * Adds a session to a room, creating the room on first join.
+     *
+     * @param roomName The room to join.
+     * @param session  The joining session.
+     * @return The number of members in the room after the join.
+     */
+    public int join(String roomName, Session session) {
+        ChatRoom room = rooms.compute(roomName, (name, existing) -> {
+            ChatRoom target = existing != null ? existing : new ChatRoom();
+            target.add(session);
+            return target;
+        });
+        return room.size();
+    }
+
+    /**
+     * Removes a session from a room, dropping the room once it is empty.
+     * Calling this for a session that already left is a no-op.
+     *
+     * @param roomName The room to leave.
+     * @param session  The leaving session.
+     * @return The number of members left in the room.
+     */
+    public int leave(String roomName, Session session) {
+        ChatRoom room = rooms.computeIfPresent(roomName, (name, existing) -> existing.remove(session) ? null : existing);
+        return room != null ? room.size() : 0;
+    }
+
+    /**
+     * @param roomName The room to look up.
+     * @return The room, or null if nobody is currently in it.
+     */
+    ChatRoom find(String roomName) {
+        return rooms.get(roomName);
+    }
+
+    /**
+     * @return The number of rooms with at least one member.
+     */
+    public int roomCount() {
+        return rooms.size();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,47 @@
+package com.apenlor.lab.api;
+
+import com.apenlor.lab.dto.EchoMessage;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.ws.rs.core.MediaType;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+
+/**
+ * Integration tests for the ExecutionModelResource.
+ * Every execution model must honour the same contract as the GreetingResource, on a thread of that model.
+ */
+@QuarkusTest
+class ExecutionModelResourceTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"event-loop", "worker", "virtual-thread"})
+    void testPingEndpoint(String model) {
+        given()
+                .when().get("/" + model + "/ping")
+                .then()
+                .statusCode(200)
+                .body(is("pong"))
+                // The call must have been served by the thread of its model, not merely answered.
+                .header(ExecutionModelResource.EXECUTION_MODEL_HEADER, model);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"event-loop", "worker", "virtual-thread"})
+    void testEchoEndpoint(String model) {
+        EchoMessage requestPayload = new EchoMessage("Hello, " + model + "!", null);
+
+        given()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(requestPayload)
+                .when()
+                .post("/" + model + "/echo")
+                .then()
+                .statusCode(200)
+                .body("message", is("Hello, " + model + "!"))
+                .body("timestamp", notNullValue());
+    }
+}
@@ -1,13 +1,38 @@
 package com.apenlor.lab.api;
 
 import com.apenlor.lab.dto.EchoMessage;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import io.quarkus.test.common.http.TestHTTPResource;
 import io.quarkus.test.junit.QuarkusTest;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import jakarta.inject.Inject;
 import jakarta.ws.rs.core.MediaType;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.everyItem;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Integration tests for the GreetingResource.
@@ -16,6 +41,12 @@ import static org.hamcrest.CoreMatchers.notNullValue;
 @QuarkusTest
 class GreetingResourceTest {
 
+    @Inject
+    Vertx vertx;
+
+    @TestHTTPResource("/echo/stream")
+    URI echoStreamUri;
+
     @Test
     void testPingEndpoint() {
         given()
@@ -39,4 +70,183 @@ class GreetingResourceTest {
                 .body("message", is("Hello, JSON!"))
                 .body("timestamp", notNullValue());
     }
+
+    @Test
+    void testEchoEndpointRejectsANestedMessage() {
+        given()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body("{\"message\":{\"a\":1}}")
+                .when()
+                .post("/echo")
+                .then()
+                .statusCode(400);
+    }
+
+    @Test
+    void testEchoBatchEndpoint() {
+        List<EchoMessage> requestPayload = List.of(new EchoMessage("first", null), new EchoMessage("second", null));
+
+        given()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(requestPayload)
+                .when()
+                .post("/echo/batch")
+                .then()
+                .statusCode(200)
+                .body("message", contains("first", "second"))
+                .body("timestamp", everyItem(notNullValue()));
+    }
+
+    @Test
+    void testEchoStreamEndpoint() {
+        String requestBody = "{\"message\":\"first\"}\n{\"message\":\"second\"}\n{\"message\":\"third\"}\n";
+
+        String responseBody = given()
+                .contentType(GreetingResource.APPLICATION_NDJSON)
+                .body(requestBody.getBytes(StandardCharsets.UTF_8))
+                .when()
+                .post("/echo/stream")
+                .then()
+                .statusCode(200)
+                .extract().asString();
+
+        String[] lines = responseBody.split("\n");
+        assertEquals(3, lines.length, "Should echo one line per request line. Actual: " + responseBody);
+        assertTrue(lines[0].startsWith("{\"message\":\"first\",\"timestamp\":"), "Unexpected line: " + lines[0]);
+        assertTrue(lines[2].startsWith("{\"message\":\"third\",\"timestamp\":"), "Unexpected line: " + lines[2]);
+        assertTrue(responseBody.endsWith("\n"), "Every line should be newline-terminated.");
+    }
+
+    @Test
+    void testEchoStreamEndpointAcceptsBodiesAboveTheDefaultLimit() throws Exception {
+        // About 12 MB, above the 10 MB that Quarkus accepts by default.
+        String line = "{\"message\":\"" + "x".repeat(1000) + "\"}\n";
+        int lineCount = 12_000;
+        Buffer requestBody = Buffer.buffer(line.repeat(lineCount));
+        assertTrue(requestBody.length() > 10 * 1024 * 1024);
+
+        // The echoes come back while the body is still being sent, so the client must read them as it goes:
+        // RestAssured writes the whole body first, and would stall the server once its echoes back up.
+        HttpClient httpClient = vertx.createHttpClient();
+        try {
+            Buffer responseBody = httpClient.request(HttpMethod.POST, echoStreamUri.getPort(), echoStreamUri.getHost(), echoStreamUri.getPath())
+                    .compose(request -> request
+                            .putHeader(HttpHeaders.CONTENT_TYPE, GreetingResource.APPLICATION_NDJSON)
+                            .send(requestBody))
+                    .compose(response -> response.statusCode() == 200
+                            ? response.body()
+                            : Future.failedFuture("Unexpected status " + response.statusCode()))
+                    .toCompletionStage().toCompletableFuture()
+                    .get(30, TimeUnit.SECONDS);
+
+            assertEquals(lineCount, responseBody.toString(StandardCharsets.UTF_8).split("\n").length,
+                    "Should echo one line per request line.");
+        } finally {
+            httpClient.close();
+        }
+    }
+
+    @Test
+    void testEchoStreamEndpointEchoesAnUnterminatedLastLine() {
+        String responseBody = given()
+                .contentType(GreetingResource.APPLICATION_NDJSON)
+                .body("{\"message\":\"first\"}\n{\"message\":\"last\"}".getBytes(StandardCharsets.UTF_8))
+                .when()
+                .post("/echo/stream")
+                .then()
+                .statusCode(200)
+                .extract().asString();
+
+        String[] lines = responseBody.split("\n");
+        assertEquals(2, lines.length, "Should echo one line per request line. Actual: " + responseBody);
+        assertTrue(lines[1].startsWith("{\"message\":\"last\",\"timestamp\":"), "Unexpected line: " + lines[1]);
+    }
+
+    @Test
+    void testEchoStreamEndpointRejectsMalformedLines() {
+        given()
+                .contentType(GreetingResource.APPLICATION_NDJSON)
+                .body("not json\n".getBytes(StandardCharsets.UTF_8))
+                .when()
+                .post("/echo/stream")
+                .then()
+                .statusCode(400);
+    }
+
+    @Test
+    void testEchoEndpointKeepsTheDefaultBodyLimit() {
+        // Only /echo/stream reads its body in constant memory; buffered endpoints keep the 10 MB default.
+        byte[] requestBody = ("{\"message\":\"" + "x".repeat(11 * 1024 * 1024) + "\"}").getBytes(StandardCharsets.UTF_8);
+
+        given()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(requestBody)
+                .when()
+                .post("/echo")
+                .then()
+                .statusCode(413);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {GreetingResource.APPLICATION_CBOR, GreetingResource.APPLICATION_SMILE})
+    void testEchoEndpointJacksonBinary(String mediaType) throws Exception {
+        ObjectMapper mapper = GreetingResource.APPLICATION_CBOR.equals(mediaType) ? new CBORMapper() : new SmileMapper();
+        byte[] requestBody = mapper.writeValueAsBytes(Map.of("message", "Hello, binary!"));
+
+        byte[] responseBody = given()
+                .contentType(mediaType)
+                .accept(mediaType)
+                .body(requestBody)
+                .when()
+                .post("/echo")
+                .then()
+                .statusCode(200)
+                .contentType(mediaType)
+                .extract().asByteArray();
+
+        JsonNode response = mapper.readTree(responseBody);
+        assertEquals("Hello, binary!", response.get("message").asText());
+        assertTrue(response.hasNonNull("timestamp"), "The server should add a timestamp.");
+    }
+
+    @Test
+    void testEchoEndpointProtobuf() throws Exception {
+        byte[] requestBody = com.apenlor.lab.dto.proto.EchoMessage.newBuilder()
+                .setMessage("Hello, protobuf!")
+                .build()
+                .toByteArray();
+
+        byte[] responseBody = given()
+                .contentType(GreetingResource.APPLICATION_PROTOBUF)
+                .accept(GreetingResource.APPLICATION_PROTOBUF)
+                .body(requestBody)
+                .when()
+                .post("/echo")
+                .then()
+                .statusCode(200)
+                .contentType(GreetingResource.APPLICATION_PROTOBUF)
+                .extract().asByteArray();
+
+        com.apenlor.lab.dto.proto.EchoMessage response = com.apenlor.lab.dto.proto.EchoMessage.parseFrom(responseBody);
+        assertEquals("Hello, protobuf!", response.getMessage());
+        assertFalse(response.getTimestamp().isEmpty(), "The server should add a timestamp.");
+    }
+
+    @Test
+    void testEchoEndpointProtobufRejectsMalformedTimestamp() {
+        byte[] requestBody = com.apenlor.lab.dto.proto.EchoMessage.newBuilder()
+                .setMessage("Hello, protobuf!")
+                .setTimestamp("yesterday")
+                .build()
+                .toByteArray();
+
+        given()
+                .contentType(GreetingResource.APPLICATION_PROTOBUF)
+                .accept(GreetingResource.APPLICATION_PROTOBUF)
+                .body(requestBody)
+                .when()
+                .post("/echo")
+                .then()
+                .statusCode(400);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,134 @@
+package com.apenlor.lab.api;
+
+import com.apenlor.lab.dto.EchoMessage;
+import com.apenlor.lab.dto.TickerMessage;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the hand-written {@link JsonCodec}.
+ * Its output must be byte-for-byte identical to the application's ObjectMapper, so clients cannot tell which
+ * serializer is enabled.
+ */
+@QuarkusTest
+class JsonCodecTest {
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "Hello, JSON!",
+            "",
+            "quotes \" and back\\slashes",
+            "control \b\t\n\f\r\u0001\u001f characters",
+            "latin é, euro € and emoji 🚀",
+    })
+    void testEchoMessageMatchesJackson(String text) throws Exception {
+        assertSameAsJackson(new EchoMessage(text, Instant.parse("2024-02-29T23:59:59.123Z")));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "1970-01-01T00:00:00Z",
+            "1969-12-31T23:59:59.999999999Z",
+            "2000-02-29T12:00:00.100Z",
+            "2024-12-31T23:59:59.000001Z",
+            "0001-01-01T00:00:00.000000001Z",
+            "9999-12-31T23:59:59Z",
+            "+10000-01-01T00:00:00Z",
+    })
+    void testTimestampsMatchJackson(String timestamp) throws Exception {
+        assertSameAsJackson(new EchoMessage("tick", Instant.parse(timestamp)));
+    }
+
+    @Test
+    void testNullsMatchJackson() throws Exception {
+        assertSameAsJackson(new EchoMessage(null, null));
+        assertSameAsJackson(new EchoMessage("now", Instant.now()));
+    }
+
+    @Test
+    void testTickerMessageMatchesJackson() throws Exception {
+        assertSameAsJackson(new TickerMessage(104.56789012345, Instant.now().toString()));
+        assertSameAsJackson(new TickerMessage(100.0, "2024-01-01T00:00:00Z"));
+        assertSameAsJackson(new TickerMessage(1.0E-7, null));
+        assertSameAsJackson(new TickerMessage(Double.NaN, "nan"));
+        assertSameAsJackson(new TickerMessage("SYM0042", 101.25, Instant.now().toString()));
+    }
+
+    @Test
+    void testLargeMessagesDoNotGrowTheRetainedBuffer() throws Exception {
+        assertSameAsJackson(new EchoMessage("x".repeat(100_000), Instant.now()));
+        assertTrue(JsonCodec.retainedCapacity() <= 64 * 1024, "Retained " + JsonCodec.retainedCapacity() + " bytes.");
+
+        // The next message is encoded correctly into the smaller buffer.
+        assertSameAsJackson(new EchoMessage("small again", Instant.now()));
+    }
+
+    @Test
+    void testVirtualThreadsEncodeWithoutTheThreadLocal() throws Exception {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            // get() rethrows any assertion failure from the virtual thread.
+            executor.submit(() -> {
+                assertSameAsJackson(new EchoMessage("from a virtual thread", Instant.now()));
+                return null;
+            }).get();
+        }
+    }
+
+    @Test
+    void testReadEchoMessage() throws Exception {
+        EchoMessage message = read("{\"unknown\":{\"nested\":[1,2]},\"message\":\"Hi \\u00e9\\n\",\"timestamp\":\"2024-01-01T00:00:00.5Z\"}");
+        assertEquals(new EchoMessage("Hi é\n", Instant.parse("2024-01-01T00:00:00.5Z")), message);
+
+        assertEquals(new EchoMessage("only a message", null), read("{\"message\":\"only a message\"}"));
+        assertEquals(new EchoMessage(null, null), read("{\"message\":null,\"timestamp\":null}"));
+        assertNull(read(""));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "{\"message\":{\"a\":1}}",
+            "{\"message\":[\"a\"]}",
+            "{\"timestamp\":{\"message\":\"inner\"},\"message\":\"outer\"}"
+    })
+    void testReadEchoMessageRejectsNestedValues(String json) {
+        // Jackson rejects these too; the nested fields must not be taken for the message's own.
+        assertThrows(IOException.class, () -> read(json));
+    }
+
+    private void assertSameAsJackson(Object value) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        if (value instanceof EchoMessage echo) {
+            JsonCodec.write(echo, output);
+        } else {
+            JsonCodec.write((TickerMessage) value, output);
+        }
+        // Compare the UTF-8 bytes, as sent on the wire.
+        assertEquals(new String(objectMapper.writeValueAsBytes(value), StandardCharsets.UTF_8), output.toString(StandardCharsets.UTF_8));
+    }
+
+    private EchoMessage read(String json) throws Exception {
+        try (JsonParser parser = objectMapper.getFactory().createParser(json)) {
+            return JsonCodec.readEcho(parser);
+        }
+    }
+}
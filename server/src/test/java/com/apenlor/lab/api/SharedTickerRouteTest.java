@@ -0,0 +1,118 @@
+package com.apenlor.lab.api;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for the delivery of the shared ticker to a subscriber that cannot keep up.
+ * <p>
+ * The response is a stub whose write queue is reported full until the test drains it, like a client that reads
+ * more slowly than the ticker publishes.
+ * </p>
+ */
+class SharedTickerRouteTest {
+
+    private static final int SYM_A = 1;
+    private static final int SYM_B = 2;
+
+    private final List<String> written = new ArrayList<>();
+    private boolean writeQueueFull;
+    private MeterRegistry registry;
+    private HttpServerResponse response;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        response = response();
+    }
+
+    @Test
+    void testBackedUpSubscriberReceivesOnlyTheLatestUpdatePerSymbol() {
+        SharedTickerRoute.Subscriber subscriber = subscriber(SharedTickerRoute.Conflation.register(registry));
+
+        // The first update fills the connection; the following ones are held.
+        writeQueueFull = true;
+        subscriber.send(SYM_A, event("a1"));
+        subscriber.send(SYM_A, event("a2"));
+        subscriber.send(SYM_B, event("b1"));
+        subscriber.send(SYM_A, event("a3"));
+        subscriber.send(SYM_A, event("a4"));
+        assertEquals(List.of("a1"), written);
+
+        writeQueueFull = false;
+        subscriber.drain();
+
+        assertEquals(List.of("a1", "a4", "b1"), written);
+        assertEquals(2, count("lab.sse.ticker.conflated"));
+        assertEquals(0, count("lab.sse.ticker.dropped"));
+
+        // Once drained, updates are written straight away again.
+        subscriber.send(SYM_B, event("b2"));
+        assertEquals(List.of("a1", "a4", "b1", "b2"), written);
+    }
+
+    @Test
+    void testPendingUpdatesAreDroppedWhenABackedUpSubscriberCloses() {
+        SharedTickerRoute.Subscriber subscriber = subscriber(SharedTickerRoute.Conflation.register(registry));
+
+        writeQueueFull = true;
+        subscriber.send(SYM_A, event("a1"));
+        subscriber.send(SYM_A, event("a2"));
+        subscriber.send(SYM_B, event("b1"));
+        subscriber.close();
+        subscriber.send(SYM_A, event("a3"));
+        subscriber.drain();
+
+        assertEquals(List.of("a1"), written);
+        assertEquals(0, count("lab.sse.ticker.conflated"));
+        assertEquals(2, count("lab.sse.ticker.dropped"));
+    }
+
+    @Test
+    void testQueueDeliveryWritesEveryUpdate() {
+        SharedTickerRoute.Subscriber subscriber = subscriber(null);
+
+        writeQueueFull = true;
+        subscriber.send(SYM_A, event("a1"));
+        subscriber.send(SYM_A, event("a2"));
+        subscriber.send(SYM_B, event("b1"));
+
+        assertEquals(List.of("a1", "a2", "b1"), written);
+    }
+
+    private SharedTickerRoute.Subscriber subscriber(SharedTickerRoute.Conflation conflation) {
+        return new SharedTickerRoute.Subscriber(null, response, new int[]{SYM_A, SYM_B}, conflation);
+    }
+
+    private double count(String name) {
+        return registry.get(name).counter().count();
+    }
+
+    private static Buffer event(String data) {
+        return Buffer.buffer(data);
+    }
+
+    private HttpServerResponse response() {
+        return (HttpServerResponse) Proxy.newProxyInstance(HttpServerResponse.class.getClassLoader(),
+                new Class<?>[]{HttpServerResponse.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "write" -> {
+                        written.add(((Buffer) args[0]).toString());
+                        yield Future.succeededFuture();
+                    }
+                    case "writeQueueFull" -> writeQueueFull;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
@@ -1,16 +1,24 @@
 package com.apenlor.lab.api;
 
+import com.apenlor.lab.dto.TickerMessage;
+import com.apenlor.lab.service.TickerService;
 import io.quarkus.test.junit.QuarkusTest;
+import io.smallrye.mutiny.helpers.test.AssertSubscriber;
+import jakarta.inject.Inject;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -26,6 +34,9 @@ class TickerResourceTest {
     @ConfigProperty(name = "quarkus.http.test-port")
     int port;
 
+    @Inject
+    TickerService tickerService;
+
     private HttpClient client;
 
     @BeforeEach
@@ -78,4 +89,132 @@ class TickerResourceTest {
                 "Event payload should be a valid TickerMessage in JSON format. Actual: " + firstEventPayload
         );
     }
+
+    @Test
+    void testSubscribersShareTheSameUpdates() throws Exception {
+        CompletableFuture<List<String>> first = collectEvents(2);
+        CompletableFuture<List<String>> second = collectEvents(2);
+
+        List<String> firstEvents = first.get(5, TimeUnit.SECONDS);
+        List<String> secondEvents = second.get(5, TimeUnit.SECONDS);
+
+        // Both clients are served from the same hot ticker, so they see identical updates, timestamp included.
+        assertTrue(firstEvents.stream().anyMatch(secondEvents::contains),
+                "Subscribers should receive the same updates. First: " + firstEvents + ", second: " + secondEvents);
+    }
+
+    @Test
+    void testSubscriberThatStopsRequestingDoesNotStallTheStream() throws Exception {
+        // Another consumer of the shared ticker that never requests a single update.
+        AssertSubscriber<TickerMessage> stalled = tickerService.ticker().subscribe().withSubscriber(AssertSubscriber.create(0));
+        try {
+            List<String> events = collectEvents(3).get(6, TimeUnit.SECONDS);
+
+            assertEquals(3, events.size(), "The SSE stream should keep delivering. Actual: " + events);
+            stalled.assertNotTerminated();
+            assertTrue(stalled.getItems().isEmpty(), "The stalled subscriber should not receive unrequested updates.");
+        } finally {
+            stalled.cancel();
+        }
+    }
+
+    private CompletableFuture<List<String>> collectEvents(int count) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(new URI("http://localhost:" + port + "/stream/ticker"))
+                .header("Accept", "text/event-stream")
+                .GET()
+                .build();
+
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofLines())
+                .thenApply(response -> {
+                    try (Stream<String> bodyStream = response.body()) {
+                        return bodyStream
+                                .filter(line -> line.startsWith("data:"))
+                                .limit(count)
+                                .toList();
+                    }
+                });
+    }
+
+    @Test
+    void testReconnectReplaysMissedEvents() throws Exception {
+        List<String> firstConnection = collectLines(HttpRequest.newBuilder().uri(tickerUri()), 2);
+        List<Long> ids = firstConnection.stream()
+                .filter(line -> line.startsWith("id:"))
+                .map(line -> Long.parseLong(line.substring("id:".length())))
+                .toList();
+        assertEquals(2, ids.size(), "Every event should carry an id. Actual: " + firstConnection);
+        assertEquals(ids.get(0) + 1, ids.get(1), "Event ids should increase by one per update.");
+
+        // Resume from the first event: the second one is replayed straight away, before the next tick.
+        long start = System.nanoTime();
+        List<String> resumed = collectLines(HttpRequest.newBuilder().uri(tickerUri())
+                .header("Last-Event-ID", String.valueOf(ids.get(0))), 1);
+        assertEquals("id:" + ids.get(1), resumed.getFirst(), "The missed event should be replayed first.");
+        assertEquals(firstConnection.get(firstConnection.indexOf("id:" + ids.get(1)) + 1), resumed.get(1),
+                "The replayed event should be identical to the original.");
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 1000, "The replay should not wait for a tick.");
+    }
+
+    private URI tickerUri() throws Exception {
+        return new URI("http://localhost:" + port + "/stream/ticker");
+    }
+
+    private List<String> collectLines(HttpRequest.Builder builder, int events) throws Exception {
+        HttpRequest request = builder
+                .header("Accept", "text/event-stream")
+                .GET()
+                .build();
+
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofLines())
+                .thenApply(response -> {
+                    List<String> lines = new ArrayList<>();
+                    try (Stream<String> bodyStream = response.body()) {
+                        Iterator<String> iterator = bodyStream.filter(line -> !line.isEmpty()).iterator();
+                        while (lines.stream().filter(line -> line.startsWith("data:")).count() < events && iterator.hasNext()) {
+                            lines.add(iterator.next());
+                        }
+                    }
+                    return lines;
+                })
+                .get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testSymbolsFilterTheStream() throws Exception {
+        List<String> events = collectLines(HttpRequest.newBuilder()
+                .uri(new URI("http://localhost:" + port + "/stream/ticker?symbols=SYM0001,SYM0003")), 4);
+
+        List<String> data = events.stream().filter(line -> line.startsWith("data:")).toList();
+        assertEquals(4, data.size(), "Should have collected 4 symbol updates. Actual: " + events);
+        assertTrue(data.stream().allMatch(line -> line.matches("data:\\{\"symbol\":\"SYM000[13]\",\"price\":\\d+\\.\\d+,\"timestamp\":\"[\\d\\-T:Z.]+\"}")),
+                "Only the requested symbols should be received. Actual: " + data);
+        assertTrue(data.stream().anyMatch(line -> line.contains("SYM0001")) && data.stream().anyMatch(line -> line.contains("SYM0003")),
+                "Every requested symbol should be received. Actual: " + data);
+    }
+
+    @Test
+    void testUnknownSymbolIsRejected() throws Exception {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(new URI("http://localhost:" + port + "/stream/ticker?symbols=SYM0001,NOPE"))
+                .header("Accept", "text/event-stream")
+                .GET()
+                .build();
+
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, response.statusCode());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {",", "%20,%20"})
+    void testSymbolsWithoutAnySymbolAreRejected(String symbols) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(new URI("http://localhost:" + port + "/stream/ticker?symbols=" + symbols))
+                .header("Accept", "text/event-stream")
+                .GET()
+                .build();
+
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, response.statusCode());
+    }
 }
\ No newline at end of file
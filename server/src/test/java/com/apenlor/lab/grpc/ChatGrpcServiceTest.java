@@ -1,19 +1,33 @@
 package com.apenlor.lab.grpc;
 
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
+import io.grpc.netty.NettyChannelBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.quarkus.grpc.GrpcClient;
 import io.quarkus.test.junit.QuarkusTest;
 import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.operators.multi.processors.UnicastProcessor;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.awaitility.Awaitility;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -27,6 +41,12 @@ class ChatGrpcServiceTest {
     @GrpcClient
     ChatService client;
 
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "quarkus.grpc.server.test-port", defaultValue = "9001")
+    int grpcPort;
+
     @Test
     void testBidiChat() {
         // Create dedicated, thread-safe mailboxes for each client
@@ -76,6 +96,207 @@ class ChatGrpcServiceTest {
         sourceSender.onComplete();
     }
 
+    @Test
+    void testBidiChatCoalesced() {
+        LinkedBlockingDeque<ChatBatch> batchesListener = new LinkedBlockingDeque<>();
+        LinkedBlockingDeque<ChatMessage> messagesSender = new LinkedBlockingDeque<>();
+
+        UnicastProcessor<ChatMessage> sourceListener = UnicastProcessor.create();
+        UnicastProcessor<ChatMessage> sourceSender = UnicastProcessor.create();
+
+        // The listener receives batches, while the sender uses the regular per-message RPC.
+        log.info("Connecting client: Coalesced listener");
+        client.bidiChatCoalesced(Multi.createFrom().publisher(sourceListener))
+                .subscribe().with(batchesListener::add, failure -> {
+                    if (!(failure instanceof StatusRuntimeException)) {
+                        log.error("Coalesced listener stream failed unexpectedly", failure);
+                    }
+                });
+        connectClient("Sender", sourceSender, messagesSender);
+
+        // Send a burst of messages, which the server may group into one or more batches.
+        List<String> messagesToSend = List.of("first", "second", "third");
+        messagesToSend.forEach(text -> sourceSender.onNext(ChatMessage.newBuilder()
+                .setSender("Sender")
+                .setMessage(text)
+                .build()));
+
+        // Every message must arrive exactly once and in order, whatever the batch boundaries.
+        List<String> received = new ArrayList<>();
+        Awaitility.await().atMost(TIMEOUT).until(() -> {
+            ChatBatch batch;
+            while ((batch = batchesListener.poll()) != null) {
+                batch.getMessagesList().forEach(m -> received.add(m.getMessage()));
+            }
+            return received.size() >= messagesToSend.size();
+        });
+        assertEquals(messagesToSend, received);
+        log.info("Verified the coalesced listener received every message in order.");
+
+        assertTrue(messagesSender.isEmpty(), "Sender should not receive its own message back.");
+
+        sourceListener.onComplete();
+        sourceSender.onComplete();
+    }
+
+
+    @Test
+    void testBidiChatV2SharesChatWithV1() {
+        LinkedBlockingDeque<ChatMessageV2> messagesListener = new LinkedBlockingDeque<>();
+        LinkedBlockingDeque<ChatMessage> messagesSender = new LinkedBlockingDeque<>();
+
+        UnicastProcessor<ChatMessageV2> sourceListener = UnicastProcessor.create();
+        UnicastProcessor<ChatMessage> sourceSender = UnicastProcessor.create();
+
+        // The listener speaks v2, while the sender uses the original v1 RPC.
+        log.info("Connecting client: V2 listener");
+        client.bidiChatV2(Multi.createFrom().publisher(sourceListener))
+                .subscribe().with(messagesListener::add, failure -> {
+                    if (!(failure instanceof StatusRuntimeException)) {
+                        log.error("V2 listener stream failed unexpectedly", failure);
+                    }
+                });
+        connectClient("Sender", sourceSender, messagesSender);
+
+        long before = System.currentTimeMillis();
+        sourceSender.onNext(ChatMessage.newBuilder().setSender("Sender").setMessage("first").build());
+        sourceSender.onNext(ChatMessage.newBuilder().setSender("Sender").setMessage("second").build());
+
+        Awaitility.await().atMost(TIMEOUT).until(() -> messagesListener.size() == 2);
+        ChatMessageV2 first = Objects.requireNonNull(messagesListener.poll());
+        ChatMessageV2 second = Objects.requireNonNull(messagesListener.poll());
+
+        // The server assigns increasing ids, a numeric timestamp and the sender's connection id.
+        assertEquals("Sender", first.getSender());
+        assertEquals("first", first.getMessage());
+        assertEquals("second", second.getMessage());
+        assertTrue(second.getMessageId() > first.getMessageId(), "Message ids should increase.");
+        assertTrue(first.getTimestampNanos() / 1_000_000 >= before, "The server should add a timestamp.");
+        assertTrue(first.hasSenderId(), "The server should set the sender id.");
+        assertEquals(first.getSenderId(), second.getSenderId());
+        log.info("Verified the v2 listener received the v1 sender's messages.");
+
+        assertTrue(messagesSender.isEmpty(), "Sender should not receive its own message back.");
+
+        sourceListener.onComplete();
+        sourceSender.onComplete();
+    }
+
+    @Test
+    void testBidiChatBatch() {
+        LinkedBlockingDeque<ChatBatch> batchesListener = new LinkedBlockingDeque<>();
+        LinkedBlockingDeque<ChatBatch> batchesSender = new LinkedBlockingDeque<>();
+
+        UnicastProcessor<ChatBatch> sourceListener = UnicastProcessor.create();
+        UnicastProcessor<ChatBatch> sourceSender = UnicastProcessor.create();
+
+        connectBatchClient("Batch listener", sourceListener, batchesListener);
+        connectBatchClient("Batch sender", sourceSender, batchesSender);
+
+        // Send several messages in a single frame.
+        List<String> messagesToSend = List.of("one", "two", "three", "four");
+        ChatBatch.Builder batch = ChatBatch.newBuilder();
+        messagesToSend.forEach(text -> batch.addMessages(ChatMessage.newBuilder().setSender("Batch sender").setMessage(text)));
+        sourceSender.onNext(batch.build());
+
+        // Every message must arrive exactly once and in order, stamped by the server.
+        List<ChatMessage> received = new ArrayList<>();
+        Awaitility.await().atMost(TIMEOUT).until(() -> {
+            ChatBatch next;
+            while ((next = batchesListener.poll()) != null) {
+                received.addAll(next.getMessagesList());
+            }
+            return received.size() >= messagesToSend.size();
+        });
+        assertEquals(messagesToSend, received.stream().map(ChatMessage::getMessage).toList());
+        assertTrue(received.stream().noneMatch(m -> m.getTimestamp().isEmpty()), "The server should add timestamps.");
+        log.info("Verified the batch listener received every message in order.");
+
+        assertTrue(batchesSender.isEmpty(), "Sender should not receive its own messages back.");
+
+        sourceListener.onComplete();
+        sourceSender.onComplete();
+    }
+
+    @Test
+    void testBidiChatBatchRejectsBatchesLargerThanTheBuffer() {
+        LinkedBlockingDeque<ChatBatch> batchesListener = new LinkedBlockingDeque<>();
+        UnicastProcessor<ChatBatch> sourceListener = UnicastProcessor.create();
+        connectBatchClient("Batch listener", sourceListener, batchesListener);
+
+        UnicastProcessor<ChatBatch> sourceSender = UnicastProcessor.create();
+        AtomicReference<Throwable> senderFailure = new AtomicReference<>();
+        client.bidiChatBatch(Multi.createFrom().publisher(sourceSender))
+                .subscribe().with(batch -> {
+                }, senderFailure::set);
+
+        // One message more than the default buffer-size of 1024.
+        ChatBatch.Builder batch = ChatBatch.newBuilder();
+        for (int i = 0; i < 1025; i++) {
+            batch.addMessages(ChatMessage.newBuilder().setSender("Batch sender").setMessage(Integer.toString(i)));
+        }
+        sourceSender.onNext(batch.build());
+
+        Awaitility.await().atMost(TIMEOUT).until(() -> senderFailure.get() != null);
+        assertEquals(Status.Code.INVALID_ARGUMENT, Status.fromThrowable(senderFailure.get()).getCode());
+        assertTrue(batchesListener.isEmpty(), "No message of a rejected batch should be broadcast.");
+
+        sourceListener.onComplete();
+    }
+
+    @Test
+    void testClientThatStopsReadingIsBoundedByMaxLag() {
+        // A small, fixed flow-control window that the client never replenishes, because it never requests messages.
+        ManagedChannel channel = NettyChannelBuilder.forAddress("localhost", grpcPort)
+                .usePlaintext()
+                .flowControlWindow(64 * 1024)
+                .build();
+        ClientCall<ChatMessage, ChatMessage> stalledClient = channel.newCall(ChatServiceGrpc.getBidiChatMethod(), CallOptions.DEFAULT);
+        stalledClient.start(new ClientCall.Listener<>() {
+        }, new Metadata());
+
+        LinkedBlockingDeque<ChatBatch> batchesSender = new LinkedBlockingDeque<>();
+        UnicastProcessor<ChatBatch> sourceSender = UnicastProcessor.create();
+        connectBatchClient("Batch sender", sourceSender, batchesSender);
+
+        // About 2 MB of messages, far more than the window and the server's write buffer can hold.
+        String text = "x".repeat(1024);
+        for (int i = 0; i < 20; i++) {
+            ChatBatch.Builder batch = ChatBatch.newBuilder();
+            for (int j = 0; j < 100; j++) {
+                batch.addMessages(ChatMessage.newBuilder().setSender("Batch sender").setMessage(text));
+            }
+            sourceSender.onNext(batch.build());
+        }
+
+        // The stalled client's backlog stops at max-lag, and the messages beyond it are dropped.
+        Awaitility.await().atMost(TIMEOUT).until(() -> maxDepth() == 256 && totalDropped() > 0);
+        log.info("Verified the stalled client's backlog is capped at max-lag.");
+
+        stalledClient.cancel("Test finished", null);
+        channel.shutdownNow();
+        sourceSender.onComplete();
+    }
+
+    private double maxDepth() {
+        return registry.find("lab.grpc.chat.stream.depth").gauges().stream()
+                .mapToDouble(Gauge::value).max().orElse(0);
+    }
+
+    private double totalDropped() {
+        return registry.find("lab.grpc.chat.stream.dropped").counters().stream()
+                .mapToDouble(Counter::count).sum();
+    }
+
+    private void connectBatchClient(String clientName, UnicastProcessor<ChatBatch> source, BlockingQueue<ChatBatch> mailbox) {
+        log.info("Connecting client: {}", clientName);
+        client.bidiChatBatch(Multi.createFrom().publisher(source))
+                .subscribe().with(mailbox::add, failure -> {
+                    if (!(failure instanceof StatusRuntimeException)) {
+                        log.error("{} stream failed unexpectedly", clientName, failure);
+                    }
+                });
+    }
 
     /**
      * Helper method to encapsulate the logic of connecting a single test client.
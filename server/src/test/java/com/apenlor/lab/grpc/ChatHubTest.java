@@ -0,0 +1,336 @@
+package com.apenlor.lab.grpc;
+
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the {@link ChatHub} ring buffer and the flow control of its subscribers.
+ * <p>
+ * Each client is a stub response stream that only reports itself ready once the test resumes it, like a client
+ * whose HTTP/2 flow-control window has been used up because it stopped reading. Subscribers drain on the default
+ * executor outside of a gRPC call, so the tests wait for the hub to settle.
+ * </p>
+ */
+class ChatHubTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+    // Not the id of any subscriber, so that every subscriber receives its messages.
+    private static final long OUTSIDE_SENDER = -1;
+
+    private MeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void testSenderDoesNotReceiveItsOwnMessages() {
+        ChatHub hub = hub(16, 16, StreamOverflow.DROP);
+        StalledObserver<ChatMessage> alice = new StalledObserver<>();
+        StalledObserver<ChatMessage> bob = new StalledObserver<>();
+        MessageSubscriber<ChatMessage> aliceSubscriber = hub.subscribeMessages(HubEntry::v1, alice);
+        MessageSubscriber<ChatMessage> bobSubscriber = hub.subscribeMessages(HubEntry::v1, bob);
+        alice.resume();
+        bob.resume();
+
+        hub.publish(aliceSubscriber.connectionId(), "alice", "from alice");
+        hub.publish(bobSubscriber.connectionId(), "bob", "from bob");
+        hub.publish(aliceSubscriber.connectionId(), "alice", "from alice again");
+
+        Awaitility.await().atMost(TIMEOUT).until(() -> alice.received.size() == 1 && bob.received.size() == 2);
+        assertEquals(List.of("from bob"), texts(alice.received));
+        assertEquals(List.of("from alice", "from alice again"), texts(bob.received));
+        // Skipping its own messages is not a drop.
+        assertEquals(0, dropped(aliceSubscriber));
+        assertEquals(0, dropped(bobSubscriber));
+    }
+
+    @Test
+    void testMessagesKeepTheirOrderAcrossWrapAround() {
+        ChatHub hub = hub(8, 8, StreamOverflow.DROP);
+        StalledObserver<ChatMessageV2> client = new StalledObserver<>();
+        MessageSubscriber<ChatMessageV2> subscriber = hub.subscribeMessages(HubEntry::v2, client);
+        client.resume();
+
+        // Three times the buffer size, in rounds small enough for the client to keep up.
+        for (int round = 0; round < 4; round++) {
+            for (int i = 0; i < 6; i++) {
+                hub.publish(OUTSIDE_SENDER, "alice", Integer.toString(round * 6 + i));
+            }
+            int expected = (round + 1) * 6;
+            Awaitility.await().atMost(TIMEOUT).until(() -> client.received.size() == expected);
+        }
+
+        List<String> sent = IntStream.range(0, 24).mapToObj(Integer::toString).toList();
+        assertEquals(sent, client.received.stream().map(ChatMessageV2::getMessage).toList());
+        assertEquals(LongStream.range(0, 24).boxed().toList(),
+                client.received.stream().map(ChatMessageV2::getMessageId).toList());
+        assertEquals(0, dropped(subscriber));
+    }
+
+    @Test
+    void testLappedSubscriberResumesFromTheOldestBufferedMessage() {
+        ChatHub hub = hub(8, 8, StreamOverflow.DROP);
+        // While the first message is being written, a burst overwrites the whole buffer behind the cursor.
+        StalledObserver<ChatMessage> client = new StalledObserver<>() {
+            @Override
+            public void onNext(ChatMessage value) {
+                super.onNext(value);
+                if (received.size() == 1) {
+                    publish(hub, 20);
+                }
+            }
+        };
+        MessageSubscriber<ChatMessage> subscriber = hub.subscribeMessages(HubEntry::v1, client);
+        client.resume();
+
+        hub.publish(OUTSIDE_SENDER, "alice", "first");
+
+        // The burst took sequences 1 to 20, of which only the last 8 are still buffered.
+        Awaitility.await().atMost(TIMEOUT).until(() -> client.received.size() == 9);
+        assertEquals(List.of("first", "12", "13", "14", "15", "16", "17", "18", "19"), texts(client.received));
+        assertEquals(12, dropped(subscriber));
+    }
+
+    @Test
+    void testBatchLargerThanTheBufferIsRejected() {
+        ChatHub hub = hub(8, 8, StreamOverflow.DROP);
+        StalledObserver<ChatMessage> client = new StalledObserver<>();
+        MessageSubscriber<ChatMessage> subscriber = hub.subscribeMessages(HubEntry::v1, client);
+        client.resume();
+
+        // Written in one pass, the last message would overwrite the first before anyone could read it.
+        assertThrows(IllegalArgumentException.class, () -> hub.publishAll(OUTSIDE_SENDER, batch(9)));
+        assertEquals(0, hub.published());
+
+        // A batch that fills the buffer exactly reaches the subscriber whole.
+        hub.publishAll(OUTSIDE_SENDER, batch(8));
+        Awaitility.await().atMost(TIMEOUT).until(() -> client.received.size() == 8);
+        assertEquals(List.of("0", "1", "2", "3", "4", "5", "6", "7"), texts(client.received));
+        assertEquals(0, dropped(subscriber));
+    }
+
+    @Test
+    void testDropKeepsTheNewestMessagesUpToMaxLag() {
+        ChatHub hub = hub(16, 4, StreamOverflow.DROP);
+        StalledObserver<ChatMessage> client = new StalledObserver<>();
+        MessageSubscriber<ChatMessage> subscriber = hub.subscribeMessages(HubEntry::v1, client);
+
+        publish(hub, 10);
+        Awaitility.await().atMost(TIMEOUT).until(() -> dropped(subscriber) == 6);
+        assertEquals(4, depth(subscriber));
+        assertTrue(client.received.isEmpty(), "Nothing should be written while the client is not ready.");
+
+        client.resume();
+        Awaitility.await().atMost(TIMEOUT).until(() -> client.received.size() == 4);
+        assertEquals(List.of("6", "7", "8", "9"), texts(client.received));
+    }
+
+    @Test
+    void testKeepLatestKeepsOnlyTheNewestMessage() {
+        ChatHub hub = hub(16, 4, StreamOverflow.KEEP_LATEST);
+        StalledObserver<ChatMessage> client = new StalledObserver<>();
+        MessageSubscriber<ChatMessage> subscriber = hub.subscribeMessages(HubEntry::v1, client);
+
+        publish(hub, 10);
+        Awaitility.await().atMost(TIMEOUT).until(() -> dropped(subscriber) == 9);
+        assertEquals(1, depth(subscriber));
+
+        client.resume();
+        Awaitility.await().atMost(TIMEOUT).until(() -> client.received.size() == 1);
+        assertEquals(List.of("9"), texts(client.received));
+    }
+
+    @Test
+    void testCancelFailsTheStreamWithResourceExhausted() {
+        ChatHub hub = hub(16, 4, StreamOverflow.CANCEL);
+        StalledObserver<ChatMessage> client = new StalledObserver<>();
+        MessageSubscriber<ChatMessage> subscriber = hub.subscribeMessages(HubEntry::v1, client);
+
+        publish(hub, 10);
+        Awaitility.await().atMost(TIMEOUT).until(() -> client.error != null);
+        assertEquals(Status.Code.RESOURCE_EXHAUSTED, ((StatusRuntimeException) client.error).getStatus().getCode());
+        assertTrue(client.received.isEmpty());
+
+        // The subscriber has left the hub and its meters are gone.
+        assertEquals(0, hub.subscriberCount());
+        assertTrue(registry.find("lab.grpc.chat.stream.depth")
+                .tag("connection", Long.toString(subscriber.connectionId())).meters().isEmpty());
+    }
+
+    @Test
+    void testBatchSubscriberWaitsUntilTheClientIsReady() {
+        ChatHub hub = hub(16, 4, StreamOverflow.DROP);
+        StalledObserver<ChatBatch> client = new StalledObserver<>();
+        BatchSubscriber subscriber = hub.subscribeBatches(Duration.ZERO, 3, client);
+
+        publish(hub, 10);
+        Awaitility.await().atMost(TIMEOUT).until(() -> dropped(subscriber) == 6);
+
+        client.resume();
+        Awaitility.await().atMost(TIMEOUT).until(() -> client.received.size() == 2);
+        assertEquals(List.of(List.of("6", "7", "8"), List.of("9")), client.received.stream()
+                .map(batch -> texts(batch.getMessagesList()))
+                .toList());
+    }
+
+    private ChatHub hub(int bufferSize, int maxLag, StreamOverflow overflow) {
+        return new ChatHub(config(bufferSize, maxLag, overflow), registry);
+    }
+
+    private static void publish(ChatHub hub, int count) {
+        IntStream.range(0, count).forEach(i -> hub.publish(OUTSIDE_SENDER, "alice", Integer.toString(i)));
+    }
+
+    private static List<ChatMessage> batch(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> ChatMessage.newBuilder().setSender("bob").setMessage(Integer.toString(i)).build())
+                .toList();
+    }
+
+    private double dropped(HubSubscriber<?> subscriber) {
+        return registry.get("lab.grpc.chat.stream.dropped")
+                .tag("connection", Long.toString(subscriber.connectionId())).counter().count();
+    }
+
+    private double depth(HubSubscriber<?> subscriber) {
+        return registry.get("lab.grpc.chat.stream.depth")
+                .tag("connection", Long.toString(subscriber.connectionId())).gauge().value();
+    }
+
+    private static List<String> texts(List<ChatMessage> messages) {
+        return messages.stream().map(ChatMessage::getMessage).toList();
+    }
+
+    static ChatGrpcConfig config(int bufferSize, int maxLag, StreamOverflow overflow) {
+        ChatGrpcConfig.Stream stream = new ChatGrpcConfig.Stream() {
+            @Override
+            public int maxLag() {
+                return maxLag;
+            }
+
+            @Override
+            public StreamOverflow overflow() {
+                return overflow;
+            }
+        };
+        ChatGrpcConfig.Coalesce coalesce = new ChatGrpcConfig.Coalesce() {
+            @Override
+            public Duration window() {
+                return Duration.ZERO;
+            }
+
+            @Override
+            public int maxMessages() {
+                return 64;
+            }
+        };
+        return new ChatGrpcConfig() {
+            @Override
+            public int bufferSize() {
+                return bufferSize;
+            }
+
+            @Override
+            public int maxBatchSize() {
+                return 256;
+            }
+
+            @Override
+            public Stream stream() {
+                return stream;
+            }
+
+            @Override
+            public Coalesce coalesce() {
+                return coalesce;
+            }
+        };
+    }
+
+    /**
+     * A response stream that is not ready until resumed, like a client that stopped reading.
+     */
+    static class StalledObserver<T> extends ServerCallStreamObserver<T> {
+        final List<T> received = new CopyOnWriteArrayList<>();
+        volatile Throwable error;
+        volatile boolean completed;
+        private volatile boolean ready;
+        private volatile Runnable onReadyHandler;
+
+        /**
+         * Makes the stream ready and runs the on-ready handler, as gRPC does once the client reads again.
+         */
+        void resume() {
+            ready = true;
+            onReadyHandler.run();
+        }
+
+        @Override
+        public boolean isReady() {
+            return ready;
+        }
+
+        @Override
+        public void setOnReadyHandler(Runnable onReadyHandler) {
+            this.onReadyHandler = onReadyHandler;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public void setOnCancelHandler(Runnable onCancelHandler) {
+        }
+
+        @Override
+        public void setCompression(String compression) {
+        }
+
+        @Override
+        public void disableAutoInboundFlowControl() {
+        }
+
+        @Override
+        public void request(int count) {
+        }
+
+        @Override
+        public void setMessageCompression(boolean enable) {
+        }
+
+        @Override
+        public void onNext(T value) {
+            received.add(value);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            error = t;
+        }
+
+        @Override
+        public void onCompleted() {
+            completed = true;
+        }
+    }
+}
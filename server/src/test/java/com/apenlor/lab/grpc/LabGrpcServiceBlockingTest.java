@@ -0,0 +1,59 @@
+package com.apenlor.lab.grpc;
+
+import io.quarkus.grpc.GrpcClient;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.smallrye.mutiny.Uni;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the gRPC echo with a simulated blocking I/O call, which must not block the event loop.
+ */
+@QuarkusTest
+@TestProfile(LabGrpcServiceBlockingTest.SimulatedDelayProfile.class)
+class LabGrpcServiceBlockingTest {
+
+    private static final Duration DELAY = Duration.ofMillis(500);
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+    private static final int CALLS = 4;
+
+    @GrpcClient
+    LabService client;
+
+    @Test
+    void testConcurrentEchoesDoNotWaitForEachOther() {
+        // Open the connection and warm up the call path first, so that only the echoes themselves are timed.
+        client.echo(EchoRequest.newBuilder().setMessage("warm-up").build()).await().atMost(TIMEOUT);
+
+        long start = System.nanoTime();
+        // All calls share one connection, and therefore one event loop on the server.
+        List<EchoReply> replies = Uni.join().all(IntStream.range(0, CALLS)
+                        .mapToObj(i -> client.echo(EchoRequest.newBuilder().setMessage("call " + i).build()))
+                        .toList())
+                .andFailFast()
+                .await().atMost(TIMEOUT);
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        assertEquals(CALLS, replies.size());
+        assertEquals("call 0", replies.getFirst().getMessage());
+        // On the event loop, or on an ordered worker context, the delays would add up; on the worker pool they overlap.
+        assertTrue(elapsed.compareTo(DELAY.multipliedBy(CALLS - 1)) < 0,
+                "Concurrent echoes took " + elapsed.toMillis() + " ms, as if they had run one after another.");
+    }
+
+    public static class SimulatedDelayProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of("lab.greeting.simulated-delay", DELAY.toMillis() + "ms");
+        }
+    }
+}
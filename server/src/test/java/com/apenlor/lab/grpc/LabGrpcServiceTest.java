@@ -0,0 +1,41 @@
+package com.apenlor.lab.grpc;
+
+import io.quarkus.grpc.GrpcClient;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+class LabGrpcServiceTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @GrpcClient
+    LabService client;
+
+    @Test
+    void testEcho() {
+        EchoReply reply = client.echo(EchoRequest.newBuilder().setMessage("Hello gRPC!").build())
+                .await().atMost(TIMEOUT);
+
+        assertEquals("Hello gRPC!", reply.getMessage());
+        assertFalse(reply.getTimestamp().isEmpty(), "The server should add a timestamp.");
+    }
+
+    @Test
+    void testTickerStreamsUpdates() {
+        List<TickerUpdate> updates = client.ticker(TickerRequest.getDefaultInstance())
+                .select().first(2)
+                .collect().asList()
+                .await().atMost(TIMEOUT);
+
+        assertEquals(2, updates.size(), "Should have received exactly 2 ticker updates.");
+        TickerUpdate first = updates.getFirst();
+        assertTrue(first.getPrice() >= 100 && first.getPrice() <= 110, "Price should be within the generated range.");
+        assertTrue(first.getTimestamp().matches("[\\d\\-T:Z.]+"), "Timestamp should be ISO 8601. Actual: " + first.getTimestamp());
+    }
+}
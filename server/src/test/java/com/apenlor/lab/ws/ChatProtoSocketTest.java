@@ -0,0 +1,118 @@
+package com.apenlor.lab.ws;
+
+import com.apenlor.lab.grpc.ChatMessage;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.WebSocket;
+import io.vertx.core.http.WebSocketClient;
+import jakarta.inject.Inject;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration test for the {@link ChatProtoSocket} binary WebSocket endpoint.
+ *
+ * <p>
+ * Validates that protobuf frames are broadcast to the other sessions, enriched with a server-side timestamp,
+ * and not echoed back to the sender.
+ * </p>
+ */
+@QuarkusTest
+class ChatProtoSocketTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatProtoSocketTest.class);
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @Inject
+    Vertx vertx;
+
+    WebSocketClient webSocketClient;
+
+    @TestHTTPResource("/ws/chat-proto")
+    URI uri;
+
+    @BeforeEach
+    void setUp() {
+        webSocketClient = vertx.createWebSocketClient();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (webSocketClient != null) {
+            webSocketClient.close();
+        }
+    }
+
+    @Test
+    void testProtobufBroadcast() throws Exception {
+        BlockingQueue<ChatMessage> messagesListener = new LinkedBlockingQueue<>();
+        BlockingQueue<ChatMessage> messagesSender = new LinkedBlockingQueue<>();
+
+        WebSocket listener = connectClient("Listener").get(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+        WebSocket sender = connectClient("Sender").get(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+
+        listener.binaryMessageHandler(buffer -> messagesListener.add(parse(buffer)));
+        sender.binaryMessageHandler(buffer -> messagesSender.add(parse(buffer)));
+
+        ChatMessage message = ChatMessage.newBuilder()
+                .setSender("Sender")
+                .setMessage("Hello in protobuf!")
+                .build();
+        CompletableFuture<Void> sentFuture = new CompletableFuture<>();
+        sender.writeBinaryMessage(Buffer.buffer(message.toByteArray()), result -> {
+            if (result.succeeded()) {
+                sentFuture.complete(null);
+            } else {
+                sentFuture.completeExceptionally(result.cause());
+            }
+        });
+        sentFuture.get(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+
+        Awaitility.await().atMost(TIMEOUT).until(() -> messagesListener.size() == 1);
+        ChatMessage received = messagesListener.poll();
+        assertNotNull(received);
+        assertEquals("Sender", received.getSender());
+        assertEquals("Hello in protobuf!", received.getMessage());
+        assertFalse(received.getTimestamp().isEmpty(), "The server should add a timestamp.");
+        log.info("Verified the listener received the enriched message.");
+
+        assertTrue(messagesSender.isEmpty(), "Sender should not receive its own message back.");
+
+        listener.close();
+        sender.close();
+    }
+
+    private static ChatMessage parse(Buffer buffer) {
+        try {
+            return ChatMessage.parseFrom(buffer.getBytes());
+        } catch (Exception e) {
+            throw new IllegalStateException("Received an invalid ChatMessage frame", e);
+        }
+    }
+
+    private CompletableFuture<WebSocket> connectClient(String clientName) {
+        CompletableFuture<WebSocket> connectFuture = new CompletableFuture<>();
+        webSocketClient.connect(uri.getPort(), uri.getHost(), uri.getPath(), result -> {
+            if (result.succeeded()) {
+                log.info("Test client '{}' connected successfully.", clientName);
+                connectFuture.complete(result.result());
+            } else {
+                log.error("Failed to connect client '{}'", clientName, result.cause());
+                connectFuture.completeExceptionally(result.cause());
+            }
+        });
+        return connectFuture;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,109 @@
+package com.apenlor.lab.ws;
+
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.WebSocket;
+import io.vertx.core.http.WebSocketClient;
+import jakarta.inject.Inject;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Integration test for the {@link ChatRoomSocket} WebSocket endpoint.
+ *
+ * <p>
+ * Validates that a broadcast reaches the other members of the sender's room and nobody else.
+ * </p>
+ */
+@QuarkusTest
+class ChatRoomSocketTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatRoomSocketTest.class);
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @Inject
+    Vertx vertx;
+
+    WebSocketClient webSocketClient;
+
+    @TestHTTPResource("/ws/chat")
+    URI uri;
+
+    @BeforeEach
+    void setUp() {
+        webSocketClient = vertx.createWebSocketClient();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (webSocketClient != null) {
+            webSocketClient.close();
+        }
+    }
+
+    @Test
+    void testBroadcastStaysWithinRoom() throws ExecutionException, InterruptedException, TimeoutException {
+        BlockingQueue<String> messagesRoomMate = new LinkedBlockingQueue<>();
+        BlockingQueue<String> messagesOtherRoom = new LinkedBlockingQueue<>();
+        BlockingQueue<String> messagesSender = new LinkedBlockingQueue<>();
+
+        WebSocket roomMate = connectClient("Room mate", "room-a").get(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+        WebSocket otherRoom = connectClient("Other room", "room-b").get(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+        WebSocket sender = connectClient("Sender", "room-a").get(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+
+        roomMate.textMessageHandler(messagesRoomMate::add);
+        otherRoom.textMessageHandler(messagesOtherRoom::add);
+        sender.textMessageHandler(messagesSender::add);
+
+        String messageToSend = "Hello room A!";
+        CompletableFuture<Void> sentFuture = new CompletableFuture<>();
+        sender.writeTextMessage(messageToSend, result -> {
+            if (result.succeeded()) {
+                sentFuture.complete(null);
+            } else {
+                sentFuture.completeExceptionally(result.cause());
+            }
+        });
+        sentFuture.get(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+
+        // The room mate must receive the message.
+        Awaitility.await().atMost(TIMEOUT).until(() -> messagesRoomMate.size() == 1);
+        assertEquals(messageToSend, messagesRoomMate.poll());
+        log.info("Verified the room mate received the message.");
+
+        // Neither the member of the other room nor the sender may receive it.
+        assertTrue(messagesOtherRoom.isEmpty(), "A member of another room should not receive the message.");
+        assertTrue(messagesSender.isEmpty(), "Sender should not receive its own message back.");
+        log.info("Verified the message did not leave room A.");
+
+        roomMate.close();
+        otherRoom.close();
+        sender.close();
+    }
+
+    private CompletableFuture<WebSocket> connectClient(String clientName, String room) {
+        CompletableFuture<WebSocket> connectFuture = new CompletableFuture<>();
+        webSocketClient.connect(uri.getPort(), uri.getHost(), uri.getPath() + "/" + room, result -> {
+            if (result.succeeded()) {
+                log.info("Test client '{}' connected to room '{}'.", clientName, room);
+                connectFuture.complete(result.result());
+            } else {
+                log.error("Failed to connect client '{}'", clientName, result.cause());
+                connectFuture.completeExceptionally(result.cause());
+            }
+        });
+        return connectFuture;
+    }
+}
\ No newline at end of file
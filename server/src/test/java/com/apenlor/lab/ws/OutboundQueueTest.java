@@ -0,0 +1,318 @@
+package com.apenlor.lab.ws;
+
+import com.apenlor.lab.grpc.ChatBatch;
+import com.apenlor.lab.grpc.ChatMessage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the slow-consumer protection and the coalescing of {@link OutboundQueue}.
+ * <p>
+ * Each queue writes to an embedded channel whose socket never completes a write until the test drains it, like a
+ * client that has stopped reading. The session is a stub that records how it was closed.
+ * </p>
+ */
+class OutboundQueueTest {
+
+    private final StalledSocket socket = new StalledSocket();
+    private final List<CloseReason> closeReasons = new ArrayList<>();
+    private final Map<String, Object> userProperties = new HashMap<>();
+    private MeterRegistry registry;
+    private EmbeddedChannel channel;
+    private Session session;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        channel = new EmbeddedChannel(socket);
+        session = session();
+    }
+
+    @AfterEach
+    void tearDown() {
+        socket.drain();
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void testDropOldestKeepsTheLatestFrames() {
+        OutboundQueues queues = open(OverflowPolicy.DROP_OLDEST, 3, Long.MAX_VALUE);
+
+        offer(queues, "1", "2", "3", "4", "5");
+        socket.drain();
+
+        // 1 was already in flight; 2 and 3 made room for 4 and 5.
+        assertEquals(List.of("1", "4", "5"), socket.delivered());
+        assertOverflows("drop-oldest", 2);
+    }
+
+    @Test
+    void testDropNewestKeepsTheQueuedFrames() {
+        OutboundQueues queues = open(OverflowPolicy.DROP_NEWEST, 3, Long.MAX_VALUE);
+
+        offer(queues, "1", "2", "3", "4", "5");
+        socket.drain();
+
+        assertEquals(List.of("1", "2", "3"), socket.delivered());
+        assertOverflows("drop-newest", 2);
+    }
+
+    @Test
+    void testConflateReplacesEverythingQueued() {
+        OutboundQueues queues = open(OverflowPolicy.CONFLATE, 2, Long.MAX_VALUE);
+
+        offer(queues, "1", "2", "3", "4", "5");
+        socket.drain();
+
+        assertEquals(List.of("1", "5"), socket.delivered());
+        assertOverflows("conflate", 3);
+    }
+
+    @Test
+    void testDisconnectClosesTheSessionWithTryAgainLater() {
+        OutboundQueues queues = open(OverflowPolicy.DISCONNECT, 2, Long.MAX_VALUE);
+
+        offer(queues, "1", "2", "3", "4");
+        socket.drain();
+
+        assertEquals(1, closeReasons.size());
+        assertEquals(CloseReason.CloseCodes.TRY_AGAIN_LATER.getCode(), closeReasons.get(0).getCloseCode().getCode());
+        // The queued frame is discarded and nothing is accepted after the overflow.
+        assertEquals(List.of("1"), socket.delivered());
+        assertOverflows("disconnect", 1);
+    }
+
+    @Test
+    void testMaxBytesLimitsQueuedPayload() {
+        OutboundQueues queues = open(OverflowPolicy.DROP_OLDEST, 1000, 10);
+
+        offer(queues, "aaaa", "bbbb", "cccc");
+        socket.drain();
+
+        assertEquals(List.of("aaaa", "cccc"), socket.delivered());
+        assertOverflows("drop-oldest", 1);
+    }
+
+    @Test
+    void testFramesWithinLimitsAreAllDelivered() {
+        OutboundQueues queues = open(OverflowPolicy.DISCONNECT, 3, Long.MAX_VALUE);
+
+        offer(queues, "1", "2", "3");
+        // The first drain completes 1 and hands over 2 and 3, the second completes them.
+        socket.drain();
+        socket.drain();
+        offer(queues, "4", "5", "6");
+        socket.drain();
+        socket.drain();
+
+        assertEquals(List.of("1", "2", "3", "4", "5", "6"), socket.delivered());
+        assertEquals(List.of(), closeReasons);
+        assertOverflows("disconnect", 0);
+    }
+
+    @Test
+    void testCoalescedTextFrameJoinsMessagesWithNewlines() {
+        OutboundQueues queues = open(config(OverflowPolicy.DROP_OLDEST, 1000, Long.MAX_VALUE, Duration.ofHours(1), 3));
+
+        offer(queues, "a", "b", "c", "d");
+        // Three pending messages fill a frame. The fourth is handed over as soon as that frame has been written.
+        assertEquals(List.of("a\nb\nc"), socket.delivered());
+        socket.drain();
+
+        assertEquals(List.of("a\nb\nc", "d"), socket.delivered());
+    }
+
+    @Test
+    void testCoalescedTextFrameIsSentWhenTheWindowElapses() throws InterruptedException {
+        OutboundQueues queues = open(config(OverflowPolicy.DROP_OLDEST, 1000, Long.MAX_VALUE, Duration.ofMillis(1), 64));
+
+        offer(queues, "a", "b");
+        assertEquals(List.of(), socket.delivered());
+        Thread.sleep(10);
+        channel.runScheduledPendingTasks();
+
+        assertEquals(List.of("a\nb"), socket.delivered());
+    }
+
+    @Test
+    void testCoalescedBinaryFrameParsesAsChatBatch() throws Exception {
+        OutboundQueues queues = open(config(OverflowPolicy.DROP_OLDEST, 1000, Long.MAX_VALUE, Duration.ofHours(1), 3));
+        // Sizes on both sides of 127 bytes, so that entry lengths take one and two varint bytes.
+        List<ChatMessage> messages = List.of(
+                chatMessage("short"),
+                chatMessage("x".repeat(300)),
+                chatMessage(""));
+
+        for (ChatMessage message : messages) {
+            EncodedFrame frame = EncodedFrame.binary(message.toByteArray());
+            queues.offer(session, frame);
+            frame.release();
+        }
+
+        assertEquals(1, socket.payloads().size());
+        assertEquals(messages, ChatBatch.parseFrom(socket.payloads().get(0)).getMessagesList());
+    }
+
+    @Test
+    void testLineBreaksAreRejectedOnlyWhileCoalescing() {
+        OutboundQueues plain = new OutboundQueues(config(OverflowPolicy.DROP_OLDEST, 1000, Long.MAX_VALUE), registry);
+        OutboundQueues coalescing = new OutboundQueues(
+                config(OverflowPolicy.DROP_OLDEST, 1000, Long.MAX_VALUE, Duration.ofMillis(2), 64), registry);
+
+        assertTrue(plain.admitText(session, "two\nlines"));
+        assertTrue(coalescing.admitText(session, "one line"));
+        assertEquals(List.of(), closeReasons);
+
+        assertFalse(coalescing.admitText(session, "two\nlines"));
+        assertEquals(1, closeReasons.size());
+        assertEquals(CloseReason.CloseCodes.CANNOT_ACCEPT.getCode(), closeReasons.get(0).getCloseCode().getCode());
+    }
+
+    private OutboundQueues open(OverflowPolicy policy, int maxMessages, long maxBytes) {
+        return open(config(policy, maxMessages, maxBytes));
+    }
+
+    private OutboundQueues open(OutboundConfig config) {
+        OutboundQueues queues = new OutboundQueues(config, registry);
+        queues.open(session, channel);
+        return queues;
+    }
+
+    private void offer(OutboundQueues queues, String... messages) {
+        for (String message : messages) {
+            EncodedFrame frame = EncodedFrame.text(message);
+            queues.offer(session, frame);
+            frame.release();
+        }
+    }
+
+    /**
+     * Checks the overflow counter of the active policy, and that no other policy counted anything.
+     */
+    private void assertOverflows(String policy, double expected) {
+        for (String tag : List.of("drop-oldest", "drop-newest", "conflate", "disconnect")) {
+            assertEquals(tag.equals(policy) ? expected : 0,
+                    registry.get("lab.ws.outbound.overflow").tag("policy", tag).counter().count(), tag);
+        }
+    }
+
+    private static ChatMessage chatMessage(String text) {
+        return ChatMessage.newBuilder().setSender("alice").setMessage(text).setTimestamp("2024-01-01T00:00:00Z").build();
+    }
+
+    private Session session() {
+        return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[]{Session.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getId" -> "test";
+                    case "getUserProperties" -> userProperties;
+                    case "isOpen" -> closeReasons.isEmpty();
+                    case "close" -> {
+                        // The close handshake must not run under the queue's monitor.
+                        Object queue = userProperties.get(OutboundQueue.class.getName());
+                        assertFalse(queue != null && Thread.holdsLock(queue));
+                        closeReasons.add((CloseReason) args[0]);
+                        yield null;
+                    }
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    static OutboundConfig config(OverflowPolicy policy, int maxMessages, long maxBytes) {
+        return config(policy, maxMessages, maxBytes, Duration.ZERO, 64);
+    }
+
+    static OutboundConfig config(OverflowPolicy policy, int maxMessages, long maxBytes, Duration coalesceWindow,
+                                 int coalesceMaxMessages) {
+        OutboundConfig.Coalesce coalesce = new OutboundConfig.Coalesce() {
+            @Override
+            public Duration window() {
+                return coalesceWindow;
+            }
+
+            @Override
+            public int maxMessages() {
+                return coalesceMaxMessages;
+            }
+        };
+        return new OutboundConfig() {
+            @Override
+            public int maxMessages() {
+                return maxMessages;
+            }
+
+            @Override
+            public long maxBytes() {
+                return maxBytes;
+            }
+
+            @Override
+            public OverflowPolicy policy() {
+                return policy;
+            }
+
+            @Override
+            public Coalesce coalesce() {
+                return coalesce;
+            }
+        };
+    }
+
+    /**
+     * A socket that accepts writes but only completes them when drained, like a client that stopped reading.
+     */
+    static final class StalledSocket extends ChannelOutboundHandlerAdapter {
+        private final List<ChannelPromise> pending = new ArrayList<>();
+        private final List<byte[]> payloads = new ArrayList<>();
+
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+            WebSocketFrame frame = (WebSocketFrame) msg;
+            payloads.add(ByteBufUtil.getBytes(frame.content()));
+            frame.release();
+            pending.add(promise);
+        }
+
+        /**
+         * Completes every pending write, which lets the queue hand over its next batch.
+         */
+        void drain() {
+            List<ChannelPromise> completed = new ArrayList<>(pending);
+            pending.clear();
+            completed.forEach(ChannelPromise::setSuccess);
+        }
+
+        /**
+         * @return The payload of every frame written so far, decoded as text.
+         */
+        List<String> delivered() {
+            return payloads.stream().map(payload -> new String(payload, StandardCharsets.UTF_8)).toList();
+        }
+
+        List<byte[]> payloads() {
+            return payloads;
+        }
+    }
+}